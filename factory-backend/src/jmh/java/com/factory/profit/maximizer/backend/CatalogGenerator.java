@@ -0,0 +1,61 @@
+package com.factory.profit.maximizer.backend;
+
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reproducible synthetic catalogs for the benchmarks. The same seed and sizes always give the same
+ * catalog, so results stay comparable between releases.
+ * <p>
+ * {@code density} is the average number of composition lines per product. Stock is sized so that
+ * roughly ten units of every product would compete for it, which keeps most materials binding.
+ */
+public final class CatalogGenerator {
+
+    public static final long SEED = 20_240_901L;
+
+    public record Catalog(List<RawMaterial> rawMaterials, List<Product> products) {
+    }
+
+    private CatalogGenerator() {
+    }
+
+    public static Catalog generate(long seed, int productCount, int materialCount, int density) {
+        Random random = new Random(seed);
+        int lines = Math.min(density, materialCount);
+        int quantityBound = 9;
+        long demandPerMaterial = 10L * productCount * lines * (quantityBound + 1) / 2 / materialCount;
+        int maxStock = (int) Math.min(Integer.MAX_VALUE / 2, Math.max(10, demandPerMaterial));
+
+        List<RawMaterial> rawMaterials = new ArrayList<>(materialCount);
+        for (int m = 0; m < materialCount; m++) {
+            rawMaterials.add(new RawMaterial((long) m + 1, "RM-" + m, "Raw material " + m, random.nextInt(maxStock + 1)));
+        }
+
+        List<Product> products = new ArrayList<>(productCount);
+        long compositionId = 1;
+        for (int p = 0; p < productCount; p++) {
+            Product product = new Product((long) p + 1, "PR-" + p, "Product " + p,
+                    BigDecimal.valueOf(100 + random.nextInt(100_000), 2), new HashSet<>());
+            int productLines = 1 + random.nextInt(2 * lines - 1);
+            List<RawMaterial> used = new ArrayList<>(productLines);
+            while (used.size() < Math.min(productLines, materialCount)) {
+                RawMaterial rawMaterial = rawMaterials.get(random.nextInt(materialCount));
+                if (!used.contains(rawMaterial)) {
+                    used.add(rawMaterial);
+                    product.getComposition().add(new ProductComposition(compositionId++, product, rawMaterial,
+                            1 + random.nextInt(quantityBound)));
+                }
+            }
+            products.add(product);
+        }
+        return new Catalog(rawMaterials, products);
+    }
+}
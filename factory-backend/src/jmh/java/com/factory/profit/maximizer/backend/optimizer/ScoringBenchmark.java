@@ -0,0 +1,64 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import com.factory.profit.maximizer.backend.CatalogGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-product building blocks of the greedy engine, each over a whole catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoringBenchmark {
+
+    @Param({"1000", "50000"})
+    public int products;
+
+    @Param({"300"})
+    public int materials;
+
+    @Param({"2", "8"})
+    public int density;
+
+    private CatalogSnapshot snapshot;
+    private int[] plan;
+
+    @Setup
+    public void setUp() {
+        CatalogGenerator.Catalog generated = CatalogGenerator.generate(CatalogGenerator.SEED, products, materials, density);
+        snapshot = CatalogSnapshot.of(generated.products(), generated.rawMaterials());
+        plan = new GreedyEngine().solve(snapshot);
+    }
+
+    @Benchmark
+    public long planValue() {
+        long total = 0;
+        for (int p = 0; p < snapshot.productCount(); p++) {
+            total = Math.addExact(total, snapshot.valueOf(p, plan[p]));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void maxProducibleUnits(Blackhole blackhole) {
+        for (int p = 0; p < snapshot.productCount(); p++) {
+            blackhole.consume(GreedyEngine.calculateMaxProducibleUnits(snapshot, p, snapshot.stock));
+        }
+    }
+}
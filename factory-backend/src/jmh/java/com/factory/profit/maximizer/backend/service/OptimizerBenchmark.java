@@ -0,0 +1,95 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.CatalogGenerator;
+import com.factory.profit.maximizer.backend.event.CatalogChangedEvent;
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshot;
+import com.factory.profit.maximizer.backend.optimizer.ExactEngine;
+import com.factory.profit.maximizer.backend.optimizer.GreedyEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProductionOptimizerService} on synthetic catalogs, with the database replaced by an
+ * in-memory loader:
+ * <ul>
+ *     <li>{@code fullRecompute}: a structural write before every call, so the snapshot is rebuilt and solved cold</li>
+ *     <li>{@code stockChange}: one raw material's stock changes before every call</li>
+ *     <li>{@code cachedPlan}: nothing changes, the cached plan is served</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OptimizerBenchmark {
+
+    @Param({"10", "1000", "10000", "50000"})
+    public int products;
+
+    @Param({"300"})
+    public int materials;
+
+    @Param({"4"})
+    public int density;
+
+    @Param({GreedyEngine.NAME, ExactEngine.NAME})
+    public String engine;
+
+    private CatalogSnapshotService catalogSnapshotService;
+    private ProductionOptimizerService optimizerService;
+    private CatalogGenerator.Catalog catalog;
+    private final Random random = new Random(CatalogGenerator.SEED);
+    private long version;
+
+    @Setup
+    public void setUp() {
+        catalog = CatalogGenerator.generate(CatalogGenerator.SEED, products, materials, density);
+        CatalogSnapshotLoader loader = new CatalogSnapshotLoader(null, null, null, new SimpleMeterRegistry()) {
+            @Override
+            public VersionedSnapshot load() {
+                return new VersionedSnapshot(CatalogSnapshot.of(catalog.products(), catalog.rawMaterials()), version);
+            }
+        };
+        catalogSnapshotService = new CatalogSnapshotService(loader);
+        GreedyEngine greedyEngine = new GreedyEngine();
+        optimizerService = new ProductionOptimizerService(catalogSnapshotService,
+                List.of(greedyEngine, new ExactEngine(greedyEngine, 300, 20_000, 1e-4, 0)), new SimpleMeterRegistry(), 4, 1);
+        optimizerService.getProductionPlan(engine);
+    }
+
+    @Benchmark
+    public ProductionOptimizerService.VersionedPlan fullRecompute() {
+        catalogSnapshotService.onCatalogChanged(CatalogChangedEvent.structural(++version));
+        return optimizerService.getProductionPlan(engine);
+    }
+
+    @Benchmark
+    public ProductionOptimizerService.VersionedPlan stockChange() {
+        int material = random.nextInt(catalog.rawMaterials().size());
+        int stock = random.nextInt(catalog.rawMaterials().get(material).getStockQuantity() * 2 + 1);
+        catalogSnapshotService.onCatalogChanged(
+                CatalogChangedEvent.stockChanged(++version, catalog.rawMaterials().get(material).getId(), stock));
+        return optimizerService.getProductionPlan(engine);
+    }
+
+    @Benchmark
+    public ProductionOptimizerService.VersionedPlan cachedPlan() {
+        return optimizerService.getProductionPlan(engine);
+    }
+}
@@ -0,0 +1,106 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.BackendApplication;
+import com.factory.profit.maximizer.backend.CatalogGenerator;
+import com.factory.profit.maximizer.backend.dto.ProductCompositionDto;
+import com.factory.profit.maximizer.backend.dto.ProductDto;
+import com.factory.profit.maximizer.backend.dto.RawMaterialDto;
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProductService} writes against the embedded H2 database, with the full Spring context.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    private static final int CATALOG_SIZE = 1_000;
+
+    @Param({"4", "16"})
+    public int density;
+
+    @Param({"300"})
+    public int materials;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private List<ProductDto> products;
+    private Long updatedProductId;
+    private int sequence;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(BackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .run("--logging.level.root=WARN");
+        productService = context.getBean(ProductService.class);
+        RawMaterialService rawMaterialService = context.getBean(RawMaterialService.class);
+
+        CatalogGenerator.Catalog catalog = CatalogGenerator.generate(CatalogGenerator.SEED, CATALOG_SIZE, materials, density);
+        Map<String, Long> materialIds = new HashMap<>();
+        for (RawMaterial rawMaterial : catalog.rawMaterials()) {
+            RawMaterial saved = rawMaterialService.save(
+                    new RawMaterialDto(rawMaterial.getCode(), rawMaterial.getName(), rawMaterial.getStockQuantity()));
+            materialIds.put(saved.getCode(), saved.getId());
+        }
+        products = catalog.products().stream().map(product -> toDto(product, materialIds)).toList();
+        updatedProductId = productService.save(products.get(0)).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Product save() {
+        ProductDto template = products.get(sequence % products.size());
+        ProductDto product = new ProductDto("BENCH-" + sequence++, template.getName(), template.getValue(), template.getComposition());
+        return productService.save(product);
+    }
+
+    @Benchmark
+    public Product update() {
+        ProductDto template = products.get(sequence++ % products.size());
+        ProductDto product = new ProductDto(products.get(0).getCode(), template.getName(), template.getValue(), template.getComposition());
+        return productService.update(updatedProductId, product);
+    }
+
+    private static ProductDto toDto(Product product, Map<String, Long> materialIds) {
+        Set<ProductCompositionDto> composition = new HashSet<>();
+        for (ProductComposition component : product.getComposition()) {
+            composition.add(new ProductCompositionDto(materialIds.get(component.getRawMaterial().getCode()), component.getQuantity()));
+        }
+        return new ProductDto(product.getCode(), product.getName(), product.getValue(), composition);
+    }
+}
@@ -0,0 +1,71 @@
+package com.factory.profit.maximizer.backend.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate second-level cache for the catalog entities, held in bounded Caffeine caches. The regions
+ * are read-write: a transaction that changes a cached row locks its entry until it commits, so no
+ * reader caches a version that is about to be replaced. Hit, miss, put and eviction counts of every
+ * region are published as {@code cache.*} metrics tagged with the region name.
+ */
+@Configuration
+public class CatalogCacheConfig {
+
+    public static final String PRODUCTS = "catalog.products";
+    public static final String PRODUCT_COMPOSITIONS = "catalog.products.composition";
+    public static final String COMPOSITION_LINES = "catalog.product-compositions";
+    public static final String RAW_MATERIALS = "catalog.raw-materials";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager catalogCacheManager(@Value("${catalog.cache.products.max-size:25000}") long maxProducts,
+                                            @Value("${catalog.cache.composition-lines.max-size:150000}") long maxCompositionLines,
+                                            @Value("${catalog.cache.raw-materials.max-size:10000}") long maxRawMaterials,
+                                            @Value("${catalog.cache.expire-after-write-ms:600000}") long expireAfterWriteMillis,
+                                            MeterRegistry meterRegistry) {
+        // A manager of its own rather than the provider's default one, which every application context
+        // in the JVM would share
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("catalog-" + UUID.randomUUID()), getClass().getClassLoader());
+        Map<String, Long> maxSizes = Map.of(
+                PRODUCTS, maxProducts,
+                PRODUCT_COMPOSITIONS, maxProducts,
+                COMPOSITION_LINES, maxCompositionLines,
+                RAW_MATERIALS, maxRawMaterials);
+        maxSizes.forEach((region, maxSize) -> {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>()
+                    .setMaximumSize(OptionalLong.of(maxSize))
+                    .setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMillis)))
+                    .setStatisticsEnabled(true);
+            JCacheMetrics.monitor(meterRegistry, cacheManager.createCache(region, configuration));
+        });
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer catalogCacheCustomizer(CacheManager catalogCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, catalogCacheManager);
+            // Every cached region is created above with its bounds; never fall back to an unbounded one
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+}
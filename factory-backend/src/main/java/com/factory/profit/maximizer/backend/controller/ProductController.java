@@ -1,14 +1,28 @@
 package com.factory.profit.maximizer.backend.controller;
 
+import com.factory.profit.maximizer.backend.dto.ImportReportDto;
 import com.factory.profit.maximizer.backend.dto.ProductDto;
-import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.dto.ProductPageDto;
+import com.factory.profit.maximizer.backend.dto.ProductViewDto;
+import com.factory.profit.maximizer.backend.importer.ImportFormat;
+import com.factory.profit.maximizer.backend.service.CatalogImportService;
 import com.factory.profit.maximizer.backend.service.ProductService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -17,29 +31,78 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final CatalogImportService catalogImportService;
+    private final ObjectMapper objectMapper;
 
-    @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
-        List<Product> products = productService.findAll();
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @SelectableFields(ProductViewDto.class)
+    public ResponseEntity<List<ProductViewDto>> getAllProducts() {
+        List<ProductViewDto> products = productService.findAll();
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * Keyset pagination by product code: pass the {@code nextCursor} of a page as {@code after} to get
+     * the next one.
+     */
+    @GetMapping(params = "limit", produces = MediaType.APPLICATION_JSON_VALUE)
+    @SelectableFields(ProductViewDto.class)
+    public ResponseEntity<ProductPageDto> getProductPage(@RequestParam(required = false) String after,
+                                                         @RequestParam int limit) {
+        return ResponseEntity.ok(productService.findPage(after, limit));
+    }
+
+    /**
+     * Streams every product as NDJSON, one line per product, written while the rows are being read.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamProducts(@RequestParam(name = FieldSelectionAdvice.FIELDS_PARAMETER, required = false) String fields,
+                               HttpServletResponse response) throws IOException {
+        ObjectWriter writer = (fields == null ? objectMapper.writer()
+                : objectMapper.writer(FieldSelectionAdvice.filters(ProductViewDto.class, fields)))
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            productService.streamAll(product -> {
+                try {
+                    writer.writeValue(generator, product);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        return productService.findById(id)
+    @SelectableFields(ProductViewDto.class)
+    public ResponseEntity<ProductViewDto> getProductById(@PathVariable Long id) {
+        return productService.findViewById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping
-    public ResponseEntity<Product> createProduct(@Valid @RequestBody ProductDto productDto) {
-        Product savedProduct = productService.save(productDto);
+    public ResponseEntity<ProductViewDto> createProduct(@Valid @RequestBody ProductDto productDto) {
+        ProductViewDto savedProduct = ProductViewDto.of(productService.save(productDto));
         return new ResponseEntity<>(savedProduct, HttpStatus.CREATED);
     }
 
+    /**
+     * Creates products from an NDJSON or CSV body and reports which rows were rejected.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_NDJSON_VALUE, ImportFormat.CSV_VALUE})
+    public ResponseEntity<ImportReportDto> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            Reader body) throws IOException {
+        ImportReportDto report = catalogImportService.importProducts(body, ImportFormat.fromContentType(contentType));
+        return ResponseEntity.ok(report);
+    }
+
     @PutMapping("/{id}")
-    public ResponseEntity<Product> updateProduct(@PathVariable Long id, @Valid @RequestBody ProductDto productDto) {
-        Product updatedProduct = productService.update(id, productDto);
+    public ResponseEntity<ProductViewDto> updateProduct(@PathVariable Long id, @Valid @RequestBody ProductDto productDto) {
+        ProductViewDto updatedProduct = ProductViewDto.of(productService.update(id, productDto));
         return ResponseEntity.ok(updatedProduct);
     }
 
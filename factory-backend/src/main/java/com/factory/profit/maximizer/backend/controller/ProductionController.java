@@ -1,22 +1,182 @@
 package com.factory.profit.maximizer.backend.controller;
 
+import com.factory.profit.maximizer.backend.dto.HorizonPlanDto;
+import com.factory.profit.maximizer.backend.dto.HorizonRequestDto;
+import com.factory.profit.maximizer.backend.dto.OptimizationJobDto;
+import com.factory.profit.maximizer.backend.dto.PlanExecutionDto;
 import com.factory.profit.maximizer.backend.dto.ProductionPlanDto;
+import com.factory.profit.maximizer.backend.dto.ScenarioComparisonDto;
+import com.factory.profit.maximizer.backend.dto.ScenarioDto;
+import com.factory.profit.maximizer.backend.dto.SensitivityReportDto;
+import com.factory.profit.maximizer.backend.service.HorizonPlanningService;
+import com.factory.profit.maximizer.backend.service.OptimizationJobService;
+import com.factory.profit.maximizer.backend.service.PlanExecutionService;
+import com.factory.profit.maximizer.backend.service.PlanRefreshService;
 import com.factory.profit.maximizer.backend.service.ProductionOptimizerService;
+import com.factory.profit.maximizer.backend.service.ScenarioService;
+import com.factory.profit.maximizer.backend.service.SensitivityService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
 @RestController
 @RequestMapping("/api/production")
 @RequiredArgsConstructor
 public class ProductionController {
 
+    private static final String CATALOG_VERSION_HEADER = "X-Catalog-Version";
+    private static final String PLAN_STALENESS_HEADER = "X-Plan-Staleness-Ms";
+
     private final ProductionOptimizerService optimizerService;
+    private final ScenarioService scenarioService;
+    private final OptimizationJobService optimizationJobService;
+    private final PlanExecutionService planExecutionService;
+    private final SensitivityService sensitivityService;
+    private final PlanRefreshService planRefreshService;
+    private final HorizonPlanningService horizonPlanningService;
 
+    /**
+     * The plan is tagged with the engine and the catalog version it was computed from. Engines that are
+     * replanned in the background answer with their last materialized plan right away, even if catalog
+     * writes are still waiting to be planned; {@code X-Catalog-Version} is the latest committed version
+     * and {@code X-Plan-Staleness-Ms} how long the plan has lagged behind it. {@code fresh=true} waits
+     * for a plan of the latest version instead. A client that already holds the plan it would get
+     * receives a 304 without any computation.
+     */
     @GetMapping("/optimize")
-    public ResponseEntity<ProductionPlanDto> getOptimalProductionPlan() {
-        return ResponseEntity.ok(optimizerService.calculateOptimalProductionPlan());
+    public ResponseEntity<ProductionPlanDto> getOptimalProductionPlan(
+            @RequestParam(defaultValue = "greedy") String engine,
+            @RequestParam(defaultValue = "false") boolean fresh,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (!fresh) {
+            Optional<PlanRefreshService.MaterializedPlan> materialized = planRefreshService.materializedPlan(engine);
+            if (materialized.isPresent()) {
+                PlanRefreshService.MaterializedPlan plan = materialized.get();
+                return planResponse(engine, plan.plan(), plan.latestVersion(), plan.staleMillis(), ifNoneMatch);
+            }
+        }
+
+        OptionalLong catalogVersion = optimizerService.currentCatalogVersion(engine);
+        if (ifNoneMatch != null && catalogVersion.isPresent() && matches(ifNoneMatch, eTag(engine, catalogVersion.getAsLong()))) {
+            return notModified(eTag(engine, catalogVersion.getAsLong()), catalogVersion.getAsLong(), 0);
+        }
+
+        ProductionOptimizerService.VersionedPlan plan = optimizerService.getProductionPlan(engine);
+        return planResponse(engine, plan, plan.catalogVersion(), 0, null);
+    }
+
+    /**
+     * Plans each scenario on the current catalog with its stock overrides applied and ranks them by
+     * total profit. Nothing is written to the database.
+     */
+    @PostMapping("/scenarios")
+    public ResponseEntity<ScenarioComparisonDto> evaluateScenarios(
+            @RequestParam(defaultValue = "greedy") String engine,
+            @RequestParam(defaultValue = "false") boolean includePlans,
+            @RequestBody List<ScenarioDto> scenarios) {
+        return ResponseEntity.ok(scenarioService.evaluate(engine, scenarios, includePlans));
+    }
+
+    /**
+     * Shadow price and stock range of every raw material and reduced cost of every product, all read
+     * from one solve of the linear relaxation.
+     */
+    @GetMapping("/sensitivity")
+    public ResponseEntity<SensitivityReportDto> getSensitivity() {
+        return ResponseEntity.ok(sensitivityService.analyze());
+    }
+
+    /**
+     * Plans each period of the horizon from the current stock plus the scheduled replenishments, carrying
+     * over what a period leaves. Nothing is written to the database.
+     */
+    @PostMapping("/horizon")
+    public ResponseEntity<HorizonPlanDto> planHorizon(
+            @RequestParam(defaultValue = "greedy") String engine,
+            @RequestBody HorizonRequestDto request) {
+        return ResponseEntity.ok(horizonPlanningService.plan(engine, request));
+    }
+
+    /**
+     * Starts an optimization in the background; poll the returned location for progress.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<OptimizationJobDto> submitJob(
+            @RequestParam(defaultValue = "exact") String engine,
+            @RequestParam(required = false) Long timeBudgetMs) {
+        OptimizationJobDto job = optimizationJobService.submit(engine, timeBudgetMs);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/production/jobs/" + job.id()))
+                .body(job);
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<OptimizationJobDto> getJob(@PathVariable String id,
+                                                     @RequestParam(defaultValue = "true") boolean includePlan) {
+        return ResponseEntity.ok(optimizationJobService.get(id, includePlan));
+    }
+
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<OptimizationJobDto> cancelJob(@PathVariable String id) {
+        return ResponseEntity.ok(optimizationJobService.cancel(id));
+    }
+
+    /**
+     * Deducts the raw materials the plan consumes, all or nothing; a 409 means the stock no longer
+     * covers the plan and nothing was deducted.
+     */
+    @PostMapping("/execute")
+    public ResponseEntity<PlanExecutionDto> executePlan(@RequestBody ProductionPlanDto plan) {
+        return ResponseEntity.ok(planExecutionService.execute(plan));
+    }
+
+    private static ResponseEntity<ProductionPlanDto> planResponse(String engine,
+                                                                  ProductionOptimizerService.VersionedPlan plan,
+                                                                  long latestVersion, long staleMillis,
+                                                                  String ifNoneMatch) {
+        ETag eTag = eTag(engine, plan.catalogVersion());
+        if (ifNoneMatch != null && matches(ifNoneMatch, eTag)) {
+            return notModified(eTag, latestVersion, staleMillis);
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag.formattedTag())
+                .cacheControl(CacheControl.noCache())
+                .header(CATALOG_VERSION_HEADER, Long.toString(latestVersion))
+                .header(PLAN_STALENESS_HEADER, Long.toString(staleMillis))
+                .body(plan.plan());
+    }
+
+    private static ResponseEntity<ProductionPlanDto> notModified(ETag eTag, long latestVersion, long staleMillis) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag.formattedTag())
+                .cacheControl(CacheControl.noCache())
+                .header(CATALOG_VERSION_HEADER, Long.toString(latestVersion))
+                .header(PLAN_STALENESS_HEADER, Long.toString(staleMillis))
+                .build();
+    }
+
+    private static boolean matches(String ifNoneMatch, ETag current) {
+        return ETag.parse(ifNoneMatch).stream().anyMatch(tag -> tag.isWildcard() || tag.compare(current, false));
+    }
+
+    private static ETag eTag(String engine, long catalogVersion) {
+        return new ETag(engine + "-" + catalogVersion, false);
     }
-}
\ No newline at end of file
+}
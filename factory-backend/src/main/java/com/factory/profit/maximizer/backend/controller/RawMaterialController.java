@@ -1,14 +1,25 @@
 package com.factory.profit.maximizer.backend.controller;
 
+import com.factory.profit.maximizer.backend.dto.ImportReportDto;
+import com.factory.profit.maximizer.backend.dto.MaterialImpactDto;
 import com.factory.profit.maximizer.backend.dto.RawMaterialDto;
-import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.dto.RawMaterialViewDto;
+import com.factory.profit.maximizer.backend.dto.StockBalanceDto;
+import com.factory.profit.maximizer.backend.importer.ImportFormat;
+import com.factory.profit.maximizer.backend.service.CatalogImportService;
+import com.factory.profit.maximizer.backend.service.MaterialImpactService;
 import com.factory.profit.maximizer.backend.service.RawMaterialService;
+import com.factory.profit.maximizer.backend.service.StockLedgerService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
 
 @RestController
@@ -17,29 +28,62 @@ import java.util.List;
 public class RawMaterialController {
 
     private final RawMaterialService rawMaterialService;
+    private final CatalogImportService catalogImportService;
+    private final StockLedgerService stockLedgerService;
+    private final MaterialImpactService materialImpactService;
 
     @GetMapping
-    public ResponseEntity<List<RawMaterial>> getAllRawMaterials() {
-        List<RawMaterial> rawMaterials = rawMaterialService.findAll();
+    @SelectableFields(RawMaterialViewDto.class)
+    public ResponseEntity<List<RawMaterialViewDto>> getAllRawMaterials() {
+        List<RawMaterialViewDto> rawMaterials = rawMaterialService.findAll();
         return ResponseEntity.ok(rawMaterials);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<RawMaterial> getRawMaterialById(@PathVariable Long id) {
-        return rawMaterialService.findById(id)
+    @SelectableFields(RawMaterialViewDto.class)
+    public ResponseEntity<RawMaterialViewDto> getRawMaterialById(@PathVariable Long id) {
+        return rawMaterialService.findViewById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Stored stock plus the stock movements not flushed to it yet.
+     */
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<StockBalanceDto> getStockBalance(@PathVariable Long id) {
+        return ResponseEntity.ok(stockLedgerService.balance(id));
+    }
+
+    /**
+     * The products that use the raw material and how much of the engine's production plan depends on it.
+     */
+    @GetMapping("/{id}/consumers")
+    public ResponseEntity<MaterialImpactDto> getConsumers(@PathVariable Long id,
+                                                          @RequestParam(defaultValue = "greedy") String engine) {
+        return ResponseEntity.ok(materialImpactService.impact(id, engine));
+    }
+
     @PostMapping
-    public ResponseEntity<RawMaterial> createRawMaterial(@Valid @RequestBody RawMaterialDto rawMaterialDto) {
-        RawMaterial savedRawMaterial = rawMaterialService.save(rawMaterialDto);
+    public ResponseEntity<RawMaterialViewDto> createRawMaterial(@Valid @RequestBody RawMaterialDto rawMaterialDto) {
+        RawMaterialViewDto savedRawMaterial = RawMaterialViewDto.of(rawMaterialService.save(rawMaterialDto));
         return new ResponseEntity<>(savedRawMaterial, HttpStatus.CREATED);
     }
 
+    /**
+     * Creates raw materials from an NDJSON or CSV body and reports which rows were rejected.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_NDJSON_VALUE, ImportFormat.CSV_VALUE})
+    public ResponseEntity<ImportReportDto> importRawMaterials(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            Reader body) throws IOException {
+        ImportReportDto report = catalogImportService.importRawMaterials(body, ImportFormat.fromContentType(contentType));
+        return ResponseEntity.ok(report);
+    }
+
     @PutMapping("/{id}")
-    public ResponseEntity<RawMaterial> updateRawMaterial(@PathVariable Long id, @Valid @RequestBody RawMaterialDto rawMaterialDto) {
-        RawMaterial updatedRawMaterial = rawMaterialService.update(id, rawMaterialDto);
+    public ResponseEntity<RawMaterialViewDto> updateRawMaterial(@PathVariable Long id, @Valid @RequestBody RawMaterialDto rawMaterialDto) {
+        RawMaterialViewDto updatedRawMaterial = RawMaterialViewDto.of(rawMaterialService.update(id, rawMaterialDto));
         return ResponseEntity.ok(updatedRawMaterial);
     }
 
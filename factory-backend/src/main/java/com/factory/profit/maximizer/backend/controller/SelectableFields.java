@@ -0,0 +1,17 @@
+package com.factory.profit.maximizer.backend.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lets the client of an endpoint choose which fields of the read model {@link #value()} are written,
+ * e.g. {@code ?fields=id,code,name}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SelectableFields {
+
+    Class<? extends Record> value();
+}
@@ -0,0 +1,40 @@
+package com.factory.profit.maximizer.backend.controller;
+
+import com.factory.profit.maximizer.backend.dto.StockMovementDto;
+import com.factory.profit.maximizer.backend.dto.StockMovementPageDto;
+import com.factory.profit.maximizer.backend.dto.StockMovementReportDto;
+import com.factory.profit.maximizer.backend.service.StockLedgerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stock-movements")
+@RequiredArgsConstructor
+public class StockMovementController {
+
+    private final StockLedgerService stockLedgerService;
+
+    @PostMapping
+    public ResponseEntity<StockMovementReportDto> recordMovements(@RequestBody List<StockMovementDto> movements) {
+        return ResponseEntity.ok(stockLedgerService.record(movements));
+    }
+
+    /**
+     * Keyset pagination by movement id: pass the {@code nextCursor} of a page as {@code after} to get
+     * the next one.
+     */
+    @GetMapping
+    public ResponseEntity<StockMovementPageDto> getMovementPage(@RequestParam Long rawMaterialId,
+                                                                @RequestParam(defaultValue = "0") long after,
+                                                                @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(stockLedgerService.findPage(rawMaterialId, after, limit));
+    }
+}
@@ -0,0 +1,8 @@
+package com.factory.profit.maximizer.backend.dto;
+
+public record CompositionViewDto(
+        Long rawMaterialId,
+        String rawMaterialCode,
+        int quantity
+) {
+}
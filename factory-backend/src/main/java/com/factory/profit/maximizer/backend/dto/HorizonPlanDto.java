@@ -0,0 +1,16 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Production plan of each period of a horizon, in period order, all computed from the same catalog version.
+ */
+public record HorizonPlanDto(
+        String engine,
+        long catalogVersion,
+        int window,
+        BigDecimal totalProfit,
+        List<PeriodPlanDto> periods
+) {
+}
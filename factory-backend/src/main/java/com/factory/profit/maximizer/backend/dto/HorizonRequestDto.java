@@ -0,0 +1,24 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Horizon to plan: the number of periods, how many periods each rolling window looks ahead (including
+ * its own; the configured default when {@code null}) and the scheduled replenishments.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HorizonRequestDto {
+
+    private Integer periods;
+
+    private Integer window;
+
+    private List<ReplenishmentDto> replenishments = new ArrayList<>();
+}
@@ -0,0 +1,8 @@
+package com.factory.profit.maximizer.backend.dto;
+
+public record ImportErrorDto(
+        long row,
+        String code,
+        String message
+) {
+}
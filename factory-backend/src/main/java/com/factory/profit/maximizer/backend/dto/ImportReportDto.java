@@ -0,0 +1,11 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import java.util.List;
+
+public record ImportReportDto(
+        long rowsRead,
+        long imported,
+        long failed,
+        List<ImportErrorDto> errors
+) {
+}
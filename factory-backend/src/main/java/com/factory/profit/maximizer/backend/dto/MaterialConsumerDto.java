@@ -0,0 +1,21 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * A product that uses the raw material. {@code unitsFromStock} is how many units the stock of this
+ * material alone allows, {@code unitsSupported} how many the stock of all the product's materials
+ * allows, and {@code plannedUnits} how many the production plan makes.
+ */
+public record MaterialConsumerDto(
+        Long productId,
+        String productCode,
+        String productName,
+        BigDecimal unitValue,
+        int quantityPerUnit,
+        int unitsFromStock,
+        int unitsSupported,
+        int plannedUnits,
+        long plannedConsumption
+) {
+}
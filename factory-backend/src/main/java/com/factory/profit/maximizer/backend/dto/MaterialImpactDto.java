@@ -0,0 +1,22 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Who consumes a raw material and how much of the production plan of {@code engine}, computed at
+ * {@code planCatalogVersion}, depends on it: the units of the material the plan uses and the value of
+ * the planned products that need it.
+ */
+public record MaterialImpactDto(
+        Long rawMaterialId,
+        String rawMaterialCode,
+        int stockQuantity,
+        String engine,
+        long planCatalogVersion,
+        long plannedConsumption,
+        BigDecimal dependentProfit,
+        BigDecimal totalProfit,
+        List<MaterialConsumerDto> consumers
+) {
+}
@@ -0,0 +1,18 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * {@code shadowPrice} is what one more unit of the raw material adds to the total profit of the
+ * linear relaxation; it holds while the stock stays within {@code allowableDecrease} below and
+ * {@code allowableIncrease} above its current level ({@code null} for no limit).
+ */
+public record MaterialSensitivityDto(
+        Long rawMaterialId,
+        int stockQuantity,
+        BigDecimal usedQuantity,
+        BigDecimal shadowPrice,
+        BigDecimal allowableIncrease,
+        BigDecimal allowableDecrease
+) {
+}
@@ -0,0 +1,29 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * State of an asynchronous optimization job. While the job runs, {@code productionPlan} is the best
+ * plan found so far and {@code upperBound} the most any plan could earn, when the engine proves one.
+ */
+public record OptimizationJobDto(
+        String id,
+        String engine,
+        Status status,
+        long catalogVersion,
+        long timeBudgetMillis,
+        long elapsedMillis,
+        long nodesExplored,
+        BigDecimal upperBound,
+        String error,
+        ProductionPlanDto productionPlan
+) {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED;
+
+        public boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.factory.profit.maximizer.backend.dto;
+
+public record PeriodPlanDto(
+        int period,
+        ProductionPlanDto plan
+) {
+}
@@ -0,0 +1,13 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import java.util.List;
+
+/**
+ * Stock deducted for an executed production plan, ordered by raw material id, and the catalog
+ * version the deduction produced.
+ */
+public record PlanExecutionDto(
+        long catalogVersion,
+        List<StockDeductionDto> deductions
+) {
+}
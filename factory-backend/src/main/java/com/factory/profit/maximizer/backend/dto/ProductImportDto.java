@@ -0,0 +1,27 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One product of a bulk import. Unlike {@link ProductDto}, the composition refers to raw materials
+ * by code, so that a file can be prepared without knowing database ids.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportDto {
+
+    private String code;
+
+    private String name;
+
+    private BigDecimal value;
+
+    private List<ProductImportLineDto> composition = new ArrayList<>();
+}
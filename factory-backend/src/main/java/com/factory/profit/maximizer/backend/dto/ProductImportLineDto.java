@@ -0,0 +1,15 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportLineDto {
+
+    private String rawMaterialCode;
+
+    private Integer quantity;
+}
@@ -0,0 +1,13 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import java.util.List;
+
+/**
+ * One page of products ordered by code. {@code nextCursor} is the code to pass as {@code after} for
+ * the next page, or {@code null} on the last page.
+ */
+public record ProductPageDto(
+        List<ProductViewDto> items,
+        String nextCursor
+) {
+}
@@ -0,0 +1,17 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * {@code reducedCost} is the unit value minus the shadow prices of the materials one unit consumes:
+ * zero for products the relaxation produces, and how much more a unit would have to be worth to be
+ * produced otherwise.
+ */
+public record ProductSensitivityDto(
+        String productCode,
+        String productName,
+        BigDecimal unitValue,
+        BigDecimal relaxedQuantity,
+        BigDecimal reducedCost
+) {
+}
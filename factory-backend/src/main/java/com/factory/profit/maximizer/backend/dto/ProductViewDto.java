@@ -0,0 +1,31 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import com.factory.profit.maximizer.backend.config.JacksonConfig;
+import com.factory.profit.maximizer.backend.model.Product;
+import com.fasterxml.jackson.annotation.JsonFilter;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+
+@JsonFilter(JacksonConfig.FIELDS_FILTER)
+public record ProductViewDto(
+        Long id,
+        String code,
+        String name,
+        BigDecimal value,
+        List<CompositionViewDto> composition
+) {
+
+    /**
+     * The view of a product just written, with its composition in the order the listing queries use.
+     */
+    public static ProductViewDto of(Product product) {
+        List<CompositionViewDto> composition = product.getComposition().stream()
+                .map(line -> new CompositionViewDto(line.getRawMaterial().getId(), line.getRawMaterial().getCode(),
+                        line.getQuantity()))
+                .sorted(Comparator.comparing(CompositionViewDto::rawMaterialCode))
+                .toList();
+        return new ProductViewDto(product.getId(), product.getCode(), product.getName(), product.getValue(), composition);
+    }
+}
@@ -21,4 +21,11 @@ public class RawMaterialDto {
     @NotNull(message = "Stock quantity cannot be null")
     @PositiveOrZero(message = "Stock quantity must be zero or positive")
     private Integer stockQuantity;
+
+    /** Version the client last read; when present, an update is rejected if the material changed since. */
+    private Long version;
+
+    public RawMaterialDto(String code, String name, Integer stockQuantity) {
+        this(code, name, stockQuantity, null);
+    }
 }
@@ -0,0 +1,20 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import com.factory.profit.maximizer.backend.config.JacksonConfig;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.fasterxml.jackson.annotation.JsonFilter;
+
+@JsonFilter(JacksonConfig.FIELDS_FILTER)
+public record RawMaterialViewDto(
+        Long id,
+        String code,
+        String name,
+        int stockQuantity,
+        Long version
+) {
+
+    public static RawMaterialViewDto of(RawMaterial rawMaterial) {
+        return new RawMaterialViewDto(rawMaterial.getId(), rawMaterial.getCode(), rawMaterial.getName(),
+                rawMaterial.getStockQuantity(), rawMaterial.getVersion());
+    }
+}
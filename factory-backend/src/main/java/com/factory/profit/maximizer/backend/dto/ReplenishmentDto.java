@@ -0,0 +1,20 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Quantity of a raw material that arrives at the start of a period of the horizon, counted from 1.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplenishmentDto {
+
+    private Long rawMaterialId;
+
+    private Integer period;
+
+    private Integer quantity;
+}
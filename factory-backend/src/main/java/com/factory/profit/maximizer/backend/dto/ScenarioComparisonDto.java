@@ -0,0 +1,15 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Scenarios ranked by total profit, best first, all computed from the same catalog version.
+ */
+public record ScenarioComparisonDto(
+        String engine,
+        long catalogVersion,
+        BigDecimal baseProfit,
+        List<ScenarioResultDto> scenarios
+) {
+}
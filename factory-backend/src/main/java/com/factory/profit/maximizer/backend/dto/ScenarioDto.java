@@ -0,0 +1,18 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScenarioDto {
+
+    private String name;
+
+    private List<StockOverrideDto> overrides = new ArrayList<>();
+}
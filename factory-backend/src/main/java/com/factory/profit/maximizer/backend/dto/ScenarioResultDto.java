@@ -0,0 +1,13 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public record ScenarioResultDto(
+        int rank,
+        String name,
+        BigDecimal totalProfit,
+        BigDecimal profitChange,
+        List<OptimizedProductDto> productionPlan
+) {
+}
@@ -0,0 +1,12 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public record SensitivityReportDto(
+        long catalogVersion,
+        BigDecimal relaxedProfit,
+        List<MaterialSensitivityDto> rawMaterials,
+        List<ProductSensitivityDto> products
+) {
+}
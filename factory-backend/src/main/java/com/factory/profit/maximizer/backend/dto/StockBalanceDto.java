@@ -0,0 +1,13 @@
+package com.factory.profit.maximizer.backend.dto;
+
+/**
+ * Current stock of a raw material: the stored quantity the last flush left, plus the deltas
+ * recorded since then.
+ */
+public record StockBalanceDto(
+        Long rawMaterialId,
+        int storedStock,
+        long pendingDelta,
+        long stock
+) {
+}
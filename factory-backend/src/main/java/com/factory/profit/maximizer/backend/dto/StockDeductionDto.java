@@ -0,0 +1,9 @@
+package com.factory.profit.maximizer.backend.dto;
+
+public record StockDeductionDto(
+        Long rawMaterialId,
+        String rawMaterialCode,
+        int deducted,
+        int remainingStock
+) {
+}
@@ -0,0 +1,20 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementDto {
+
+    private Long rawMaterialId;
+
+    /**
+     * Positive for a receipt, negative for a consumption.
+     */
+    private Integer delta;
+
+    private String reason;
+}
@@ -0,0 +1,13 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import java.util.List;
+
+/**
+ * One page of a raw material's ledger in insertion order. {@code nextCursor} is the id to pass as
+ * {@code after} for the next page, or {@code null} on the last page.
+ */
+public record StockMovementPageDto(
+        List<StockMovementViewDto> items,
+        Long nextCursor
+) {
+}
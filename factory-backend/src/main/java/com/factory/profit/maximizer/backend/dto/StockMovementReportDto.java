@@ -0,0 +1,6 @@
+package com.factory.profit.maximizer.backend.dto;
+
+public record StockMovementReportDto(
+        int recorded
+) {
+}
@@ -0,0 +1,17 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import java.time.Instant;
+
+/**
+ * A ledger entry; {@code flushed} tells whether its delta is already part of the raw material's
+ * stored stock quantity.
+ */
+public record StockMovementViewDto(
+        Long id,
+        Long rawMaterialId,
+        int delta,
+        String reason,
+        Instant createdAt,
+        boolean flushed
+) {
+}
@@ -0,0 +1,25 @@
+package com.factory.profit.maximizer.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Changes the stock of one raw material in a scenario. Exactly one of {@code quantity} (new level),
+ * {@code delta} (added to the level) or {@code factor} (multiplies the level) must be set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockOverrideDto {
+
+    private Long rawMaterialId;
+
+    private Integer quantity;
+
+    private Integer delta;
+
+    private BigDecimal factor;
+}
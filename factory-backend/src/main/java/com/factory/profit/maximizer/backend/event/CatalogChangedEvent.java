@@ -0,0 +1,28 @@
+package com.factory.profit.maximizer.backend.event;
+
+import java.util.Map;
+
+/**
+ * Published by the catalog services whenever products, compositions or raw materials are written.
+ * {@code version} is the catalog version the write produced. {@code stockLevels} is set when only
+ * stock quantities changed and holds the new absolute stock per raw material id; it is {@code null}
+ * for any other (structural) change.
+ */
+public record CatalogChangedEvent(long version, Map<Long, Integer> stockLevels) {
+
+    public static CatalogChangedEvent structural(long version) {
+        return new CatalogChangedEvent(version, null);
+    }
+
+    public static CatalogChangedEvent stockChanged(long version, Long rawMaterialId, int stockQuantity) {
+        return new CatalogChangedEvent(version, Map.of(rawMaterialId, stockQuantity));
+    }
+
+    public static CatalogChangedEvent stockChanged(long version, Map<Long, Integer> stockLevels) {
+        return new CatalogChangedEvent(version, Map.copyOf(stockLevels));
+    }
+
+    public boolean isStockOnly() {
+        return stockLevels != null;
+    }
+}
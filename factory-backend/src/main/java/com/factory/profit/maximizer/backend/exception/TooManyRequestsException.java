@@ -0,0 +1,26 @@
+package com.factory.profit.maximizer.backend.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class TooManyRequestsException extends RuntimeException {
+
+    private final Long retryAfterSeconds;
+
+    public TooManyRequestsException(String message) {
+        this(message, null);
+    }
+
+    public TooManyRequestsException(String message, Long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Seconds the client should wait before trying again, sent as {@code Retry-After}; {@code null} if unknown.
+     */
+    public Long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,49 @@
+package com.factory.profit.maximizer.backend.importer;
+
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column positions taken from the header record, matched case-insensitively.
+ */
+final class CsvHeader {
+
+    private final Map<String, Integer> columns;
+
+    private CsvHeader(Map<String, Integer> columns) {
+        this.columns = columns;
+    }
+
+    static CsvHeader read(CsvReader reader, String... required) throws IOException {
+        List<String> header = reader.next();
+        Map<String, Integer> columns = new HashMap<>();
+        if (header != null) {
+            for (int i = 0; i < header.size(); i++) {
+                columns.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+        }
+        for (String column : required) {
+            if (!columns.containsKey(column.toLowerCase(Locale.ROOT))) {
+                throw new BadRequestException("CSV header must contain the column: " + column);
+            }
+        }
+        return new CsvHeader(columns);
+    }
+
+    /**
+     * Trimmed value of the column, or {@code null} if the record has no such column or it is empty.
+     */
+    String get(List<String> record, String column) {
+        Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,31 @@
+package com.factory.profit.maximizer.backend.importer;
+
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+/**
+ * Body formats accepted by the bulk import endpoints.
+ */
+public enum ImportFormat {
+
+    NDJSON,
+    CSV;
+
+    public static final String CSV_VALUE = "text/csv";
+
+    public static ImportFormat fromContentType(String contentType) {
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                return NDJSON;
+            }
+            if (mediaType.isCompatibleWith(MediaType.parseMediaType(CSV_VALUE))) {
+                return CSV;
+            }
+        } catch (InvalidMediaTypeException e) {
+            // Reported below like any other unsupported type
+        }
+        throw new BadRequestException("Unsupported import format: " + contentType);
+    }
+}
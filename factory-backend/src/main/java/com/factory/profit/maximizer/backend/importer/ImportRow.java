@@ -0,0 +1,20 @@
+package com.factory.profit.maximizer.backend.importer;
+
+/**
+ * One record of an import body: the parsed value, or the reason it could not be parsed.
+ * {@code row} is the line the record starts on.
+ */
+public record ImportRow<T>(long row, String code, T value, String error) {
+
+    public static <T> ImportRow<T> parsed(long row, String code, T value) {
+        return new ImportRow<>(row, code, value, null);
+    }
+
+    public static <T> ImportRow<T> failed(long row, String code, String error) {
+        return new ImportRow<>(row, code, null, error);
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+}
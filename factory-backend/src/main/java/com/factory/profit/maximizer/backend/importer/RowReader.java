@@ -0,0 +1,14 @@
+package com.factory.profit.maximizer.backend.importer;
+
+import java.io.IOException;
+
+/**
+ * Reads an import body one record at a time, so that it never has to be held in memory as a whole.
+ */
+public interface RowReader<T> {
+
+    /**
+     * Returns the next record, or {@code null} at the end of the body.
+     */
+    ImportRow<T> next() throws IOException;
+}
@@ -0,0 +1,181 @@
+package com.factory.profit.maximizer.backend.importer;
+
+import com.factory.profit.maximizer.backend.dto.ProductImportDto;
+import com.factory.profit.maximizer.backend.dto.ProductImportLineDto;
+import com.factory.profit.maximizer.backend.dto.RawMaterialDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Row readers for the bulk import formats.
+ * <ul>
+ *     <li>NDJSON: one JSON object per line, shaped like {@link RawMaterialDto} or {@link ProductImportDto}.</li>
+ *     <li>CSV, raw materials: header {@code code,name,stockQuantity}.</li>
+ *     <li>CSV, products: header {@code code,name,value,rawMaterialCode,quantity}, one record per composition
+ *     line. Consecutive records with the same product code make up one product.</li>
+ * </ul>
+ */
+public final class RowReaders {
+
+    private RowReaders() {
+    }
+
+    public static RowReader<RawMaterialDto> rawMaterials(Reader body, ImportFormat format, ObjectMapper objectMapper) throws IOException {
+        if (format == ImportFormat.NDJSON) {
+            return new NdjsonRowReader<>(body, objectMapper.readerFor(RawMaterialDto.class), RawMaterialDto::getCode);
+        }
+        CsvReader csv = new CsvReader(body);
+        CsvHeader header = CsvHeader.read(csv, "code", "name", "stockQuantity");
+        return () -> {
+            List<String> record = nextRecord(csv);
+            if (record == null) {
+                return null;
+            }
+            String code = header.get(record, "code");
+            try {
+                return ImportRow.parsed(csv.recordLine(), code, new RawMaterialDto(code, header.get(record, "name"),
+                        parseInteger(header.get(record, "stockQuantity"), "Stock quantity")));
+            } catch (IllegalArgumentException e) {
+                return ImportRow.failed(csv.recordLine(), code, e.getMessage());
+            }
+        };
+    }
+
+    public static RowReader<ProductImportDto> products(Reader body, ImportFormat format, ObjectMapper objectMapper) throws IOException {
+        if (format == ImportFormat.NDJSON) {
+            return new NdjsonRowReader<>(body, objectMapper.readerFor(ProductImportDto.class), ProductImportDto::getCode);
+        }
+        CsvReader csv = new CsvReader(body);
+        CsvHeader header = CsvHeader.read(csv, "code", "name", "value", "rawMaterialCode", "quantity");
+        return new ProductCsvRowReader(csv, header);
+    }
+
+    private static List<String> nextRecord(CsvReader csv) throws IOException {
+        List<String> record;
+        do {
+            record = csv.next();
+        } while (record != null && CsvReader.isBlank(record));
+        return record;
+    }
+
+    private static Integer parseInteger(String value, String field) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a whole number: " + value);
+        }
+    }
+
+    private static BigDecimal parseDecimal(String value, String field) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a number: " + value);
+        }
+    }
+
+    private static final class NdjsonRowReader<T> implements RowReader<T> {
+
+        private final BufferedReader reader;
+        private final ObjectReader objectReader;
+        private final Function<T, String> codeOf;
+        private long line;
+
+        NdjsonRowReader(Reader body, ObjectReader objectReader, Function<T, String> codeOf) {
+            this.reader = new BufferedReader(body);
+            this.objectReader = objectReader;
+            this.codeOf = codeOf;
+        }
+
+        @Override
+        public ImportRow<T> next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+            } while (text != null && text.isBlank());
+            if (text == null) {
+                return null;
+            }
+            try {
+                T value = objectReader.readValue(text);
+                if (value == null) {
+                    // A line holding the JSON literal null
+                    return ImportRow.failed(line, null, "Expected a JSON object");
+                }
+                return ImportRow.parsed(line, codeOf.apply(value), value);
+            } catch (JsonProcessingException e) {
+                return ImportRow.failed(line, null, "Malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    /**
+     * Groups consecutive records with the same product code, so it always reads one record ahead.
+     */
+    private static final class ProductCsvRowReader implements RowReader<ProductImportDto> {
+
+        private final CsvReader csv;
+        private final CsvHeader header;
+        private List<String> pending;
+        private long pendingLine;
+
+        ProductCsvRowReader(CsvReader csv, CsvHeader header) {
+            this.csv = csv;
+            this.header = header;
+        }
+
+        @Override
+        public ImportRow<ProductImportDto> next() throws IOException {
+            if (pending == null) {
+                pending = nextRecord(csv);
+                pendingLine = csv.recordLine();
+            }
+            if (pending == null) {
+                return null;
+            }
+            long row = pendingLine;
+            String code = header.get(pending, "code");
+            ProductImportDto product = new ProductImportDto();
+            product.setCode(code);
+            product.setName(header.get(pending, "name"));
+            String error = null;
+            try {
+                product.setValue(parseDecimal(header.get(pending, "value"), "Value"));
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+            }
+
+            do {
+                String rawMaterialCode = header.get(pending, "rawMaterialCode");
+                String quantity = header.get(pending, "quantity");
+                if (rawMaterialCode != null || quantity != null) {
+                    try {
+                        product.getComposition().add(new ProductImportLineDto(rawMaterialCode, parseInteger(quantity, "Quantity")));
+                    } catch (IllegalArgumentException e) {
+                        error = error == null ? "Line " + pendingLine + ": " + e.getMessage() : error;
+                    }
+                }
+                pending = nextRecord(csv);
+                pendingLine = csv.recordLine();
+            } while (pending != null && code != null && Objects.equals(code, header.get(pending, "code")));
+
+            return error == null ? ImportRow.parsed(row, code, product) : ImportRow.failed(row, code, error);
+        }
+    }
+}
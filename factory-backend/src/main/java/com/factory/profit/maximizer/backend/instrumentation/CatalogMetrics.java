@@ -0,0 +1,50 @@
+package com.factory.profit.maximizer.backend.instrumentation;
+
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshot;
+import com.factory.profit.maximizer.backend.service.CatalogSnapshotService;
+import com.factory.profit.maximizer.backend.service.VersionedSnapshot;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Size and shape of the catalog the optimizer works on, read from the cached snapshot so that a
+ * scrape never touches the database. The gauges report NaN while no snapshot is cached.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogMetrics implements MeterBinder {
+
+    private final CatalogSnapshotService catalogSnapshotService;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "catalog.products", "Products in the cached catalog snapshot",
+                CatalogSnapshot::productCount);
+        gauge(registry, "catalog.raw.materials", "Raw materials in the cached catalog snapshot",
+                CatalogSnapshot::materialCount);
+        gauge(registry, "catalog.composition.lines", "Composition lines in the cached catalog snapshot",
+                CatalogSnapshot::compositionLineCount);
+        gauge(registry, "catalog.composition.density", "Share of product/raw material pairs with a composition line",
+                snapshot -> snapshot.productCount() == 0 || snapshot.materialCount() == 0
+                        ? 0
+                        : (double) snapshot.compositionLineCount() / ((double) snapshot.productCount() * snapshot.materialCount()));
+        Gauge.builder("catalog.version", catalogSnapshotService,
+                        service -> service.latestVersion().isPresent() ? service.latestVersion().getAsLong() : Double.NaN)
+                .description("Latest committed catalog version")
+                .register(registry);
+    }
+
+    private void gauge(MeterRegistry registry, String name, String description, ToDoubleFunction<CatalogSnapshot> value) {
+        Gauge.builder(name, catalogSnapshotService, service -> {
+                    VersionedSnapshot cached = service.cachedSnapshot();
+                    return cached == null ? Double.NaN : value.applyAsDouble(cached.snapshot());
+                })
+                .description(description)
+                .register(registry);
+    }
+}
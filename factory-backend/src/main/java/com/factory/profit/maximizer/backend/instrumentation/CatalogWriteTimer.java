@@ -0,0 +1,42 @@
+package com.factory.profit.maximizer.backend.instrumentation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Times catalog writes into {@code catalog.write}, tagged with the entity, the operation and whether
+ * the transaction committed. The sample runs until the surrounding transaction completes, so the
+ * flush and commit, where most of the write happens, are part of it.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogWriteTimer {
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Starts timing a write; must be called inside the transaction doing it, otherwise nothing is recorded.
+     */
+    public void start(String entity, String operation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                sample.stop(Timer.builder("catalog.write")
+                        .description("Catalog writes, from the service call until the transaction completes")
+                        .tag("entity", entity)
+                        .tag("operation", operation)
+                        .tag("outcome", status == STATUS_COMMITTED ? "committed" : "rolled_back")
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            }
+        });
+    }
+}
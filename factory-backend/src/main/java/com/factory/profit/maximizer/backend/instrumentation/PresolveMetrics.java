@@ -0,0 +1,43 @@
+package com.factory.profit.maximizer.backend.instrumentation;
+
+import com.factory.profit.maximizer.backend.optimizer.ExactEngine;
+import com.factory.profit.maximizer.backend.optimizer.PresolveReport;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Size of the catalog the exact engine searched after its last presolve, next to the
+ * {@code catalog.*} gauges of the full catalog. The gauges report NaN until the engine has run.
+ */
+@Component
+@RequiredArgsConstructor
+public class PresolveMetrics implements MeterBinder {
+
+    private final ExactEngine exactEngine;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "optimizer.presolve.products", "Products left after the last presolve",
+                PresolveReport::remainingProducts);
+        gauge(registry, "optimizer.presolve.raw.materials", "Raw material constraints left after the last presolve",
+                PresolveReport::remainingMaterials);
+        gauge(registry, "optimizer.presolve.composition.lines", "Composition lines left after the last presolve",
+                PresolveReport::remainingCompositionLines);
+        gauge(registry, "optimizer.presolve.dominated.products", "Products the last presolve removed as dominated",
+                PresolveReport::dominatedProducts);
+    }
+
+    private void gauge(MeterRegistry registry, String name, String description, ToDoubleFunction<PresolveReport> value) {
+        Gauge.builder(name, exactEngine, engine -> {
+                    PresolveReport report = engine.lastPresolveReport();
+                    return report == null ? Double.NaN : value.applyAsDouble(report);
+                })
+                .description(description)
+                .register(registry);
+    }
+}
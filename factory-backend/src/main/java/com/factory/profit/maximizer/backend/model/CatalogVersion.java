@@ -0,0 +1,29 @@
+package com.factory.profit.maximizer.backend.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Single-row counter that every catalog write increments inside its own transaction. Because all
+ * writers update the same row, versions are handed out in commit order without gaps.
+ */
+@Entity
+@Table(name = "catalog_version")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogVersion {
+
+    public static final Long ID = 1L;
+
+    @Id
+    private Long id;
+
+    private long version;
+}
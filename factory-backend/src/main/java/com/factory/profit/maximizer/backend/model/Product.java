@@ -1,10 +1,13 @@
 package com.factory.profit.maximizer.backend.model;
 
+import com.factory.profit.maximizer.backend.config.CatalogCacheConfig;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.util.HashSet;
@@ -13,6 +16,7 @@ import java.util.Set;
 
 @Entity
 @Table(name = "products")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CatalogCacheConfig.PRODUCTS)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -20,7 +24,8 @@ import java.util.Set;
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 500)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -32,6 +37,7 @@ public class Product {
     @Column(nullable = false)
     private BigDecimal value;
 
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CatalogCacheConfig.PRODUCT_COMPOSITIONS)
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
     private Set<ProductComposition> composition = new HashSet<>();
 
@@ -1,15 +1,21 @@
 package com.factory.profit.maximizer.backend.model;
 
+import com.factory.profit.maximizer.backend.config.CatalogCacheConfig;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "product_compositions", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"product_id", "raw_material_id"})
+}, indexes = {
+    @Index(name = "idx_product_compositions_material", columnList = "raw_material_id, product_id")
 })
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CatalogCacheConfig.COMPOSITION_LINES)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,7 +23,8 @@ import lombok.Setter;
 public class ProductComposition {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_compositions_seq")
+    @SequenceGenerator(name = "product_compositions_seq", sequenceName = "product_compositions_seq", allocationSize = 500)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -1,23 +1,26 @@
 package com.factory.profit.maximizer.backend.model;
 
+import com.factory.profit.maximizer.backend.config.CatalogCacheConfig;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Objects;
 
 @Entity
 @Table(name = "raw_materials")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CatalogCacheConfig.RAW_MATERIALS)
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 public class RawMaterial {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "raw_materials_seq")
+    @SequenceGenerator(name = "raw_materials_seq", sequenceName = "raw_materials_seq", allocationSize = 500)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -28,6 +31,20 @@ public class RawMaterial {
 
     private int stockQuantity;
 
+    /**
+     * Bumped by every update, including the conditional stock deductions that bypass the entity, so a
+     * read-modify-write based on a stale copy fails instead of overwriting a newer stock level.
+     */
+    @Version
+    private Long version;
+
+    public RawMaterial(Long id, String code, String name, int stockQuantity) {
+        this.id = id;
+        this.code = code;
+        this.name = name;
+        this.stockQuantity = stockQuantity;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
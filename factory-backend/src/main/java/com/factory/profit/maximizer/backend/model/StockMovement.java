@@ -0,0 +1,50 @@
+package com.factory.profit.maximizer.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One entry of the append-only stock ledger: a receipt (positive delta) or a consumption (negative
+ * delta) of a raw material. Entries are never changed after insert except for {@code flushBatch},
+ * which marks the flush that added the delta to {@link RawMaterial#getStockQuantity()}.
+ */
+@Entity
+@Table(name = "stock_movements", indexes = {
+        @Index(name = "idx_stock_movements_material", columnList = "raw_material_id, id"),
+        @Index(name = "idx_stock_movements_flush_batch", columnList = "flush_batch, raw_material_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_movements_seq")
+    @SequenceGenerator(name = "stock_movements_seq", sequenceName = "stock_movements_seq", allocationSize = 500)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "raw_material_id", nullable = false)
+    private RawMaterial rawMaterial;
+
+    @Column(nullable = false)
+    private int delta;
+
+    private String reason;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    /**
+     * {@code null} until a flush has applied the delta to the raw material's stock.
+     */
+    @Column(name = "flush_batch")
+    private UUID flushBatch;
+}
@@ -0,0 +1,598 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import java.util.Arrays;
+
+/**
+ * Revised simplex for {@code max c·x  s.t.  A·x + s = b,  lower <= x <= upper,  s >= 0}.
+ * <p>
+ * Structural columns are stored in compressed sparse column form, the slack of row {@code i}
+ * is variable {@code columns + i}. The basis inverse is kept explicitly (column-major) and
+ * updated with product-form pivots, and rebuilt from scratch every few pivots to limit drift.
+ * The primal method is used for cold solves from the slack basis, the dual method to
+ * re-optimize after bounds or right-hand sides change.
+ */
+final class BoundedSimplex {
+
+    enum Status { OPTIMAL, INFEASIBLE, LIMIT_REACHED }
+
+    static final byte BASIC = 0;
+    static final byte AT_LOWER = 1;
+    static final byte AT_UPPER = 2;
+
+    private static final double PRIMAL_TOLERANCE = 1e-7;
+    private static final double PIVOT_TOLERANCE = 1e-9;
+    private static final double TIE_TOLERANCE = 1e-12;
+    private static final int REFACTOR_INTERVAL = 64;
+    private static final int DEGENERATE_RUN_BEFORE_BLAND = 50;
+
+    /**
+     * Which variables are basic (and in which row) and where the non-basic ones sit.
+     */
+    record Basis(int[] head, byte[] status) {
+    }
+
+    final int rows;
+    final int columns;
+    private final int[] columnStart;
+    private final int[] rowIndex;
+    private final double[] coefficient;
+    private final double[] cost;
+    private final double[] rhs;
+    final double[] lower;
+    final double[] upper;
+
+    final double[] x;
+    final double[] reducedCost;
+    final double[] duals;
+    private int[] head;
+    final byte[] status;
+    private final double[] inverse;
+
+    private final double[] column;
+    private final double[] pivotRow;
+    private final double[] weight;
+    private final double dualTolerance;
+    private int pivotsSinceRefactor;
+
+    BoundedSimplex(int rows, int columns, int[] columnStart, int[] rowIndex, double[] coefficient,
+                   double[] cost, double[] rhs, double[] upperBound) {
+        this.rows = rows;
+        this.columns = columns;
+        this.columnStart = columnStart;
+        this.rowIndex = rowIndex;
+        this.coefficient = coefficient;
+        this.cost = Arrays.copyOf(cost, columns + rows);
+        this.rhs = rhs.clone();
+        int variables = columns + rows;
+        this.lower = new double[variables];
+        this.upper = new double[variables];
+        System.arraycopy(upperBound, 0, upper, 0, columns);
+        Arrays.fill(upper, columns, variables, Double.POSITIVE_INFINITY);
+
+        this.x = new double[variables];
+        this.reducedCost = new double[variables];
+        this.duals = new double[rows];
+        this.head = new int[rows];
+        this.status = new byte[variables];
+        this.inverse = new double[rows * rows];
+        this.column = new double[rows];
+        this.pivotRow = new double[variables];
+
+        this.weight = new double[variables];
+        double maxCost = 0;
+        for (int j = 0; j < columns; j++) {
+            maxCost = Math.max(maxCost, Math.abs(cost[j]));
+            double norm = 1;
+            for (int k = columnStart[j]; k < columnStart[j + 1]; k++) {
+                norm += coefficient[k] * coefficient[k];
+            }
+            weight[j] = norm;
+        }
+        Arrays.fill(weight, columns, variables, 2);
+        this.dualTolerance = 1e-9 * Math.max(1.0, maxCost);
+        resetToSlackBasis();
+    }
+
+    /**
+     * Copies the full solver state, including the basis inverse, so that the copy can be
+     * re-optimized independently.
+     */
+    private BoundedSimplex(BoundedSimplex source) {
+        this.rows = source.rows;
+        this.columns = source.columns;
+        this.columnStart = source.columnStart;
+        this.rowIndex = source.rowIndex;
+        this.coefficient = source.coefficient;
+        this.cost = source.cost;
+        this.rhs = source.rhs.clone();
+        this.lower = source.lower.clone();
+        this.upper = source.upper.clone();
+        this.x = source.x.clone();
+        this.reducedCost = source.reducedCost.clone();
+        this.duals = source.duals.clone();
+        this.head = source.head.clone();
+        this.status = source.status.clone();
+        this.inverse = source.inverse.clone();
+        this.column = new double[rows];
+        this.pivotRow = new double[columns + rows];
+        this.weight = source.weight;
+        this.dualTolerance = source.dualTolerance;
+        this.pivotsSinceRefactor = source.pivotsSinceRefactor;
+    }
+
+    BoundedSimplex copy() {
+        return new BoundedSimplex(this);
+    }
+
+    /**
+     * Slack basis with every structural variable at its lower bound; primal feasible
+     * whenever {@code b - A·lower >= 0}.
+     */
+    void resetToSlackBasis() {
+        for (int j = 0; j < columns; j++) {
+            status[j] = AT_LOWER;
+            x[j] = lower[j];
+        }
+        for (int i = 0; i < rows; i++) {
+            head[i] = columns + i;
+            status[columns + i] = BASIC;
+        }
+        refactor();
+    }
+
+    Basis saveBasis() {
+        return new Basis(head.clone(), status.clone());
+    }
+
+    /**
+     * Reinstalls a previously saved basis under the current bounds. Returns {@code false} if the
+     * basis turned out to be numerically singular, in which case the slack basis is used instead.
+     */
+    boolean restoreBasis(Basis basis) {
+        System.arraycopy(basis.head(), 0, head, 0, rows);
+        System.arraycopy(basis.status(), 0, status, 0, status.length);
+        for (int j = 0; j < status.length; j++) {
+            if (status[j] != BASIC) {
+                x[j] = status[j] == AT_UPPER ? upper[j] : lower[j];
+            }
+        }
+        if (refactor()) {
+            return true;
+        }
+        resetToSlackBasis();
+        return false;
+    }
+
+    /**
+     * Changes the bounds of a variable. A non-basic variable moves along to the new bound and the
+     * basic values are updated accordingly; the basis stays dual feasible.
+     */
+    void setBounds(int variable, double newLower, double newUpper) {
+        lower[variable] = newLower;
+        upper[variable] = newUpper;
+        if (status[variable] != BASIC) {
+            double target = status[variable] == AT_UPPER ? newUpper : newLower;
+            if (Double.isInfinite(target)) {
+                status[variable] = AT_LOWER;
+                target = newLower;
+            }
+            moveNonBasic(variable, target - x[variable]);
+        }
+    }
+
+    /**
+     * Changes the bounds of a boxed structural variable and, if it is non-basic, parks it at the
+     * bound its reduced cost favours. Unlike {@link #setBounds} this keeps the basis dual feasible
+     * even when a fixed variable gets room to move.
+     */
+    void rebound(int variable, double newLower, double newUpper) {
+        lower[variable] = newLower;
+        upper[variable] = newUpper;
+        if (status[variable] != BASIC) {
+            status[variable] = reducedCost[variable] > 0 ? AT_UPPER : AT_LOWER;
+            moveNonBasic(variable, (status[variable] == AT_UPPER ? newUpper : newLower) - x[variable]);
+        }
+    }
+
+    /**
+     * Changes the right-hand side of a row; the basis stays dual feasible.
+     */
+    void setRhs(int row, double value) {
+        double delta = value - rhs[row];
+        if (delta == 0) {
+            return;
+        }
+        rhs[row] = value;
+        int base = row * rows;
+        for (int r = 0; r < rows; r++) {
+            x[head[r]] += inverse[base + r] * delta;
+        }
+    }
+
+    double objective() {
+        double objective = 0;
+        for (int j = 0; j < columns; j++) {
+            objective += cost[j] * x[j];
+        }
+        return objective;
+    }
+
+    int basicVariable(int row) {
+        return head[row];
+    }
+
+    /**
+     * Entry {@code (row, column)} of the basis inverse.
+     */
+    double inverse(int row, int column) {
+        return inverse[column * rows + row];
+    }
+
+    /**
+     * Primal simplex; requires a primal feasible starting basis.
+     */
+    Status primal(SolveProgress progress) {
+        int iterationLimit = iterationLimit();
+        int degenerateRun = 0;
+        for (int iteration = 0; ; iteration++) {
+            if (iteration >= iterationLimit || ((iteration & 15) == 0 && progress.shouldStop())) {
+                return Status.LIMIT_REACHED;
+            }
+            int entering = choosePrimalEntering(degenerateRun > DEGENERATE_RUN_BEFORE_BLAND);
+            if (entering < 0) {
+                return Status.OPTIMAL;
+            }
+            double direction = status[entering] == AT_LOWER ? 1 : -1;
+            computeColumn(entering);
+
+            double step = upper[entering] - lower[entering];
+            int leavingRow = -1;
+            double leavingAlpha = 0;
+            boolean leavesAtUpper = false;
+            for (int r = 0; r < rows; r++) {
+                double alpha = column[r] * direction;
+                if (Math.abs(alpha) <= PIVOT_TOLERANCE) {
+                    continue;
+                }
+                int basic = head[r];
+                double limit;
+                boolean hitsUpper;
+                if (alpha > 0) {
+                    limit = (x[basic] - lower[basic]) / alpha;
+                    hitsUpper = false;
+                } else {
+                    if (upper[basic] == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    limit = (upper[basic] - x[basic]) / -alpha;
+                    hitsUpper = true;
+                }
+                if (limit < 0) {
+                    limit = 0;
+                }
+                if (limit < step - TIE_TOLERANCE
+                        || (limit <= step + TIE_TOLERANCE && leavingRow >= 0 && Math.abs(alpha) > Math.abs(leavingAlpha))) {
+                    step = limit;
+                    leavingRow = r;
+                    leavingAlpha = alpha;
+                    leavesAtUpper = hitsUpper;
+                }
+            }
+            if (step == Double.POSITIVE_INFINITY) {
+                throw new IllegalStateException("Linear program is unbounded");
+            }
+            degenerateRun = step == 0 ? degenerateRun + 1 : 0;
+
+            x[entering] += direction * step;
+            for (int r = 0; r < rows; r++) {
+                x[head[r]] -= direction * step * column[r];
+            }
+            if (leavingRow < 0) {
+                // Bound flip: the entering variable crosses its whole range without a basis change
+                status[entering] = status[entering] == AT_LOWER ? AT_UPPER : AT_LOWER;
+                x[entering] = status[entering] == AT_UPPER ? upper[entering] : lower[entering];
+                continue;
+            }
+            int leaving = head[leavingRow];
+            x[leaving] = leavesAtUpper ? upper[leaving] : lower[leaving];
+            changeBasis(leavingRow, entering, leavesAtUpper ? AT_UPPER : AT_LOWER);
+        }
+    }
+
+    /**
+     * Dual simplex; requires a dual feasible starting basis, e.g. a previous optimum whose
+     * bounds or right-hand sides have since changed.
+     */
+    Status dual(SolveProgress progress) {
+        int iterationLimit = iterationLimit();
+        for (int iteration = 0; ; iteration++) {
+            if (iteration >= iterationLimit || ((iteration & 15) == 0 && progress.shouldStop())) {
+                return Status.LIMIT_REACHED;
+            }
+            int leavingRow = -1;
+            double worst = PRIMAL_TOLERANCE;
+            boolean leavesAtUpper = false;
+            for (int r = 0; r < rows; r++) {
+                int basic = head[r];
+                if (x[basic] < lower[basic] - worst) {
+                    worst = lower[basic] - x[basic];
+                    leavingRow = r;
+                    leavesAtUpper = false;
+                } else if (x[basic] > upper[basic] + worst) {
+                    worst = x[basic] - upper[basic];
+                    leavingRow = r;
+                    leavesAtUpper = true;
+                }
+            }
+            if (leavingRow < 0) {
+                return Status.OPTIMAL;
+            }
+
+            computePivotRow(leavingRow);
+            double sign = leavesAtUpper ? 1 : -1;
+            int entering = -1;
+            double bestRatio = Double.POSITIVE_INFINITY;
+            double bestAlpha = 0;
+            for (int j = 0; j < status.length; j++) {
+                if (status[j] == BASIC || upper[j] <= lower[j]) {
+                    continue;
+                }
+                double alpha = pivotRow[j];
+                if (Math.abs(alpha) <= PIVOT_TOLERANCE) {
+                    continue;
+                }
+                boolean eligible = status[j] == AT_LOWER ? sign * alpha > 0 : sign * alpha < 0;
+                if (!eligible) {
+                    continue;
+                }
+                double ratio = Math.abs(reducedCost[j]) / Math.abs(alpha);
+                if (ratio < bestRatio - TIE_TOLERANCE
+                        || (ratio <= bestRatio + TIE_TOLERANCE && Math.abs(alpha) > bestAlpha)) {
+                    bestRatio = ratio;
+                    bestAlpha = Math.abs(alpha);
+                    entering = j;
+                }
+            }
+            if (entering < 0) {
+                return Status.INFEASIBLE;
+            }
+
+            computeColumn(entering);
+            int leaving = head[leavingRow];
+            double target = leavesAtUpper ? upper[leaving] : lower[leaving];
+            double delta = (x[leaving] - target) / column[leavingRow];
+            x[entering] += delta;
+            for (int r = 0; r < rows; r++) {
+                x[head[r]] -= column[r] * delta;
+            }
+            x[leaving] = target;
+            changeBasis(leavingRow, entering, leavesAtUpper ? AT_UPPER : AT_LOWER, true);
+        }
+    }
+
+    private int iterationLimit() {
+        return Math.max(10_000, 20 * (rows + columns));
+    }
+
+    private int choosePrimalEntering(boolean bland) {
+        int entering = -1;
+        double best = 0;
+        for (int j = 0; j < status.length; j++) {
+            double gain;
+            if (status[j] == AT_LOWER && upper[j] > lower[j]) {
+                gain = reducedCost[j];
+            } else if (status[j] == AT_UPPER) {
+                gain = -reducedCost[j];
+            } else {
+                continue;
+            }
+            if (gain > dualTolerance) {
+                if (bland) {
+                    return j;
+                }
+                double weighted = gain * gain / weight[j];
+                if (weighted > best) {
+                    best = weighted;
+                    entering = j;
+                }
+            }
+        }
+        return entering;
+    }
+
+    private void changeBasis(int leavingRow, int entering, byte leavingStatus) {
+        changeBasis(leavingRow, entering, leavingStatus, false);
+    }
+
+    /**
+     * Swaps the entering variable into {@code leavingRow}. {@link #column} must hold the entering
+     * column; the pivot row is recomputed here unless the caller already did so.
+     */
+    private void changeBasis(int leavingRow, int entering, byte leavingStatus, boolean pivotRowReady) {
+        if (!pivotRowReady) {
+            computePivotRow(leavingRow);
+        }
+        int leaving = head[leavingRow];
+        double theta = reducedCost[entering] / column[leavingRow];
+        for (int j = 0; j < status.length; j++) {
+            if (status[j] != BASIC && pivotRow[j] != 0) {
+                reducedCost[j] -= theta * pivotRow[j];
+            }
+        }
+        reducedCost[leaving] = -theta;
+        reducedCost[entering] = 0;
+        status[leaving] = leavingStatus;
+        status[entering] = BASIC;
+        head[leavingRow] = entering;
+        pivot(leavingRow);
+        if (++pivotsSinceRefactor >= Math.max(REFACTOR_INTERVAL, rows) && !refactor()) {
+            throw new IllegalStateException("Basis became singular");
+        }
+    }
+
+    private void moveNonBasic(int variable, double delta) {
+        if (delta == 0) {
+            return;
+        }
+        computeColumn(variable);
+        x[variable] += delta;
+        for (int r = 0; r < rows; r++) {
+            x[head[r]] -= column[r] * delta;
+        }
+    }
+
+    /**
+     * {@code column = B^-1 · A_j}.
+     */
+    private void computeColumn(int variable) {
+        if (variable >= columns) {
+            System.arraycopy(inverse, (variable - columns) * rows, column, 0, rows);
+            return;
+        }
+        Arrays.fill(column, 0);
+        for (int k = columnStart[variable]; k < columnStart[variable + 1]; k++) {
+            double a = coefficient[k];
+            int base = rowIndex[k] * rows;
+            for (int r = 0; r < rows; r++) {
+                column[r] += inverse[base + r] * a;
+            }
+        }
+    }
+
+    /**
+     * {@code pivotRow[j] = (B^-1)_r · A_j} for every non-basic variable.
+     */
+    private void computePivotRow(int row) {
+        for (int j = 0; j < columns; j++) {
+            if (status[j] == BASIC) {
+                pivotRow[j] = 0;
+                continue;
+            }
+            double sum = 0;
+            for (int k = columnStart[j]; k < columnStart[j + 1]; k++) {
+                sum += inverse[rowIndex[k] * rows + row] * coefficient[k];
+            }
+            pivotRow[j] = sum;
+        }
+        for (int i = 0; i < rows; i++) {
+            pivotRow[columns + i] = status[columns + i] == BASIC ? 0 : inverse[i * rows + row];
+        }
+    }
+
+    /**
+     * Product-form update of the inverse for a pivot on {@code column[row]}.
+     */
+    private void pivot(int row) {
+        double pivot = column[row];
+        for (int k = 0; k < rows; k++) {
+            int base = k * rows;
+            double v = inverse[base + row];
+            if (v == 0) {
+                continue;
+            }
+            v /= pivot;
+            for (int r = 0; r < rows; r++) {
+                inverse[base + r] -= column[r] * v;
+            }
+            inverse[base + row] = v;
+        }
+    }
+
+    /**
+     * Rebuilds the inverse of the current basis by pivoting its structural columns into the
+     * identity, then recomputes basic values and reduced costs. Returns {@code false} if the
+     * basis is singular.
+     */
+    private boolean refactor() {
+        pivotsSinceRefactor = 0;
+        Arrays.fill(inverse, 0);
+        for (int i = 0; i < rows; i++) {
+            inverse[i * rows + i] = 1;
+        }
+        int[] newHead = new int[rows];
+        Arrays.fill(newHead, -1);
+        for (int r = 0; r < rows; r++) {
+            if (head[r] >= columns) {
+                newHead[head[r] - columns] = head[r];
+            }
+        }
+        for (int r = 0; r < rows; r++) {
+            int variable = head[r];
+            if (variable >= columns) {
+                continue;
+            }
+            computeColumn(variable);
+            int pivotRowIndex = -1;
+            double best = PIVOT_TOLERANCE;
+            for (int i = 0; i < rows; i++) {
+                if (newHead[i] < 0 && Math.abs(column[i]) > best) {
+                    best = Math.abs(column[i]);
+                    pivotRowIndex = i;
+                }
+            }
+            if (pivotRowIndex < 0) {
+                return false;
+            }
+            pivot(pivotRowIndex);
+            newHead[pivotRowIndex] = variable;
+        }
+        head = newHead;
+        recomputePrimal();
+        recomputeDual();
+        return true;
+    }
+
+    private void recomputePrimal() {
+        double[] residual = rhs.clone();
+        for (int j = 0; j < columns; j++) {
+            if (status[j] != BASIC && x[j] != 0) {
+                for (int k = columnStart[j]; k < columnStart[j + 1]; k++) {
+                    residual[rowIndex[k]] -= coefficient[k] * x[j];
+                }
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            if (status[columns + i] != BASIC) {
+                residual[i] -= x[columns + i];
+            }
+        }
+        for (int r = 0; r < rows; r++) {
+            x[head[r]] = 0;
+        }
+        for (int k = 0; k < rows; k++) {
+            double value = residual[k];
+            if (value == 0) {
+                continue;
+            }
+            int base = k * rows;
+            for (int r = 0; r < rows; r++) {
+                x[head[r]] += inverse[base + r] * value;
+            }
+        }
+    }
+
+    private void recomputeDual() {
+        for (int k = 0; k < rows; k++) {
+            double sum = 0;
+            int base = k * rows;
+            for (int r = 0; r < rows; r++) {
+                sum += cost[head[r]] * inverse[base + r];
+            }
+            duals[k] = sum;
+        }
+        for (int j = 0; j < columns; j++) {
+            if (status[j] == BASIC) {
+                reducedCost[j] = 0;
+                continue;
+            }
+            double sum = cost[j];
+            for (int k = columnStart[j]; k < columnStart[j + 1]; k++) {
+                sum -= duals[rowIndex[k]] * coefficient[k];
+            }
+            reducedCost[j] = sum;
+        }
+        for (int i = 0; i < rows; i++) {
+            reducedCost[columns + i] = status[columns + i] == BASIC ? 0 : -duals[i];
+        }
+    }
+}
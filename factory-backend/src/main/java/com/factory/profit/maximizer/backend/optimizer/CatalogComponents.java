@@ -0,0 +1,181 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import java.util.Arrays;
+
+/**
+ * Splits a catalog into independent parts. Products that share no raw material, directly or through
+ * other products, never compete for stock, so each group can be optimized on its own and the plans put
+ * side by side. The groups are the connected components of the product/raw material graph, found with
+ * union-find over the materials each product consumes. Products without composition belong to no part,
+ * since they are never produced.
+ */
+final class CatalogComponents {
+
+    private final CatalogSnapshot source;
+    private final CatalogSnapshot[] parts;
+    private final int[][] products;
+    private final int[][] materials;
+
+    private CatalogComponents(CatalogSnapshot source, CatalogSnapshot[] parts, int[][] products, int[][] materials) {
+        this.source = source;
+        this.parts = parts;
+        this.products = products;
+        this.materials = materials;
+    }
+
+    static CatalogComponents of(CatalogSnapshot snapshot) {
+        int productCount = snapshot.productCount();
+        int materialCount = snapshot.materialCount();
+        int[] parent = new int[materialCount];
+        for (int m = 0; m < materialCount; m++) {
+            parent[m] = m;
+        }
+        for (int p = 0; p < productCount; p++) {
+            int start = snapshot.compositionStart[p];
+            for (int i = start + 1; i < snapshot.compositionStart[p + 1]; i++) {
+                union(parent, snapshot.compositionMaterial[start], snapshot.compositionMaterial[i]);
+            }
+        }
+
+        // Parts are numbered in order of their first product
+        int[] partOfRoot = new int[materialCount];
+        Arrays.fill(partOfRoot, -1);
+        int[] partOfProduct = new int[productCount];
+        int partCount = 0;
+        for (int p = 0; p < productCount; p++) {
+            if (!snapshot.hasComposition(p)) {
+                partOfProduct[p] = -1;
+                continue;
+            }
+            int root = find(parent, snapshot.compositionMaterial[snapshot.compositionStart[p]]);
+            if (partOfRoot[root] < 0) {
+                partOfRoot[root] = partCount++;
+            }
+            partOfProduct[p] = partOfRoot[root];
+        }
+        if (partCount <= 1) {
+            // Nothing to split: the catalog is solved as a whole, so the one part is not built
+            return new CatalogComponents(snapshot, new CatalogSnapshot[partCount], new int[partCount][], new int[partCount][]);
+        }
+
+        int[] productTotals = new int[partCount];
+        int[] materialTotals = new int[partCount];
+        for (int p = 0; p < productCount; p++) {
+            if (partOfProduct[p] >= 0) {
+                productTotals[partOfProduct[p]]++;
+            }
+        }
+        int[] partOfMaterial = new int[materialCount];
+        for (int m = 0; m < materialCount; m++) {
+            partOfMaterial[m] = partOfRoot[find(parent, m)];
+            if (partOfMaterial[m] >= 0) {
+                materialTotals[partOfMaterial[m]]++;
+            }
+        }
+
+        int[][] products = new int[partCount][];
+        int[][] materials = new int[partCount][];
+        int[][] efficiencyOrders = new int[partCount][];
+        for (int c = 0; c < partCount; c++) {
+            products[c] = new int[productTotals[c]];
+            materials[c] = new int[materialTotals[c]];
+            efficiencyOrders[c] = new int[productTotals[c]];
+        }
+        // Every product and material is in at most one part, so one array holds all local ordinals
+        int[] localProduct = new int[productCount];
+        int[] localMaterial = new int[materialCount];
+        int[] filled = new int[partCount];
+        for (int p = 0; p < productCount; p++) {
+            int c = partOfProduct[p];
+            if (c >= 0) {
+                localProduct[p] = filled[c];
+                products[c][filled[c]++] = p;
+            }
+        }
+        Arrays.fill(filled, 0);
+        for (int m = 0; m < materialCount; m++) {
+            int c = partOfMaterial[m];
+            if (c >= 0) {
+                localMaterial[m] = filled[c];
+                materials[c][filled[c]++] = m;
+            }
+        }
+        Arrays.fill(filled, 0);
+        for (int rank = 0; rank < productCount; rank++) {
+            int p = snapshot.efficiencyOrder[rank];
+            int c = partOfProduct[p];
+            if (c >= 0) {
+                efficiencyOrders[c][filled[c]++] = localProduct[p];
+            }
+        }
+
+        CatalogSnapshot[] parts = new CatalogSnapshot[partCount];
+        for (int c = 0; c < partCount; c++) {
+            parts[c] = snapshot.part(products[c], materials[c], localMaterial, efficiencyOrders[c]);
+        }
+        return new CatalogComponents(snapshot, parts, products, materials);
+    }
+
+    /**
+     * Number of parts. When there are fewer than two, they are not built.
+     */
+    int size() {
+        return parts.length;
+    }
+
+    /**
+     * Product ordinals of the source snapshot that make up the part, indexed by the part's own ordinals.
+     */
+    int[] products(int part) {
+        return products[part];
+    }
+
+    /**
+     * Whether the parts can be used for the snapshot, i.e. it differs from the one they were built from
+     * at most in stock levels.
+     */
+    boolean appliesTo(CatalogSnapshot snapshot) {
+        return source.sharesStructureWith(snapshot);
+    }
+
+    /**
+     * The parts with the stock levels of {@code snapshot}, which must share its structure with the
+     * source. A part whose stock did not change is returned as is.
+     */
+    CatalogSnapshot[] partsFor(CatalogSnapshot snapshot) {
+        CatalogSnapshot[] current = parts.clone();
+        for (int c = 0; c < parts.length; c++) {
+            int[] partMaterials = materials[c];
+            int[] stock = null;
+            for (int m = 0; m < partMaterials.length; m++) {
+                int level = snapshot.stock[partMaterials[m]];
+                if (stock == null && level != parts[c].stock[m]) {
+                    stock = parts[c].stock.clone();
+                }
+                if (stock != null) {
+                    stock[m] = level;
+                }
+            }
+            if (stock != null) {
+                current[c] = parts[c].withStock(stock);
+            }
+        }
+        return current;
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+}
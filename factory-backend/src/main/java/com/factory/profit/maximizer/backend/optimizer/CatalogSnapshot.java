@@ -0,0 +1,366 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, array-based view of the catalog that the optimizer engines work on.
+ * Products and raw materials are addressed by compact ordinals, and the composition
+ * is stored in compressed sparse row form: product {@code p} uses the entries
+ * {@code compositionStart[p]} (inclusive) to {@code compositionStart[p + 1]} (exclusive).
+ * Unit values are also kept in fixed point, as multiples of {@code 10^-valueScale}, and
+ * {@code firstUseRank[m]} is the first position of the efficiency ranking that consumes material {@code m}.
+ */
+public final class CatalogSnapshot {
+
+    final long[] productIds;
+    final String[] productCodes;
+    final String[] productNames;
+    final BigDecimal[] productValues;
+    final long[] unitValues;
+    final int valueScale;
+    final int[] compositionStart;
+    final int[] compositionMaterial;
+    final int[] compositionQuantity;
+    final long[] materialIds;
+    final Map<Long, Integer> materialOrdinals;
+    final int[] stock;
+    final int[] efficiencyOrder;
+    final int[] firstUseRank;
+
+    CatalogSnapshot(long[] productIds, String[] productCodes, String[] productNames, BigDecimal[] productValues,
+                            long[] unitValues, int valueScale,
+                            int[] compositionStart, int[] compositionMaterial, int[] compositionQuantity,
+                            long[] materialIds, Map<Long, Integer> materialOrdinals, int[] stock, int[] efficiencyOrder) {
+        this.productIds = productIds;
+        this.productCodes = productCodes;
+        this.productNames = productNames;
+        this.productValues = productValues;
+        this.unitValues = unitValues;
+        this.valueScale = valueScale;
+        this.compositionStart = compositionStart;
+        this.compositionMaterial = compositionMaterial;
+        this.compositionQuantity = compositionQuantity;
+        this.materialIds = materialIds;
+        this.materialOrdinals = materialOrdinals;
+        this.stock = stock;
+        this.efficiencyOrder = efficiencyOrder;
+
+        this.firstUseRank = new int[materialIds.length];
+        Arrays.fill(firstUseRank, efficiencyOrder.length);
+        for (int rank = efficiencyOrder.length - 1; rank >= 0; rank--) {
+            int product = efficiencyOrder[rank];
+            for (int i = compositionStart[product]; i < compositionStart[product + 1]; i++) {
+                firstUseRank[compositionMaterial[i]] = rank;
+            }
+        }
+    }
+
+    /**
+     * Copy that shares everything but the stock array.
+     */
+    private CatalogSnapshot(CatalogSnapshot source, int[] stock) {
+        this.productIds = source.productIds;
+        this.productCodes = source.productCodes;
+        this.productNames = source.productNames;
+        this.productValues = source.productValues;
+        this.unitValues = source.unitValues;
+        this.valueScale = source.valueScale;
+        this.compositionStart = source.compositionStart;
+        this.compositionMaterial = source.compositionMaterial;
+        this.compositionQuantity = source.compositionQuantity;
+        this.materialIds = source.materialIds;
+        this.materialOrdinals = source.materialOrdinals;
+        this.stock = stock;
+        this.efficiencyOrder = source.efficiencyOrder;
+        this.firstUseRank = source.firstUseRank;
+    }
+
+    /**
+     * Builds a snapshot from loaded entities. Products keep the order in which they are given,
+     * which is also the tie-breaking order of {@link #efficiencyOrder}. Composition lines with a
+     * non-positive quantity never limit production and are left out of the sparse rows.
+     */
+    public static CatalogSnapshot of(List<Product> products, List<RawMaterial> rawMaterials) {
+        Map<Long, Integer> materialOrdinals = new HashMap<>();
+        int[] stockBuffer = new int[Math.max(rawMaterials.size(), 8)];
+        long[] materialIdBuffer = new long[stockBuffer.length];
+        int materialCount = 0;
+        for (RawMaterial rawMaterial : rawMaterials) {
+            if (materialOrdinals.putIfAbsent(rawMaterial.getId(), materialCount) == null) {
+                materialIdBuffer[materialCount] = rawMaterial.getId();
+                stockBuffer[materialCount] = rawMaterial.getStockQuantity();
+                materialCount++;
+            }
+        }
+
+        int productCount = products.size();
+        long[] productIds = new long[productCount];
+        String[] productCodes = new String[productCount];
+        String[] productNames = new String[productCount];
+        BigDecimal[] productValues = new BigDecimal[productCount];
+        long[] resourceTotals = new long[productCount];
+        int valueScale = 0;
+        int[] compositionStart = new int[productCount + 1];
+        int lineCount = 0;
+        for (Product product : products) {
+            lineCount += product.getComposition().size();
+        }
+        int[] compositionMaterial = new int[lineCount];
+        int[] compositionQuantity = new int[lineCount];
+
+        int entry = 0;
+        for (int p = 0; p < productCount; p++) {
+            Product product = products.get(p);
+            productIds[p] = product.getId() == null ? 0L : product.getId();
+            productCodes[p] = product.getCode();
+            productNames[p] = product.getName();
+            productValues[p] = product.getValue();
+            valueScale = Math.max(valueScale, product.getValue().scale());
+            compositionStart[p] = entry;
+            for (ProductComposition component : product.getComposition()) {
+                resourceTotals[p] += component.getQuantity();
+                if (component.getQuantity() <= 0) {
+                    continue;
+                }
+                Long rawMaterialId = component.getRawMaterial().getId();
+                Integer ordinal = materialOrdinals.get(rawMaterialId);
+                if (ordinal == null) {
+                    // Referenced but not part of the loaded stock: it exists with zero stock
+                    if (materialCount == stockBuffer.length) {
+                        stockBuffer = Arrays.copyOf(stockBuffer, materialCount * 2);
+                        materialIdBuffer = Arrays.copyOf(materialIdBuffer, materialCount * 2);
+                    }
+                    ordinal = materialCount;
+                    materialOrdinals.put(rawMaterialId, ordinal);
+                    materialIdBuffer[materialCount++] = rawMaterialId;
+                }
+                compositionMaterial[entry] = ordinal;
+                compositionQuantity[entry] = component.getQuantity();
+                entry++;
+            }
+        }
+        compositionStart[productCount] = entry;
+
+        long[] unitValues = new long[productCount];
+        for (int p = 0; p < productCount; p++) {
+            unitValues[p] = productValues[p].movePointRight(valueScale).longValueExact();
+        }
+        return new CatalogSnapshot(productIds, productCodes, productNames, productValues, unitValues, valueScale,
+                compositionStart, Arrays.copyOf(compositionMaterial, entry), Arrays.copyOf(compositionQuantity, entry),
+                Arrays.copyOf(materialIdBuffer, materialCount), materialOrdinals, Arrays.copyOf(stockBuffer, materialCount),
+                sortByScore(unitValues, resourceTotals));
+    }
+
+    /**
+     * Returns a snapshot with the given raw material stock levels replaced, or {@code null} if one of
+     * the raw materials is not part of this snapshot.
+     */
+    public CatalogSnapshot withStock(Map<Long, Integer> stockLevels) {
+        int[] patched = stock.clone();
+        for (Map.Entry<Long, Integer> level : stockLevels.entrySet()) {
+            Integer ordinal = materialOrdinals.get(level.getKey());
+            if (ordinal == null) {
+                return null;
+            }
+            patched[ordinal] = level.getValue();
+        }
+        return new CatalogSnapshot(this, patched);
+    }
+
+    /**
+     * Copy with the same structure and the given stock, indexed by material ordinal.
+     */
+    CatalogSnapshot withStock(int[] stock) {
+        return new CatalogSnapshot(this, stock);
+    }
+
+    /**
+     * Snapshot of some of the products of this one and the raw materials they use, as built by
+     * {@link CatalogComponents} and {@link Presolve}. {@code products} and {@code materials} hold ordinals
+     * of this snapshot, {@code localMaterial} gives the position in {@code materials} of every material the
+     * products use, or -1 to leave its composition lines out, and {@code efficiencyOrder} is this snapshot's
+     * ranking restricted to the products, in their new ordinals.
+     */
+    CatalogSnapshot part(int[] products, int[] materials, int[] localMaterial, int[] efficiencyOrder) {
+        int lineCount = 0;
+        for (int product : products) {
+            for (int i = compositionStart[product]; i < compositionStart[product + 1]; i++) {
+                if (localMaterial[compositionMaterial[i]] >= 0) {
+                    lineCount++;
+                }
+            }
+        }
+        long[] partProductIds = new long[products.length];
+        String[] partProductCodes = new String[products.length];
+        String[] partProductNames = new String[products.length];
+        BigDecimal[] partProductValues = new BigDecimal[products.length];
+        long[] partUnitValues = new long[products.length];
+        int[] partCompositionStart = new int[products.length + 1];
+        int[] partCompositionMaterial = new int[lineCount];
+        int[] partCompositionQuantity = new int[lineCount];
+        int entry = 0;
+        for (int p = 0; p < products.length; p++) {
+            int product = products[p];
+            partProductIds[p] = productIds[product];
+            partProductCodes[p] = productCodes[product];
+            partProductNames[p] = productNames[product];
+            partProductValues[p] = productValues[product];
+            partUnitValues[p] = unitValues[product];
+            partCompositionStart[p] = entry;
+            for (int i = compositionStart[product]; i < compositionStart[product + 1]; i++) {
+                if (localMaterial[compositionMaterial[i]] >= 0) {
+                    partCompositionMaterial[entry] = localMaterial[compositionMaterial[i]];
+                    partCompositionQuantity[entry++] = compositionQuantity[i];
+                }
+            }
+        }
+        partCompositionStart[products.length] = entry;
+
+        long[] partMaterialIds = new long[materials.length];
+        Map<Long, Integer> partMaterialOrdinals = new HashMap<>();
+        int[] partStock = new int[materials.length];
+        for (int m = 0; m < materials.length; m++) {
+            partMaterialIds[m] = materialIds[materials[m]];
+            partMaterialOrdinals.put(partMaterialIds[m], m);
+            partStock[m] = stock[materials[m]];
+        }
+        return new CatalogSnapshot(partProductIds, partProductCodes, partProductNames, partProductValues,
+                partUnitValues, valueScale, partCompositionStart, partCompositionMaterial, partCompositionQuantity,
+                partMaterialIds, partMaterialOrdinals, partStock, efficiencyOrder);
+    }
+
+    /**
+     * Whether both snapshots come from the same catalog load, so that they have the same products,
+     * values and composition and can differ at most in stock levels.
+     */
+    public boolean sharesStructureWith(CatalogSnapshot other) {
+        return other != null && other.compositionStart == compositionStart;
+    }
+
+    /**
+     * Orders product ordinals by descending efficiency score, defined as value / total_quantity_of_materials.
+     * A higher score means more value per unit of resource; a product without composition, or whose
+     * composition adds up to zero, scores zero. Scores are compared as exact fractions of the fixed-point
+     * values, so equal scores always tie and the stable sort keeps such products in their original order.
+     */
+    private static int[] sortByScore(long[] unitValues, long[] resourceTotals) {
+        long[] numerators = new long[unitValues.length];
+        long[] denominators = new long[unitValues.length];
+        for (int p = 0; p < unitValues.length; p++) {
+            long total = resourceTotals[p];
+            numerators[p] = total == 0 ? 0 : (total < 0 ? Math.negateExact(unitValues[p]) : unitValues[p]);
+            denominators[p] = total == 0 ? 1 : Math.absExact(total);
+        }
+        Integer[] order = new Integer[unitValues.length];
+        for (int p = 0; p < order.length; p++) {
+            order[p] = p;
+        }
+        Arrays.sort(order, (a, b) -> compareFractions(numerators[b], denominators[b], numerators[a], denominators[a]));
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Compares {@code n1 / d1} with {@code n2 / d2} for positive denominators, by cross-multiplying
+     * into 128 bits so that no product can overflow.
+     */
+    static int compareFractions(long n1, long d1, long n2, long d2) {
+        long high1 = Math.multiplyHigh(n1, d2);
+        long high2 = Math.multiplyHigh(n2, d1);
+        if (high1 != high2) {
+            return Long.compare(high1, high2);
+        }
+        return Long.compareUnsigned(n1 * d2, n2 * d1);
+    }
+
+    /**
+     * Value of the given units of a product, in multiples of {@code 10^-valueScale}.
+     *
+     * @throws ArithmeticException if it does not fit in a {@code long}
+     */
+    public long valueOf(int product, int units) {
+        return Math.multiplyExact(unitValues[product], units);
+    }
+
+    /**
+     * Value of a whole plan, indexed by product ordinal, in multiples of {@code 10^-valueScale}.
+     *
+     * @throws ArithmeticException if it does not fit in a {@code long}
+     */
+    public long valueOf(int[] quantities) {
+        long total = 0;
+        for (int p = 0; p < quantities.length; p++) {
+            total = Math.addExact(total, valueOf(p, quantities[p]));
+        }
+        return total;
+    }
+
+    /**
+     * Converts a fixed-point amount of this snapshot to a {@link BigDecimal} with the given scale,
+     * which must be able to hold it exactly.
+     */
+    public BigDecimal toAmount(long fixedPoint, int scale) {
+        return BigDecimal.valueOf(fixedPoint, valueScale).setScale(scale);
+    }
+
+    /**
+     * Stock level of the raw material with the given id, or {@code null} if it is not part of this snapshot.
+     */
+    public Integer stockOf(long materialId) {
+        Integer ordinal = materialOrdinals.get(materialId);
+        return ordinal == null ? null : stock[ordinal];
+    }
+
+    public int productCount() {
+        return productIds.length;
+    }
+
+    public int materialCount() {
+        return materialIds.length;
+    }
+
+    /**
+     * Number of composition lines with a positive quantity.
+     */
+    public int compositionLineCount() {
+        return compositionMaterial.length;
+    }
+
+    /**
+     * Returns the product ordinal at the given position of the efficiency ranking.
+     */
+    public int productAt(int rank) {
+        return efficiencyOrder[rank];
+    }
+
+    public String productCode(int product) {
+        return productCodes[product];
+    }
+
+    public String productName(int product) {
+        return productNames[product];
+    }
+
+    public BigDecimal productValue(int product) {
+        return productValues[product];
+    }
+
+    public long materialId(int material) {
+        return materialIds[material];
+    }
+
+    public int stock(int material) {
+        return stock[material];
+    }
+
+    boolean hasComposition(int product) {
+        return compositionStart[product] < compositionStart[product + 1];
+    }
+}
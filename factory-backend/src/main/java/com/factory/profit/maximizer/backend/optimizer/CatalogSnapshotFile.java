@@ -0,0 +1,216 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Binary form of a {@link CatalogSnapshot} and the catalog version it was read at, so that a restart
+ * does not have to rebuild it from the database. The file holds the snapshot's arrays as they are,
+ * the efficiency ranking included, and is read back through a memory-mapped buffer with bulk copies.
+ * It ends with a CRC32 of everything before it; a file that is truncated, corrupt or of another format
+ * version is rejected as a whole.
+ */
+public final class CatalogSnapshotFile {
+
+    private static final int MAGIC = 0x43415453; // "CATS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + Long.BYTES + 2 * Integer.BYTES;
+
+    private CatalogSnapshotFile() {
+    }
+
+    /**
+     * A snapshot read from a file and the catalog version it was written at.
+     */
+    public record Stored(CatalogSnapshot snapshot, long version) {
+    }
+
+    /**
+     * Writes the snapshot next to {@code path} and moves it in place, so a reader never sees a partial file.
+     */
+    public static void write(Path path, CatalogSnapshot snapshot, long version) throws IOException {
+        int productCount = snapshot.productCount();
+        byte[][] codes = encode(snapshot.productCodes);
+        byte[][] names = encode(snapshot.productNames);
+        long size = HEADER_BYTES
+                + (long) productCount * (2 * Long.BYTES + 3 * Integer.BYTES) + Integer.BYTES
+                + (long) snapshot.compositionLineCount() * 2 * Integer.BYTES
+                + (long) snapshot.materialCount() * (Long.BYTES + Integer.BYTES)
+                + stringBytes(codes) + stringBytes(names) + Long.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Catalog snapshot too large for one file: " + size + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(version).putInt(snapshot.valueScale)
+                .putInt(productCount).putInt(snapshot.materialCount()).putInt(snapshot.compositionLineCount());
+        for (long id : snapshot.productIds) {
+            buffer.putLong(id);
+        }
+        for (long value : snapshot.unitValues) {
+            buffer.putLong(value);
+        }
+        for (BigDecimal value : snapshot.productValues) {
+            buffer.putInt(value.scale());
+        }
+        putInts(buffer, snapshot.efficiencyOrder);
+        putInts(buffer, snapshot.compositionStart);
+        putInts(buffer, snapshot.compositionMaterial);
+        putInts(buffer, snapshot.compositionQuantity);
+        for (long id : snapshot.materialIds) {
+            buffer.putLong(id);
+        }
+        putInts(buffer, snapshot.stock);
+        putStrings(buffer, codes);
+        putStrings(buffer, names);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static Stored read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + Long.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a catalog snapshot file: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - Long.BYTES));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                    || buffer.getLong((int) size - Long.BYTES) != crc.getValue()) {
+                throw new IOException("Corrupt or incompatible catalog snapshot file: " + path);
+            }
+            try {
+                return read(buffer);
+            } catch (RuntimeException e) {
+                throw new IOException("Corrupt catalog snapshot file: " + path, e);
+            }
+        }
+    }
+
+    private static Stored read(ByteBuffer buffer) {
+        long version = buffer.getLong();
+        int valueScale = buffer.getInt();
+        int productCount = buffer.getInt();
+        int materialCount = buffer.getInt();
+        int lineCount = buffer.getInt();
+
+        long[] productIds = getLongs(buffer, productCount);
+        long[] unitValues = getLongs(buffer, productCount);
+        int[] scales = getInts(buffer, productCount);
+        int[] efficiencyOrder = getInts(buffer, productCount);
+        int[] compositionStart = getInts(buffer, productCount + 1);
+        int[] compositionMaterial = getInts(buffer, lineCount);
+        int[] compositionQuantity = getInts(buffer, lineCount);
+        long[] materialIds = getLongs(buffer, materialCount);
+        int[] stock = getInts(buffer, materialCount);
+        String[] productCodes = getStrings(buffer, productCount);
+        String[] productNames = getStrings(buffer, productCount);
+
+        BigDecimal[] productValues = new BigDecimal[productCount];
+        for (int p = 0; p < productCount; p++) {
+            productValues[p] = BigDecimal.valueOf(unitValues[p], valueScale).setScale(scales[p]);
+        }
+        Map<Long, Integer> materialOrdinals = new HashMap<>(materialCount * 4 / 3 + 1);
+        for (int m = 0; m < materialCount; m++) {
+            materialOrdinals.put(materialIds[m], m);
+        }
+        CatalogSnapshot snapshot = new CatalogSnapshot(productIds, productCodes, productNames, productValues, unitValues,
+                valueScale, compositionStart, compositionMaterial, compositionQuantity, materialIds, materialOrdinals,
+                stock, efficiencyOrder);
+        return new Stored(snapshot, version);
+    }
+
+    private static byte[][] encode(String[] strings) {
+        byte[][] encoded = new byte[strings.length][];
+        for (int i = 0; i < strings.length; i++) {
+            encoded[i] = strings[i] == null ? null : strings[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    private static long stringBytes(byte[][] strings) {
+        long bytes = 0;
+        for (byte[] string : strings) {
+            bytes += Integer.BYTES + (string == null ? 0 : string.length);
+        }
+        return bytes;
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+    }
+
+    /**
+     * Each string is its UTF-8 length followed by its bytes; -1 stands for {@code null}.
+     */
+    private static void putStrings(ByteBuffer buffer, byte[][] strings) {
+        for (byte[] string : strings) {
+            if (string == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(string.length).put(string);
+            }
+        }
+    }
+
+    private static int[] getInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    private static long[] getLongs(ByteBuffer buffer, int count) {
+        long[] values = new long[count];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + count * Long.BYTES);
+        return values;
+    }
+
+    private static String[] getStrings(ByteBuffer buffer, int count) {
+        String[] strings = new String[count];
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            if (length < 0) {
+                continue;
+            }
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            buffer.get(bytes, 0, length);
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+}
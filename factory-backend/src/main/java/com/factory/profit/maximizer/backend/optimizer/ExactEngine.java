@@ -0,0 +1,642 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Integer-programming engine: solves the LP relaxation with {@link BoundedSimplex} and closes the
+ * integrality gap with depth-first branch-and-bound, re-optimizing every node with the dual simplex
+ * from its parent's basis. The greedy plan is the starting incumbent, so the result is never worse
+ * than {@link GreedyEngine}. The search stops once the remaining gap is within the configured relative
+ * tolerance, or returns the best plan found so far when the time or node budget runs out.
+ * <p>
+ * The catalog is presolved first (see {@link Presolve}), which removes products and raw material
+ * constraints that cannot change the best plan value.
+ * <p>
+ * A catalog whose products fall into groups that share no raw material is split into those groups
+ * (see {@link CatalogComponents}), which are searched in parallel and merged into one plan. The optimal
+ * root relaxation of each group from the last call is kept; after a stock-only change the next call
+ * starts from that basis rather than from the slack basis, and groups whose stock did not change
+ * start from their previous optimum.
+ */
+@Component
+public class ExactEngine implements OptimizerEngine {
+
+    public static final String NAME = "exact";
+
+    private static final double INTEGRALITY_TOLERANCE = 1e-6;
+
+    private final GreedyEngine greedyEngine;
+    private final long timeLimitMillis;
+    private final int nodeLimit;
+    private final double relativeGap;
+    private final ForkJoinPool pool;
+
+    private volatile Presolve lastPresolve;
+    private volatile PresolveReport lastPresolveReport;
+    private volatile Decomposition lastDecomposition;
+
+    public ExactEngine(GreedyEngine greedyEngine,
+                       @Value("${optimizer.exact.time-limit-ms:300}") long timeLimitMillis,
+                       @Value("${optimizer.exact.node-limit:20000}") int nodeLimit,
+                       @Value("${optimizer.exact.relative-gap:0.0001}") double relativeGap,
+                       @Value("${optimizer.exact.parallelism:0}") int parallelism) {
+        this.greedyEngine = greedyEngine;
+        this.timeLimitMillis = timeLimitMillis;
+        this.nodeLimit = nodeLimit;
+        this.relativeGap = relativeGap;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int[] solve(CatalogSnapshot snapshot) {
+        int[] incumbent = greedyEngine.solve(snapshot);
+        return solve(snapshot, incumbent, SolveProgress.withTimeBudget(timeLimitMillis), nodeLimit);
+    }
+
+    /**
+     * Only the deadline and cancellation of {@code progress} end the search early; the configured time
+     * and node limits, meant for interactive calls, do not apply.
+     */
+    @Override
+    public int[] solve(CatalogSnapshot snapshot, SolveProgress progress) {
+        int[] incumbent = greedyEngine.solve(snapshot);
+        progress.improved(incumbent);
+        return solve(snapshot, incumbent, progress, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches from the better of the seed and the greedy plan, within the deadline of {@code progress}
+     * and the configured node limit.
+     */
+    @Override
+    public int[] solve(CatalogSnapshot snapshot, int[] seed, SolveProgress progress) {
+        int[] greedy = greedyEngine.solve(snapshot);
+        int[] incumbent = snapshot.valueOf(seed) > snapshot.valueOf(greedy) ? seed : greedy;
+        progress.improved(incumbent);
+        return solve(snapshot, incumbent, progress, nodeLimit);
+    }
+
+    /**
+     * How much the presolve reduced the catalog of the last solve; {@code null} before the first one.
+     */
+    public PresolveReport lastPresolveReport() {
+        return lastPresolveReport;
+    }
+
+    /**
+     * Presolves the catalog and searches what is left. The incumbent is only replaced by a plan that
+     * is worth strictly more, as the search itself never does otherwise.
+     */
+    private int[] solve(CatalogSnapshot snapshot, int[] incumbent, SolveProgress progress, int nodeLimit) {
+        Presolve presolve = presolve(snapshot);
+        Presolve.Reduction reduction = presolve.reduce(snapshot);
+        lastPresolveReport = reduction.report();
+        int[] reduced = solveReduced(reduction.snapshot(), presolve.project(reduction, incumbent),
+                new ReducedProgress(progress, presolve, reduction), nodeLimit);
+        int[] quantities = presolve.expand(reduction, reduced);
+        return snapshot.valueOf(quantities) > snapshot.valueOf(incumbent) ? quantities : incumbent;
+    }
+
+    /**
+     * The presolve of the last call when the structure did not change, a new one otherwise.
+     */
+    private Presolve presolve(CatalogSnapshot snapshot) {
+        Presolve previous = lastPresolve;
+        if (previous != null && previous.appliesTo(snapshot)) {
+            return previous;
+        }
+        Presolve presolve = Presolve.of(snapshot);
+        lastPresolve = presolve;
+        return presolve;
+    }
+
+    private int[] solveReduced(CatalogSnapshot snapshot, int[] incumbent, SolveProgress progress, int nodeLimit) {
+        Decomposition decomposition = decompose(snapshot);
+        if (decomposition.components() == null) {
+            return search(snapshot, incumbent, progress, nodeLimit, decomposition.roots(), 0);
+        }
+
+        CatalogComponents components = decomposition.components();
+        CatalogSnapshot[] parts = components.partsFor(snapshot);
+        Merge merge = new Merge(components, incumbent, progress);
+        List<Integer> order = new ArrayList<>(parts.length);
+        for (int c = 0; c < parts.length; c++) {
+            order.add(c);
+        }
+        // Largest parts first, so that small ones fill in around them
+        order.sort(Comparator.comparingInt((Integer c) -> parts[c].productCount()).reversed());
+        List<Callable<int[]>> searches = new ArrayList<>(parts.length);
+        int[] quantities = incumbent.clone();
+        for (int c : order) {
+            int[] partIncumbent = merge.project(c, incumbent);
+            if (parts[c].productCount() == 1) {
+                // As many units as the stock allows; the incumbent may hold fewer when it was seeded
+                int units = parts[c].productValue(0).signum() > 0
+                        ? Math.max(0, GreedyEngine.calculateMaxProducibleUnits(parts[c], 0, parts[c].stock))
+                        : 0;
+                int[] partQuantities = {units};
+                if (units > partIncumbent[0]) {
+                    merge.improved(c, partQuantities);
+                }
+                merge.copyInto(c, partQuantities, quantities);
+                merge.bounded(c, parts[c].productValue(0).multiply(BigDecimal.valueOf(units)));
+                continue;
+            }
+            PartProgress partProgress = new PartProgress(merge, c);
+            searches.add(() -> search(parts[c], partIncumbent, partProgress, nodeLimit, decomposition.roots(), c));
+        }
+
+        try {
+            List<Future<int[]>> results = pool.invokeAll(searches);
+            int s = 0;
+            for (int c : order) {
+                if (parts[c].productCount() > 1) {
+                    merge.copyInto(c, results.get(s++).get(), quantities);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while solving the catalog parts");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return quantities;
+    }
+
+    /**
+     * Splits the catalog into its independent parts, reusing the split of the last call when the
+     * structure did not change. A catalog that does not split is solved as a whole.
+     */
+    private Decomposition decompose(CatalogSnapshot snapshot) {
+        Decomposition previous = lastDecomposition;
+        if (previous != null && snapshot.sharesStructureWith(previous.snapshot())) {
+            return previous;
+        }
+        CatalogComponents components = CatalogComponents.of(snapshot);
+        Decomposition decomposition = components.size() > 1
+                ? new Decomposition(snapshot, components, new AtomicReferenceArray<>(components.size()))
+                : new Decomposition(snapshot, null, new AtomicReferenceArray<>(1));
+        lastDecomposition = decomposition;
+        return decomposition;
+    }
+
+    private int[] search(CatalogSnapshot snapshot, int[] incumbent, SolveProgress progress, int nodeLimit,
+                         AtomicReferenceArray<Root> roots, int slot) {
+        try {
+            Root root = solveRoot(snapshot, progress, roots, slot);
+            if (root == null) {
+                return incumbent;
+            }
+            progress.bounded(BigDecimal.valueOf((long) Math.floor(root.simplex().objective() + INTEGRALITY_TOLERANCE))
+                    .movePointLeft(snapshot.valueScale));
+            return new Search(snapshot, root.model(), root.simplex().copy(), incumbent, progress, nodeLimit, relativeGap).run();
+        } catch (IllegalStateException e) {
+            // Numerical trouble in the LP: fall back to the best plan we have
+            return incumbent;
+        }
+    }
+
+    /**
+     * Returns the optimal root relaxation for the snapshot, or {@code null} if there is nothing to
+     * optimize or the LP could not be solved in time. When the previous call was on a snapshot with
+     * the same structure, its optimal basis is re-optimized with the dual simplex after patching the
+     * right-hand sides and bounds of the changed materials, instead of solving from scratch.
+     */
+    private Root solveRoot(CatalogSnapshot snapshot, SolveProgress progress, AtomicReferenceArray<Root> roots, int slot) {
+        Root previous = roots.get(slot);
+        if (previous != null && snapshot.sharesStructureWith(previous.snapshot())) {
+            if (previous.model() == null) {
+                return null;
+            }
+            RelaxationModel model = previous.model();
+            BoundedSimplex simplex = previous.simplex().copy();
+            int[] previousStock = previous.snapshot().stock;
+            for (int m = 0; m < previousStock.length; m++) {
+                int row = model.rowOf()[m];
+                if (row < 0 || snapshot.stock[m] == previousStock[m]) {
+                    continue;
+                }
+                simplex.setRhs(row, Math.max(0, snapshot.stock[m]));
+                for (int k = model.userStart()[row]; k < model.userStart()[row + 1]; k++) {
+                    int column = model.users()[k];
+                    simplex.rebound(column, 0, RelaxationModel.upperBound(snapshot, model.products()[column]));
+                }
+            }
+            if (simplex.dual(progress) == BoundedSimplex.Status.OPTIMAL) {
+                Root root = new Root(snapshot, model, simplex);
+                roots.set(slot, root);
+                return root;
+            }
+        }
+
+        RelaxationModel model = RelaxationModel.of(snapshot);
+        if (model == null) {
+            roots.set(slot, new Root(snapshot, null, null));
+            return null;
+        }
+        BoundedSimplex simplex = model.relaxation(snapshot);
+        if (simplex.primal(progress) != BoundedSimplex.Status.OPTIMAL) {
+            return null;
+        }
+        Root root = new Root(snapshot, model, simplex);
+        roots.set(slot, root);
+        return root;
+    }
+
+    /**
+     * An optimal root relaxation, kept untouched so that the next call can warm-start from a copy.
+     */
+    private record Root(CatalogSnapshot snapshot, RelaxationModel model, BoundedSimplex simplex) {
+    }
+
+    /**
+     * How a catalog structure is solved: as a whole ({@code components} is {@code null}) or in parts,
+     * with the last root relaxation found for each part.
+     */
+    private record Decomposition(CatalogSnapshot snapshot, CatalogComponents components, AtomicReferenceArray<Root> roots) {
+    }
+
+    /**
+     * Puts the plans of the parts of one solve together, reporting them to the caller's progress as
+     * plans for the whole catalog. The bound is reported once every part has one.
+     */
+    private static final class Merge {
+
+        private final CatalogComponents components;
+        private final SolveProgress progress;
+        private final BigDecimal[] bounds;
+        private final LongAdder nodes = new LongAdder();
+        private int[] plan;
+        private int unbounded;
+
+        Merge(CatalogComponents components, int[] incumbent, SolveProgress progress) {
+            this.components = components;
+            this.progress = progress;
+            this.bounds = new BigDecimal[components.size()];
+            this.plan = incumbent;
+            this.unbounded = components.size();
+        }
+
+        int[] project(int part, int[] quantities) {
+            int[] products = components.products(part);
+            int[] projected = new int[products.length];
+            for (int p = 0; p < products.length; p++) {
+                projected[p] = quantities[products[p]];
+            }
+            return projected;
+        }
+
+        void copyInto(int part, int[] partQuantities, int[] quantities) {
+            int[] products = components.products(part);
+            for (int p = 0; p < products.length; p++) {
+                quantities[products[p]] = partQuantities[p];
+            }
+        }
+
+        synchronized void improved(int part, int[] partQuantities) {
+            int[] merged = plan.clone();
+            copyInto(part, partQuantities, merged);
+            plan = merged;
+            progress.improved(merged);
+        }
+
+        void explored(long newNodes) {
+            nodes.add(newNodes);
+            progress.explored(nodes.sum());
+        }
+
+        synchronized void bounded(int part, BigDecimal bound) {
+            if (bounds[part] == null) {
+                unbounded--;
+            }
+            bounds[part] = bound;
+            if (unbounded == 0) {
+                progress.bounded(Arrays.stream(bounds).reduce(BigDecimal.ZERO, BigDecimal::add));
+            }
+        }
+    }
+
+    /**
+     * Progress of one part: stops when the whole solve does and reports to its {@link Merge}.
+     */
+    private static final class PartProgress extends SolveProgress {
+
+        private final Merge merge;
+        private final int part;
+        private long reportedNodes;
+
+        PartProgress(Merge merge, int part) {
+            super(Long.MAX_VALUE);
+            this.merge = merge;
+            this.part = part;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return merge.progress.isCancelled();
+        }
+
+        @Override
+        public boolean shouldStop() {
+            return merge.progress.shouldStop();
+        }
+
+        @Override
+        void improved(int[] quantities) {
+            super.improved(quantities);
+            merge.improved(part, quantities);
+        }
+
+        @Override
+        void explored(long nodes) {
+            super.explored(nodes);
+            merge.explored(nodes - reportedNodes);
+            reportedNodes = nodes;
+        }
+
+        @Override
+        void bounded(BigDecimal upperBound) {
+            super.bounded(upperBound);
+            merge.bounded(part, upperBound);
+        }
+    }
+
+    /**
+     * Progress of the search on a presolved catalog: reports its plans to the caller as plans for the
+     * whole catalog.
+     */
+    private static final class ReducedProgress extends SolveProgress {
+
+        private final SolveProgress progress;
+        private final Presolve presolve;
+        private final Presolve.Reduction reduction;
+
+        ReducedProgress(SolveProgress progress, Presolve presolve, Presolve.Reduction reduction) {
+            super(Long.MAX_VALUE);
+            this.progress = progress;
+            this.presolve = presolve;
+            this.reduction = reduction;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return progress.isCancelled();
+        }
+
+        @Override
+        public boolean shouldStop() {
+            return progress.shouldStop();
+        }
+
+        @Override
+        void improved(int[] quantities) {
+            super.improved(quantities);
+            progress.improved(presolve.expand(reduction, quantities));
+        }
+
+        @Override
+        void explored(long nodes) {
+            super.explored(nodes);
+            progress.explored(nodes);
+        }
+
+        @Override
+        void bounded(BigDecimal upperBound) {
+            super.bounded(upperBound);
+            progress.bounded(upperBound);
+        }
+    }
+
+    /**
+     * A subproblem that still has to be explored: its bound changes relative to the root, the basis
+     * of its parent's optimum to warm-start from, and the parent's objective as an upper bound.
+     */
+    private record Node(Node parent, int column, double lower, double upper, BoundedSimplex.Basis basis, double bound) {
+    }
+
+    private static final class Search {
+
+        private final CatalogSnapshot snapshot;
+        private final RelaxationModel model;
+        private final BoundedSimplex simplex;
+        private final double[] rootLower;
+        private final double[] rootUpper;
+        private final SolveProgress progress;
+        private final int nodeLimit;
+        private final double relativeGap;
+        private final Deque<Node> open = new ArrayDeque<>();
+        private final int[] candidate;
+        private final long[] remaining;
+
+        private int[] incumbent;
+        private double incumbentValue;
+        private int nodes;
+
+        Search(CatalogSnapshot snapshot, RelaxationModel model, BoundedSimplex simplex, int[] incumbent, SolveProgress progress,
+               int nodeLimit, double relativeGap) {
+            this.snapshot = snapshot;
+            this.model = model;
+            this.simplex = simplex;
+            this.rootLower = simplex.lower.clone();
+            this.rootUpper = simplex.upper.clone();
+            this.progress = progress;
+            this.nodeLimit = nodeLimit;
+            this.relativeGap = relativeGap;
+            this.incumbent = incumbent;
+            this.incumbentValue = value(incumbent);
+            this.candidate = new int[snapshot.productCount()];
+            this.remaining = new long[snapshot.materialCount()];
+        }
+
+        /**
+         * Runs the search from the root optimum currently held by the simplex.
+         */
+        int[] run() {
+            Node current = null;
+            while (true) {
+                nodes++;
+                Node next = branch(current);
+                if (next == null) {
+                    next = nextOpenNode();
+                    if (next == null) {
+                        progress.explored(nodes);
+                        return incumbent;
+                    }
+                }
+                current = next;
+            }
+        }
+
+        /**
+         * Evaluates the LP optimum currently held by the simplex. If it can be split further, dives
+         * into the preferred child right away and returns it, pushing the sibling onto the stack.
+         */
+        private Node branch(Node node) {
+            double bound = simplex.objective();
+            if (!improves(bound)) {
+                return null;
+            }
+            int branchColumn = -1;
+            double mostFractional = INTEGRALITY_TOLERANCE;
+            for (int c = 0; c < simplex.columns; c++) {
+                double fraction = simplex.x[c] - Math.floor(simplex.x[c]);
+                double distance = Math.min(fraction, 1 - fraction);
+                if (distance > mostFractional) {
+                    mostFractional = distance;
+                    branchColumn = c;
+                }
+            }
+            considerRounding();
+            if (branchColumn < 0 || !improves(bound) || !withinLimits()) {
+                return null;
+            }
+
+            double value = simplex.x[branchColumn];
+            double floor = Math.floor(value);
+            double lower = simplex.lower[branchColumn];
+            double upper = simplex.upper[branchColumn];
+            BoundedSimplex.Basis basis = simplex.saveBasis();
+            boolean downFirst = value - floor < 0.5;
+            Node down = new Node(node, branchColumn, lower, floor, basis, bound);
+            Node up = new Node(node, branchColumn, floor + 1, upper, basis, bound);
+            open.push(downFirst ? up : down);
+
+            Node dive = downFirst ? down : up;
+            simplex.setBounds(branchColumn, dive.lower(), dive.upper());
+            BoundedSimplex.Status status = simplex.dual(progress);
+            if (status == BoundedSimplex.Status.LIMIT_REACHED) {
+                open.clear();
+                return null;
+            }
+            return status == BoundedSimplex.Status.OPTIMAL ? dive : null;
+        }
+
+        private Node nextOpenNode() {
+            while (!open.isEmpty() && withinLimits()) {
+                Node node = open.pop();
+                if (!improves(node.bound())) {
+                    continue;
+                }
+                applyBounds(node);
+                if (!simplex.restoreBasis(node.basis())) {
+                    continue; // Singular warm start; skipping the node only costs optimality, never feasibility
+                }
+                BoundedSimplex.Status status = simplex.dual(progress);
+                if (status == BoundedSimplex.Status.OPTIMAL) {
+                    return node;
+                }
+                if (status == BoundedSimplex.Status.LIMIT_REACHED) {
+                    break;
+                }
+                nodes++;
+            }
+            return null;
+        }
+
+        private void applyBounds(Node node) {
+            System.arraycopy(rootLower, 0, simplex.lower, 0, rootLower.length);
+            System.arraycopy(rootUpper, 0, simplex.upper, 0, rootUpper.length);
+            Deque<Node> path = new ArrayDeque<>();
+            for (Node n = node; n != null; n = n.parent()) {
+                path.push(n);
+            }
+            for (Node n : path) {
+                simplex.lower[n.column()] = n.lower();
+                simplex.upper[n.column()] = n.upper();
+            }
+        }
+
+        private boolean withinLimits() {
+            progress.explored(nodes);
+            return nodes < nodeLimit && !progress.shouldStop();
+        }
+
+        /**
+         * Whether a subproblem with this LP bound can still contain a plan that beats the incumbent
+         * by at least one value step and by more than the accepted relative gap.
+         */
+        private boolean improves(double bound) {
+            double required = Math.max(model.step(), relativeGap * Math.abs(bound));
+            return bound - incumbentValue >= required - 1e-6 * Math.max(1, Math.abs(bound));
+        }
+
+        /**
+         * Rounds the LP solution down and fills the leftover stock greedily; keeps the result if it
+         * beats the incumbent.
+         */
+        private void considerRounding() {
+            Arrays.fill(candidate, 0);
+            for (int c = 0; c < simplex.columns; c++) {
+                candidate[model.products()[c]] = (int) Math.floor(simplex.x[c] + INTEGRALITY_TOLERANCE);
+            }
+            for (int m = 0; m < remaining.length; m++) {
+                remaining[m] = snapshot.stock[m];
+            }
+            for (int p = 0; p < candidate.length; p++) {
+                for (int i = snapshot.compositionStart[p]; i < snapshot.compositionStart[p + 1]; i++) {
+                    remaining[snapshot.compositionMaterial[i]] -= (long) candidate[p] * snapshot.compositionQuantity[i];
+                }
+            }
+            for (int m = 0; m < remaining.length; m++) {
+                if (remaining[m] < 0 && snapshot.stock[m] >= 0) {
+                    return; // LP solution was not feasible after all; nothing to round
+                }
+            }
+            for (int product : snapshot.efficiencyOrder) {
+                if (snapshot.unitValues[product] <= 0 || !snapshot.hasComposition(product)) {
+                    continue;
+                }
+                long units = Long.MAX_VALUE;
+                for (int i = snapshot.compositionStart[product]; i < snapshot.compositionStart[product + 1]; i++) {
+                    units = Math.min(units, Math.max(0, remaining[snapshot.compositionMaterial[i]]) / snapshot.compositionQuantity[i]);
+                }
+                if (units > 0) {
+                    candidate[product] += (int) units;
+                    for (int i = snapshot.compositionStart[product]; i < snapshot.compositionStart[product + 1]; i++) {
+                        remaining[snapshot.compositionMaterial[i]] -= units * snapshot.compositionQuantity[i];
+                    }
+                }
+            }
+            double candidateValue = value(candidate);
+            if (candidateValue > incumbentValue) {
+                incumbent = candidate.clone();
+                incumbentValue = candidateValue;
+                progress.improved(incumbent);
+            }
+        }
+
+        private double value(int[] quantities) {
+            return snapshot.valueOf(quantities);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Fast heuristic: walks the products by descending efficiency score and produces as many
+ * units of each one as the remaining stock allows.
+ * <p>
+ * The last run is kept, so that a snapshot which only differs from it in stock levels is solved by
+ * replaying the ranking from the first product that uses a changed material. Everything before that
+ * position would be decided exactly as before, so the plan is identical to a full run.
+ */
+@Component
+public class GreedyEngine implements OptimizerEngine {
+
+    public static final String NAME = "greedy";
+
+    /**
+     * A finished run: the plan and the stock left over after it.
+     */
+    private record Run(CatalogSnapshot snapshot, int[] quantities, int[] remainingStock) {
+    }
+
+    private volatile Run lastRun;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int[] solve(CatalogSnapshot snapshot) {
+        Run previous = lastRun;
+        if (previous != null && previous.snapshot() == snapshot) {
+            return previous.quantities();
+        }
+
+        int[] availableStock;
+        int[] quantities;
+        int startRank;
+        if (previous != null && snapshot.sharesStructureWith(previous.snapshot())) {
+            availableStock = previous.remainingStock().clone();
+            quantities = previous.quantities().clone();
+            startRank = snapshot.productCount();
+            int[] previousStock = previous.snapshot().stock;
+            for (int m = 0; m < availableStock.length; m++) {
+                if (snapshot.stock[m] != previousStock[m]) {
+                    availableStock[m] += snapshot.stock[m] - previousStock[m];
+                    startRank = Math.min(startRank, snapshot.firstUseRank[m]);
+                }
+            }
+            // Give back what the replayed part of the ranking consumed last time
+            for (int rank = startRank; rank < snapshot.productCount(); rank++) {
+                int product = snapshot.efficiencyOrder[rank];
+                int units = quantities[product];
+                if (units > 0) {
+                    for (int i = snapshot.compositionStart[product]; i < snapshot.compositionStart[product + 1]; i++) {
+                        availableStock[snapshot.compositionMaterial[i]] += units * snapshot.compositionQuantity[i];
+                    }
+                    quantities[product] = 0;
+                }
+            }
+        } else {
+            availableStock = snapshot.stock.clone();
+            quantities = new int[snapshot.productCount()];
+            startRank = 0;
+        }
+
+        produceFrom(snapshot, snapshot.efficiencyOrder, startRank, availableStock, quantities);
+        lastRun = new Run(snapshot, quantities, availableStock);
+        return quantities;
+    }
+
+    /**
+     * Walks {@code order} from {@code startRank} and produces as many units of each product as the
+     * remaining stock allows, updating {@code availableStock} and {@code quantities} in place.
+     */
+    static void produceFrom(CatalogSnapshot snapshot, int[] order, int startRank, int[] availableStock, int[] quantities) {
+        for (int rank = startRank; rank < order.length; rank++) {
+            int product = order[rank];
+            if (!snapshot.hasComposition(product)) {
+                continue; // Cannot produce a product with no composition defined
+            }
+
+            int maxUnitsToProduce = calculateMaxProducibleUnits(snapshot, product, availableStock);
+            if (maxUnitsToProduce > 0) {
+                quantities[product] = maxUnitsToProduce;
+                for (int i = snapshot.compositionStart[product]; i < snapshot.compositionStart[product + 1]; i++) {
+                    availableStock[snapshot.compositionMaterial[i]] -= maxUnitsToProduce * snapshot.compositionQuantity[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines the maximum number of units of a single product that can be
+     * produced based on the currently available stock of raw materials.
+     */
+    static int calculateMaxProducibleUnits(CatalogSnapshot snapshot, int product, int[] availableStock) {
+        int maxPossibleUnits = Integer.MAX_VALUE;
+
+        for (int i = snapshot.compositionStart[product]; i < snapshot.compositionStart[product + 1]; i++) {
+            int unitsPossibleForThisMaterial = availableStock[snapshot.compositionMaterial[i]] / snapshot.compositionQuantity[i];
+            if (unitsPossibleForThisMaterial < maxPossibleUnits) {
+                maxPossibleUnits = unitsPossibleForThisMaterial;
+            }
+        }
+
+        return maxPossibleUnits == Integer.MAX_VALUE ? 0 : maxPossibleUnits;
+    }
+}
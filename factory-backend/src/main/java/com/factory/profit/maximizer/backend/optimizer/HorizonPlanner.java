@@ -0,0 +1,81 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plans consecutive periods with scheduled replenishments; whatever stock a period leaves is carried
+ * over to the next. Each period is planned on a rolling window of the periods that follow: the engine
+ * plans the window as if all of its stock were there at once, and the period produces the part of that
+ * plan its own stock already allows, in efficiency order. Stock a later product of the window needs is
+ * thereby kept for it rather than spent on something worth less now.
+ * <p>
+ * Consecutive windows only differ in stock, so every window is a stock-only copy of the catalog and the
+ * engines warm-start from the previous one. What the period did not produce of the window plan is
+ * still feasible for the next window, which has at least that stock left, and seeds its solve.
+ */
+public final class HorizonPlanner {
+
+    private HorizonPlanner() {
+    }
+
+    /**
+     * Returns the units to produce per period, indexed by period and product ordinal of the snapshot.
+     * The first period starts with the stock of the snapshot; {@code replenishments} holds, per period,
+     * the quantity of each raw material id that arrives at its start. The time budget is shared by all
+     * windows. Throws {@link ArithmeticException} if the stock of a window does not fit in an int.
+     */
+    public static int[][] plan(OptimizerEngine engine, CatalogSnapshot snapshot, List<Map<Long, Integer>> replenishments,
+                               int window, long timeBudgetMillis) {
+        int periods = replenishments.size();
+        int[][] arrivals = new int[periods][];
+        for (int t = 0; t < periods; t++) {
+            arrivals[t] = new int[snapshot.materialCount()];
+            for (Map.Entry<Long, Integer> arrival : replenishments.get(t).entrySet()) {
+                int material = snapshot.materialOrdinals.get(arrival.getKey());
+                arrivals[t][material] = Math.addExact(arrivals[t][material], arrival.getValue());
+            }
+        }
+
+        long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+        int[][] quantities = new int[periods][];
+        int[] available = snapshot.stock.clone();
+        int[] seed = new int[snapshot.productCount()];
+        for (int t = 0; t < periods; t++) {
+            add(available, arrivals[t]);
+            int[] windowStock = available.clone();
+            for (int later = t + 1; later < Math.min(periods, t + window); later++) {
+                add(windowStock, arrivals[later]);
+            }
+            // Every remaining period gets an even share of the time left
+            long now = System.nanoTime();
+            SolveProgress progress = new SolveProgress(now + Math.max(0, deadline - now) / (periods - t));
+            int[] windowPlan = engine.solve(snapshot.withStock(windowStock), seed, progress);
+
+            int[] produced = new int[snapshot.productCount()];
+            int[] remainder = windowPlan.clone();
+            for (int product : snapshot.efficiencyOrder) {
+                if (windowPlan[product] <= 0) {
+                    continue;
+                }
+                int units = Math.min(windowPlan[product], GreedyEngine.calculateMaxProducibleUnits(snapshot, product, available));
+                if (units > 0) {
+                    produced[product] = units;
+                    remainder[product] -= units;
+                    for (int i = snapshot.compositionStart[product]; i < snapshot.compositionStart[product + 1]; i++) {
+                        available[snapshot.compositionMaterial[i]] -= units * snapshot.compositionQuantity[i];
+                    }
+                }
+            }
+            quantities[t] = produced;
+            seed = remainder;
+        }
+        return quantities;
+    }
+
+    private static void add(int[] stock, int[] arrivals) {
+        for (int m = 0; m < stock.length; m++) {
+            stock[m] = Math.addExact(stock[m], arrivals[m]);
+        }
+    }
+}
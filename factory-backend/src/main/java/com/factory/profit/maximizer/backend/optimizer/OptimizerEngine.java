@@ -0,0 +1,38 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+/**
+ * Strategy that decides how many units of each product to produce from a catalog snapshot.
+ */
+public interface OptimizerEngine {
+
+    /**
+     * Name used to select the engine, e.g. through {@code /api/production/optimize?engine=}.
+     */
+    String name();
+
+    /**
+     * Returns the number of units to produce, indexed by product ordinal of the snapshot.
+     * Engines may hand out the same array for repeated calls, so it must not be modified.
+     */
+    int[] solve(CatalogSnapshot snapshot);
+
+    /**
+     * Solves under the deadline of {@code progress} instead of the engine's own limits, publishing
+     * improved plans to it as they are found. Engines that cannot be interrupted publish their only plan.
+     */
+    default int[] solve(CatalogSnapshot snapshot, SolveProgress progress) {
+        int[] quantities = solve(snapshot);
+        progress.improved(quantities);
+        return quantities;
+    }
+
+    /**
+     * Like {@link #solve(CatalogSnapshot, SolveProgress)}, starting from {@code seed}, a feasible plan the
+     * caller already has for this snapshot. The result is never worse than the seed; engines that cannot
+     * search from a given plan keep the better of the seed and their own.
+     */
+    default int[] solve(CatalogSnapshot snapshot, int[] seed, SolveProgress progress) {
+        int[] quantities = solve(snapshot, progress);
+        return snapshot.valueOf(quantities) >= snapshot.valueOf(seed) ? quantities : seed;
+    }
+}
@@ -0,0 +1,235 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Races several greedy rankings against each other and keeps the most profitable plan. Every strategy
+ * fills the stock in the order of its own score, like {@link GreedyEngine}:
+ * <ol>
+ *     <li>the efficiency score of the greedy engine, so the result is never worse than its plan;</li>
+ *     <li>value per bottleneck-weighted material unit, where each material is weighted by how much of
+ *     it the catalog as a whole could consume relative to its stock;</li>
+ *     <li>value per share of the scarcest material, i.e. the value of as many units as the stock allows;</li>
+ *     <li>randomized restarts of the bottleneck score, each perturbed with its own seed.</li>
+ * </ol>
+ * Strategies run in parallel until all are done or the time limit passes; the deterministic ones go
+ * first. Among the strategies that finished, equal profits go to the one listed first, so ties do not
+ * depend on which thread finished earlier. Which strategies finish before the time limit does depend
+ * on timing, though, so two calls on the same catalog may return different plans when the limit cuts
+ * the race short.
+ */
+@Component
+public class PortfolioEngine implements OptimizerEngine {
+
+    public static final String NAME = "portfolio";
+
+    private static final int FIXED_STRATEGIES = 3;
+    private static final double RESTART_NOISE = 0.5;
+
+    private final GreedyEngine greedyEngine;
+    private final long timeLimitMillis;
+    private final int restarts;
+    private final ForkJoinPool pool;
+
+    /**
+     * The plan of the last call, returned as is when the same snapshot comes again.
+     */
+    private record Run(CatalogSnapshot snapshot, int[] quantities) {
+    }
+
+    private volatile Run lastRun;
+
+    public PortfolioEngine(GreedyEngine greedyEngine,
+                           @Value("${optimizer.portfolio.time-limit-ms:100}") long timeLimitMillis,
+                           @Value("${optimizer.portfolio.restarts:32}") int restarts,
+                           @Value("${optimizer.portfolio.parallelism:0}") int parallelism) {
+        this.greedyEngine = greedyEngine;
+        this.timeLimitMillis = timeLimitMillis;
+        this.restarts = restarts;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int[] solve(CatalogSnapshot snapshot) {
+        Run previous = lastRun;
+        if (previous != null && previous.snapshot() == snapshot) {
+            return previous.quantities();
+        }
+        int[] quantities = solve(snapshot, SolveProgress.withTimeBudget(timeLimitMillis));
+        lastRun = new Run(snapshot, quantities);
+        return quantities;
+    }
+
+    @Override
+    public int[] solve(CatalogSnapshot snapshot, SolveProgress progress) {
+        Race race = new Race(snapshot, progress);
+        race.offer(0, greedyEngine.solve(snapshot));
+        double[] bottleneckScores = bottleneckScores(snapshot);
+
+        int strategies = FIXED_STRATEGIES + restarts;
+        AtomicInteger next = new AtomicInteger(1);
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int w = 0; w < Math.min(pool.getParallelism(), strategies - 1); w++) {
+            workers.add(() -> {
+                for (int strategy = next.getAndIncrement(); strategy < strategies && !progress.shouldStop();
+                     strategy = next.getAndIncrement()) {
+                    double[] scores = switch (strategy) {
+                        case 1 -> bottleneckScores;
+                        case 2 -> scarcestMaterialScores(snapshot);
+                        default -> perturb(bottleneckScores, strategy);
+                    };
+                    race.offer(strategy, fill(snapshot, scores));
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> result : pool.invokeAll(workers)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while racing the scoring strategies");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return race.best();
+    }
+
+    /**
+     * Value per unit of material, each material weighted by the quantity the whole catalog needs of it
+     * for one unit of every product, divided by its stock. Products that cannot be made score
+     * {@code -Infinity} and are skipped.
+     */
+    static double[] bottleneckScores(CatalogSnapshot snapshot) {
+        double[] demand = new double[snapshot.materialCount()];
+        for (int i = 0; i < snapshot.compositionLineCount(); i++) {
+            demand[snapshot.compositionMaterial[i]] += snapshot.compositionQuantity[i];
+        }
+        double[] scores = new double[snapshot.productCount()];
+        for (int p = 0; p < scores.length; p++) {
+            double weightedCost = 0;
+            for (int i = snapshot.compositionStart[p]; i < snapshot.compositionStart[p + 1]; i++) {
+                int material = snapshot.compositionMaterial[i];
+                if (snapshot.stock[material] <= 0) {
+                    weightedCost = Double.POSITIVE_INFINITY;
+                    break;
+                }
+                weightedCost += snapshot.compositionQuantity[i] * demand[material] / snapshot.stock[material];
+            }
+            scores[p] = score(snapshot, p, weightedCost);
+        }
+        return scores;
+    }
+
+    /**
+     * Value of as many units as the scarcest material allows, which ranks products by the value they
+     * get out of the material that limits them most.
+     */
+    static double[] scarcestMaterialScores(CatalogSnapshot snapshot) {
+        double[] scores = new double[snapshot.productCount()];
+        for (int p = 0; p < scores.length; p++) {
+            int units = GreedyEngine.calculateMaxProducibleUnits(snapshot, p, snapshot.stock);
+            scores[p] = units <= 0 ? Double.NEGATIVE_INFINITY : score(snapshot, p, 1.0 / units);
+        }
+        return scores;
+    }
+
+    private static double score(CatalogSnapshot snapshot, int product, double cost) {
+        if (snapshot.unitValues[product] <= 0 || !snapshot.hasComposition(product) || cost == Double.POSITIVE_INFINITY) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return snapshot.unitValues[product] / cost;
+    }
+
+    private static double[] perturb(double[] scores, int seed) {
+        Random random = new Random(seed);
+        double[] perturbed = new double[scores.length];
+        for (int p = 0; p < scores.length; p++) {
+            perturbed[p] = scores[p] * (1 - RESTART_NOISE / 2 + RESTART_NOISE * random.nextDouble());
+        }
+        return perturbed;
+    }
+
+    /**
+     * Produces in descending score order, leaving out products that score {@code -Infinity}.
+     */
+    private static int[] fill(CatalogSnapshot snapshot, double[] scores) {
+        int count = 0;
+        Integer[] order = new Integer[scores.length];
+        for (int p = 0; p < scores.length; p++) {
+            if (scores[p] != Double.NEGATIVE_INFINITY) {
+                order[count++] = p;
+            }
+        }
+        Integer[] ranked = Arrays.copyOf(order, count);
+        Arrays.sort(ranked, (a, b) -> Double.compare(scores[b], scores[a]));
+        int[] quantities = new int[snapshot.productCount()];
+        GreedyEngine.produceFrom(snapshot, Arrays.stream(ranked).mapToInt(Integer::intValue).toArray(), 0,
+                snapshot.stock.clone(), quantities);
+        return quantities;
+    }
+
+    /**
+     * Best plan of one call so far, published to the caller's progress whenever it improves.
+     */
+    private static final class Race {
+
+        private final CatalogSnapshot snapshot;
+        private final SolveProgress progress;
+        private int[] best;
+        private long bestValue;
+        private int bestStrategy;
+
+        Race(CatalogSnapshot snapshot, SolveProgress progress) {
+            this.snapshot = snapshot;
+            this.progress = progress;
+        }
+
+        void offer(int strategy, int[] quantities) {
+            long value = snapshot.valueOf(quantities);
+            synchronized (this) {
+                if (best != null && (value < bestValue || value == bestValue && strategy > bestStrategy)) {
+                    return;
+                }
+                boolean improved = best == null || value > bestValue;
+                best = quantities;
+                bestValue = value;
+                bestStrategy = strategy;
+                if (improved) {
+                    progress.improved(quantities);
+                }
+            }
+        }
+
+        synchronized int[] best() {
+            return best;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import java.util.Arrays;
+
+/**
+ * Shrinks a catalog before it is searched, without changing the best plan value:
+ * <ul>
+ *     <li>products without composition or without a positive value are never worth producing;</li>
+ *     <li>a product is dominated when another one is worth at least as much and needs no raw material
+ *     it does not, and no more of any: every unit of it can be swapped for the other;</li>
+ *     <li>products that the stock cannot make a single unit of are fixed at zero;</li>
+ *     <li>a raw material is redundant when, with every remaining product at the most units the other
+ *     materials allow ({@link GreedyEngine#calculateMaxProducibleUnits}), the stock still covers it.
+ *     Its constraint is implied by the others and is dropped.</li>
+ * </ul>
+ * Dominance depends only on the structure and is worked out once per catalog load; the rest depends on
+ * stock. The last reduction is reused after a stock-only change as long as it is still valid, so the
+ * reduced snapshot keeps its structure and the engine can warm-start from its previous solve.
+ */
+final class Presolve {
+
+    /**
+     * Upper limit on the composition lines compared while looking for dominated products; on very
+     * dense catalogs the search stops there and fewer products are removed.
+     */
+    private static final long DOMINANCE_BUDGET = 50_000_000L;
+
+    private final CatalogSnapshot source;
+    private final boolean[] candidate;
+    private final int[] dominator;
+    private final int dominatedProducts;
+    private volatile Reduction lastReduction;
+
+    private Presolve(CatalogSnapshot source, boolean[] candidate, int[] dominator, int dominatedProducts) {
+        this.source = source;
+        this.candidate = candidate;
+        this.dominator = dominator;
+        this.dominatedProducts = dominatedProducts;
+    }
+
+    /**
+     * A catalog reduced for one stock level: the remaining products and raw materials, as ordinals of
+     * the source snapshot, and the snapshot built from them.
+     */
+    record Reduction(CatalogSnapshot snapshot, int[] products, int[] materials, boolean[] fixed, PresolveReport report) {
+    }
+
+    static Presolve of(CatalogSnapshot snapshot) {
+        int productCount = snapshot.productCount();
+        boolean[] candidate = new boolean[productCount];
+        for (int p = 0; p < productCount; p++) {
+            candidate[p] = snapshot.unitValues[p] > 0 && snapshot.hasComposition(p);
+        }
+        int[] dominator = new int[productCount];
+        Arrays.fill(dominator, -1);
+        int dominated = findDominated(snapshot, candidate, dominator);
+
+        // Point every dominated product straight at a product that is not dominated itself
+        for (int p = 0; p < productCount; p++) {
+            int root = p;
+            while (dominator[root] >= 0) {
+                root = dominator[root];
+            }
+            for (int q = p; dominator[q] >= 0; ) {
+                int next = dominator[q];
+                dominator[q] = root;
+                q = next;
+            }
+        }
+        return new Presolve(snapshot, candidate, dominator, dominated);
+    }
+
+    /**
+     * Whether the presolve can be used for the snapshot, i.e. it differs from the one it was built from
+     * at most in stock levels.
+     */
+    boolean appliesTo(CatalogSnapshot snapshot) {
+        return source.sharesStructureWith(snapshot);
+    }
+
+    /**
+     * Reduces the snapshot, which must share its structure with the source. The previous reduction is
+     * returned with the new stock levels when it is still valid for them.
+     */
+    Reduction reduce(CatalogSnapshot snapshot) {
+        Reduction previous = lastReduction;
+        if (previous != null && stillValid(previous, snapshot)) {
+            if (sameStock(previous, snapshot)) {
+                return previous;
+            }
+            int[] stock = new int[previous.materials().length];
+            for (int m = 0; m < stock.length; m++) {
+                stock[m] = snapshot.stock[previous.materials()[m]];
+            }
+            Reduction reduction = new Reduction(previous.snapshot().withStock(stock), previous.products(),
+                    previous.materials(), previous.fixed(), previous.report());
+            lastReduction = reduction;
+            return reduction;
+        }
+        Reduction reduction = reduceFresh(snapshot);
+        lastReduction = reduction;
+        return reduction;
+    }
+
+    /**
+     * Plan of the reduced catalog for a plan of the source: units of a dominated product move to the
+     * product that dominates it, which needs no more stock and is worth at least as much, and products
+     * that can only lose value are left out.
+     */
+    int[] project(Reduction reduction, int[] quantities) {
+        int[] local = new int[source.productCount()];
+        Arrays.fill(local, -1);
+        for (int p = 0; p < reduction.products().length; p++) {
+            local[reduction.products()[p]] = p;
+        }
+        int[] projected = new int[reduction.products().length];
+        for (int p = 0; p < quantities.length; p++) {
+            if (quantities[p] <= 0 || !candidate[p]) {
+                continue;
+            }
+            int target = dominator[p] >= 0 ? dominator[p] : p;
+            if (local[target] >= 0) {
+                projected[local[target]] += quantities[p];
+            }
+        }
+        return projected;
+    }
+
+    /**
+     * Plan of the source catalog for a plan of the reduced one; removed products are not produced.
+     */
+    int[] expand(Reduction reduction, int[] reducedQuantities) {
+        int[] quantities = new int[source.productCount()];
+        for (int p = 0; p < reduction.products().length; p++) {
+            quantities[reduction.products()[p]] = reducedQuantities[p];
+        }
+        return quantities;
+    }
+
+    private Reduction reduceFresh(CatalogSnapshot snapshot) {
+        int productCount = snapshot.productCount();
+        int materialCount = snapshot.materialCount();
+        boolean[] fixed = new boolean[productCount];
+        boolean[] kept = new boolean[productCount];
+        int fixedProducts = 0;
+        for (int p = 0; p < productCount; p++) {
+            if (!candidate[p] || GreedyEngine.calculateMaxProducibleUnits(snapshot, p, snapshot.stock) <= 0) {
+                fixed[p] = true;
+                fixedProducts++;
+            } else {
+                kept[p] = dominator[p] < 0;
+            }
+        }
+
+        int[] userStart = new int[materialCount + 1];
+        int[] users = usersOf(snapshot, kept, userStart);
+        boolean[] dropped = new boolean[materialCount];
+        int redundantMaterials = 0;
+        for (int m = 0; m < materialCount; m++) {
+            if (userStart[m] < userStart[m + 1] && implied(snapshot, m, users, userStart, dropped)) {
+                dropped[m] = true;
+                redundantMaterials++;
+            }
+        }
+
+        int[] products = new int[productCount];
+        int remainingProducts = 0;
+        for (int p = 0; p < productCount; p++) {
+            if (kept[p]) {
+                products[remainingProducts++] = p;
+            }
+        }
+        products = Arrays.copyOf(products, remainingProducts);
+        int[] materials = new int[materialCount];
+        int[] localMaterial = new int[materialCount];
+        Arrays.fill(localMaterial, -1);
+        int remainingMaterials = 0;
+        for (int m = 0; m < materialCount; m++) {
+            if (userStart[m] < userStart[m + 1] && !dropped[m]) {
+                localMaterial[m] = remainingMaterials;
+                materials[remainingMaterials++] = m;
+            }
+        }
+        materials = Arrays.copyOf(materials, remainingMaterials);
+
+        int[] localProduct = new int[productCount];
+        for (int p = 0; p < remainingProducts; p++) {
+            localProduct[products[p]] = p;
+        }
+        int[] efficiencyOrder = new int[remainingProducts];
+        int filled = 0;
+        for (int product : snapshot.efficiencyOrder) {
+            if (kept[product]) {
+                efficiencyOrder[filled++] = localProduct[product];
+            }
+        }
+
+        CatalogSnapshot reduced = snapshot.part(products, materials, localMaterial, efficiencyOrder);
+        PresolveReport report = new PresolveReport(productCount, materialCount, snapshot.compositionLineCount(),
+                dominatedProducts, fixedProducts, redundantMaterials,
+                remainingProducts, remainingMaterials, reduced.compositionLineCount());
+        return new Reduction(reduced, products, materials, fixed, report);
+    }
+
+    /**
+     * Whether the reduction still gives the same best plan value at the stock levels of the snapshot:
+     * the products it fixed at zero still cannot be made, and every raw material it dropped is still
+     * implied by the ones it kept.
+     */
+    private boolean stillValid(Reduction reduction, CatalogSnapshot snapshot) {
+        for (int p = 0; p < reduction.fixed().length; p++) {
+            if (reduction.fixed()[p] && candidate[p]
+                    && GreedyEngine.calculateMaxProducibleUnits(snapshot, p, snapshot.stock) > 0) {
+                return false;
+            }
+        }
+        boolean[] kept = new boolean[snapshot.productCount()];
+        for (int p : reduction.products()) {
+            kept[p] = true;
+        }
+        int[] userStart = new int[snapshot.materialCount() + 1];
+        int[] users = usersOf(snapshot, kept, userStart);
+        boolean[] dropped = new boolean[snapshot.materialCount()];
+        Arrays.fill(dropped, true);
+        for (int m : reduction.materials()) {
+            dropped[m] = false;
+        }
+        for (int m = 0; m < dropped.length; m++) {
+            if (dropped[m] && userStart[m] < userStart[m + 1] && !implied(snapshot, m, users, userStart, dropped)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameStock(Reduction reduction, CatalogSnapshot snapshot) {
+        int[] stock = reduction.snapshot().stock;
+        for (int m = 0; m < stock.length; m++) {
+            if (stock[m] != snapshot.stock[reduction.materials()[m]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the stock of material {@code m} covers every product that uses it at the most units the
+     * materials that are not dropped allow. A product that uses no other such material is unbounded
+     * without {@code m}, so {@code m} is never implied then.
+     */
+    private static boolean implied(CatalogSnapshot snapshot, int m, int[] users, int[] userStart, boolean[] dropped) {
+        long available = snapshot.stock[m];
+        long needed = 0;
+        for (int k = userStart[m]; k < userStart[m + 1]; k++) {
+            int p = users[k];
+            long units = Long.MAX_VALUE;
+            int quantity = 0;
+            for (int i = snapshot.compositionStart[p]; i < snapshot.compositionStart[p + 1]; i++) {
+                int material = snapshot.compositionMaterial[i];
+                if (material == m) {
+                    quantity = snapshot.compositionQuantity[i];
+                } else if (!dropped[material]) {
+                    units = Math.min(units, Math.max(0, snapshot.stock[material]) / snapshot.compositionQuantity[i]);
+                }
+            }
+            if (units == Long.MAX_VALUE) {
+                return false;
+            }
+            needed += units * quantity;
+            if (needed > available) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Products in {@code kept} that use each material, in compressed sparse row form.
+     */
+    private static int[] usersOf(CatalogSnapshot snapshot, boolean[] kept, int[] userStart) {
+        for (int p = 0; p < kept.length; p++) {
+            if (kept[p]) {
+                for (int i = snapshot.compositionStart[p]; i < snapshot.compositionStart[p + 1]; i++) {
+                    userStart[snapshot.compositionMaterial[i] + 1]++;
+                }
+            }
+        }
+        for (int m = 0; m + 1 < userStart.length; m++) {
+            userStart[m + 1] += userStart[m];
+        }
+        int[] users = new int[userStart[userStart.length - 1]];
+        int[] next = Arrays.copyOf(userStart, userStart.length - 1);
+        for (int p = 0; p < kept.length; p++) {
+            if (kept[p]) {
+                for (int i = snapshot.compositionStart[p]; i < snapshot.compositionStart[p + 1]; i++) {
+                    users[next[snapshot.compositionMaterial[i]]++] = p;
+                }
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Records in {@code dominator} a product that dominates each dominated candidate. A product can only
+     * dominate products that use all of its materials, so for each one only the users of its least used
+     * material are compared. Products with identical composition and value dominate those ranked after
+     * them, which keeps dominance free of cycles.
+     */
+    private static int findDominated(CatalogSnapshot snapshot, boolean[] candidate, int[] dominator) {
+        int productCount = snapshot.productCount();
+        int[] userStart = new int[snapshot.materialCount() + 1];
+        int[] users = usersOf(snapshot, candidate, userStart);
+        int[] rank = new int[productCount];
+        for (int r = 0; r < productCount; r++) {
+            rank[snapshot.efficiencyOrder[r]] = r;
+        }
+        // Quantity of each material in the product being compared against, 0 when unused
+        int[] quantityOf = new int[snapshot.materialCount()];
+        long budget = DOMINANCE_BUDGET;
+        int dominated = 0;
+
+        for (int q = 0; q < productCount && budget > 0; q++) {
+            if (!candidate[q]) {
+                continue;
+            }
+            int rarest = snapshot.compositionMaterial[snapshot.compositionStart[q]];
+            for (int i = snapshot.compositionStart[q] + 1; i < snapshot.compositionStart[q + 1]; i++) {
+                int material = snapshot.compositionMaterial[i];
+                if (userStart[material + 1] - userStart[material] < userStart[rarest + 1] - userStart[rarest]) {
+                    rarest = material;
+                }
+            }
+            int qLines = snapshot.compositionStart[q + 1] - snapshot.compositionStart[q];
+            for (int k = userStart[rarest]; k < userStart[rarest + 1]; k++) {
+                int p = users[k];
+                int pLines = snapshot.compositionStart[p + 1] - snapshot.compositionStart[p];
+                if (p == q || dominator[p] >= 0 || pLines < qLines || snapshot.unitValues[q] < snapshot.unitValues[p]) {
+                    continue;
+                }
+                budget -= pLines + qLines;
+                for (int i = snapshot.compositionStart[p]; i < snapshot.compositionStart[p + 1]; i++) {
+                    quantityOf[snapshot.compositionMaterial[i]] = snapshot.compositionQuantity[i];
+                }
+                boolean covered = true;
+                boolean strictlyLess = pLines > qLines || snapshot.unitValues[q] > snapshot.unitValues[p];
+                for (int i = snapshot.compositionStart[q]; i < snapshot.compositionStart[q + 1] && covered; i++) {
+                    int available = quantityOf[snapshot.compositionMaterial[i]];
+                    covered = snapshot.compositionQuantity[i] <= available;
+                    strictlyLess |= snapshot.compositionQuantity[i] < available;
+                }
+                for (int i = snapshot.compositionStart[p]; i < snapshot.compositionStart[p + 1]; i++) {
+                    quantityOf[snapshot.compositionMaterial[i]] = 0;
+                }
+                if (covered && (strictlyLess || rank[q] < rank[p])) {
+                    dominator[p] = q;
+                    dominated++;
+                }
+            }
+        }
+        return dominated;
+    }
+}
@@ -0,0 +1,10 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+/**
+ * How much a presolve reduced a catalog: its size before and after, and how many products were
+ * removed as dominated or fixed at zero and how many raw material constraints were dropped as redundant.
+ */
+public record PresolveReport(int products, int materials, int compositionLines,
+                             int dominatedProducts, int fixedProducts, int redundantMaterials,
+                             int remainingProducts, int remainingMaterials, int remainingCompositionLines) {
+}
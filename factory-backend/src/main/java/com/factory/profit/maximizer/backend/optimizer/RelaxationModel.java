@@ -0,0 +1,132 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import java.util.Arrays;
+
+/**
+ * Linear relaxation of the production problem. LP columns are the products worth producing (positive value and a composition); rows are the
+ * raw materials those products consume. Only the bounds and right-hand sides depend on stock, so
+ * a model can be reused for every snapshot with the same structure. {@code users} lists, per row,
+ * the columns that consume that material.
+ */
+record RelaxationModel(int[] products, int[] materials, int[] rowOf, int[] columnStart, int[] rowIndex,
+                       double[] coefficient, double[] cost, int[] userStart, int[] users, double step) {
+
+    static RelaxationModel of(CatalogSnapshot snapshot) {
+        int[] products = new int[snapshot.productCount()];
+        int columns = 0;
+        for (int p = 0; p < snapshot.productCount(); p++) {
+            if (snapshot.unitValues[p] > 0 && snapshot.hasComposition(p)) {
+                products[columns++] = p;
+            }
+        }
+        if (columns == 0) {
+            return null;
+        }
+        products = Arrays.copyOf(products, columns);
+
+        int[] rowOf = new int[snapshot.materialCount()];
+        Arrays.fill(rowOf, -1);
+        int[] materials = new int[snapshot.materialCount()];
+        int rows = 0;
+        int[] columnStart = new int[columns + 1];
+        int entries = 0;
+        for (int c = 0; c < columns; c++) {
+            int p = products[c];
+            entries += snapshot.compositionStart[p + 1] - snapshot.compositionStart[p];
+        }
+        int[] rowIndex = new int[entries];
+        double[] coefficient = new double[entries];
+        double[] cost = new double[columns];
+        int k = 0;
+        for (int c = 0; c < columns; c++) {
+            int p = products[c];
+            columnStart[c] = k;
+            cost[c] = snapshot.unitValues[p];
+            for (int i = snapshot.compositionStart[p]; i < snapshot.compositionStart[p + 1]; i++) {
+                int material = snapshot.compositionMaterial[i];
+                if (rowOf[material] < 0) {
+                    rowOf[material] = rows;
+                    materials[rows++] = material;
+                }
+                rowIndex[k] = rowOf[material];
+                coefficient[k++] = snapshot.compositionQuantity[i];
+            }
+        }
+        columnStart[columns] = k;
+        materials = Arrays.copyOf(materials, rows);
+
+        int[] userStart = new int[rows + 1];
+        for (int e = 0; e < entries; e++) {
+            userStart[rowIndex[e] + 1]++;
+        }
+        for (int r = 0; r < rows; r++) {
+            userStart[r + 1] += userStart[r];
+        }
+        int[] users = new int[entries];
+        int[] next = Arrays.copyOf(userStart, rows);
+        for (int c = 0; c < columns; c++) {
+            for (int e = columnStart[c]; e < columnStart[c + 1]; e++) {
+                users[next[rowIndex[e]]++] = c;
+            }
+        }
+
+        return new RelaxationModel(products, materials, rowOf, columnStart, rowIndex, coefficient, cost,
+                userStart, users, improvementStep(snapshot, products));
+    }
+
+    /**
+     * Builds the LP relaxation for the stock levels of the given snapshot, in the slack basis.
+     */
+    BoundedSimplex relaxation(CatalogSnapshot snapshot) {
+        double[] rhs = new double[materials.length];
+        for (int r = 0; r < materials.length; r++) {
+            rhs[r] = Math.max(0, snapshot.stock[materials[r]]);
+        }
+        double[] upperBound = new double[products.length];
+        for (int c = 0; c < products.length; c++) {
+            upperBound[c] = upperBound(snapshot, products[c]);
+        }
+        return new BoundedSimplex(materials.length, products.length, columnStart, rowIndex, coefficient,
+                cost, rhs, upperBound);
+    }
+
+    /**
+     * Builds the plain linear program for the stock levels of the given snapshot, in the slack basis.
+     * Unlike {@link #relaxation} it has no per-product upper bounds: they are implied by the rows, but
+     * a product held at such a bound would take the shadow price away from the material that sets it.
+     */
+    BoundedSimplex linearProgram(CatalogSnapshot snapshot) {
+        double[] rhs = new double[materials.length];
+        for (int r = 0; r < materials.length; r++) {
+            rhs[r] = Math.max(0, snapshot.stock[materials[r]]);
+        }
+        double[] upperBound = new double[products.length];
+        Arrays.fill(upperBound, Double.POSITIVE_INFINITY);
+        return new BoundedSimplex(materials.length, products.length, columnStart, rowIndex, coefficient,
+                cost, rhs, upperBound);
+    }
+
+    static double upperBound(CatalogSnapshot snapshot, int product) {
+        return Math.max(0, GreedyEngine.calculateMaxProducibleUnits(snapshot, product, snapshot.stock));
+    }
+
+    /**
+     * Smallest possible difference between two plan values, in fixed-point units: the GCD of the
+     * unit values of all candidate products. A node whose bound does not beat the incumbent by at
+     * least this much can be pruned.
+     */
+    private static double improvementStep(CatalogSnapshot snapshot, int[] products) {
+        long gcd = 0;
+        for (int p : products) {
+            long a = gcd;
+            long b = snapshot.unitValues[p];
+            while (b != 0) {
+                long t = a % b;
+                a = b;
+                b = t;
+            }
+            gcd = Math.abs(a);
+        }
+        return Math.max(gcd, 1);
+    }
+}
@@ -0,0 +1,15 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+/**
+ * Sensitivity of the linear relaxation at its optimum, in currency units. Material arrays are
+ * indexed by material ordinal and product arrays by product ordinal of the snapshot analyzed; an
+ * allowable change of {@link Double#POSITIVE_INFINITY} means there is no limit.
+ */
+public record Sensitivity(double objective,
+                          double[] usedQuantities,
+                          double[] shadowPrices,
+                          double[] allowableIncrease,
+                          double[] allowableDecrease,
+                          double[] quantities,
+                          double[] reducedCosts) {
+}
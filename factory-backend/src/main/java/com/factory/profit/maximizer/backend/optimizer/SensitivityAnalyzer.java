@@ -0,0 +1,156 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Shadow prices, stock ranges and reduced costs from a single solve of the linear relaxation. Its
+ * optimal basis gives all of them: the dual value of a material row is what one more unit of stock
+ * adds to the optimum, and changing a right-hand side moves the basic solution along one column of
+ * the basis inverse, which tells how far the stock can move before some basic variable hits a bound
+ * and the prices change. The last optimum is kept; after a stock-only change it is re-optimized
+ * with the dual simplex instead of solved again.
+ */
+@Component
+public class SensitivityAnalyzer {
+
+    private static final double ZERO_TOLERANCE = 1e-9;
+
+    private final long timeLimitMillis;
+
+    private volatile Solved last;
+
+    /**
+     * An optimal linear program, kept untouched so that the next call can warm-start from a copy.
+     */
+    private record Solved(CatalogSnapshot snapshot, RelaxationModel model, BoundedSimplex simplex, Sensitivity sensitivity) {
+    }
+
+    public SensitivityAnalyzer(@Value("${optimizer.sensitivity.time-limit-ms:30000}") long timeLimitMillis) {
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    /**
+     * Returns the sensitivity of the snapshot's linear relaxation, or {@code null} if it could not be
+     * solved within the time limit.
+     */
+    public Sensitivity analyze(CatalogSnapshot snapshot) {
+        Solved previous = last;
+        if (previous != null && previous.snapshot() == snapshot) {
+            return previous.sensitivity();
+        }
+        SolveProgress progress = SolveProgress.withTimeBudget(timeLimitMillis);
+        try {
+            RelaxationModel model = null;
+            BoundedSimplex simplex = null;
+            if (previous != null && snapshot.sharesStructureWith(previous.snapshot())) {
+                model = previous.model();
+                if (model != null) {
+                    simplex = previous.simplex().copy();
+                    for (int r = 0; r < model.materials().length; r++) {
+                        simplex.setRhs(r, Math.max(0, snapshot.stock[model.materials()[r]]));
+                    }
+                    if (simplex.dual(progress) != BoundedSimplex.Status.OPTIMAL) {
+                        simplex = null;
+                    }
+                }
+            } else {
+                model = RelaxationModel.of(snapshot);
+            }
+            if (model != null && simplex == null) {
+                simplex = model.linearProgram(snapshot);
+                if (simplex.primal(progress) != BoundedSimplex.Status.OPTIMAL) {
+                    return null;
+                }
+            }
+            Sensitivity sensitivity = sensitivity(snapshot, model, simplex);
+            last = new Solved(snapshot, model, simplex, sensitivity);
+            return sensitivity;
+        } catch (IllegalStateException e) {
+            // Numerical trouble in the LP
+            return null;
+        }
+    }
+
+    private static Sensitivity sensitivity(CatalogSnapshot snapshot, RelaxationModel model, BoundedSimplex simplex) {
+        double unit = Math.pow(10, snapshot.valueScale);
+        int materialCount = snapshot.materialCount();
+        double[] used = new double[materialCount];
+        double[] shadowPrices = new double[materialCount];
+        double[] increase = new double[materialCount];
+        double[] decrease = new double[materialCount];
+        double[] quantities = new double[snapshot.productCount()];
+        // A material no candidate product uses is never binding
+        Arrays.fill(increase, Double.POSITIVE_INFINITY);
+        for (int m = 0; m < materialCount; m++) {
+            decrease[m] = Math.max(0, snapshot.stock[m]);
+        }
+
+        double objective = 0;
+        if (model != null) {
+            objective = simplex.objective() / unit;
+            for (int c = 0; c < simplex.columns; c++) {
+                quantities[model.products()[c]] = clean(simplex.x[c]);
+            }
+            for (int r = 0; r < simplex.rows; r++) {
+                int material = model.materials()[r];
+                double dual = 0;
+                for (int b = 0; b < simplex.rows; b++) {
+                    int basic = simplex.basicVariable(b);
+                    if (basic < simplex.columns) {
+                        dual += model.cost()[basic] * simplex.inverse(b, r);
+                    }
+                }
+                shadowPrices[material] = clean(dual) / unit;
+                used[material] = clean(Math.max(0, snapshot.stock[material]) - simplex.x[simplex.columns + r]);
+                increase[material] = allowableIncrease(simplex, r);
+                decrease[material] = Math.min(decrease[material], allowableDecrease(simplex, r));
+            }
+        }
+
+        double[] reducedCosts = new double[snapshot.productCount()];
+        for (int p = 0; p < snapshot.productCount(); p++) {
+            double reducedCost = snapshot.unitValues[p] / unit;
+            for (int i = snapshot.compositionStart[p]; i < snapshot.compositionStart[p + 1]; i++) {
+                reducedCost -= shadowPrices[snapshot.compositionMaterial[i]] * snapshot.compositionQuantity[i];
+            }
+            reducedCosts[p] = Math.abs(reducedCost) <= ZERO_TOLERANCE * Math.max(1, Math.abs(snapshot.unitValues[p] / unit))
+                    ? 0 : reducedCost;
+        }
+        return new Sensitivity(objective, used, shadowPrices, increase, decrease, quantities, reducedCosts);
+    }
+
+    /**
+     * How far the right-hand side of {@code row} can grow while every basic variable stays within its
+     * bounds, so that the basis and with it the shadow prices stay optimal.
+     */
+    private static double allowableIncrease(BoundedSimplex simplex, int row) {
+        return rangeLimit(simplex, row, 1);
+    }
+
+    private static double allowableDecrease(BoundedSimplex simplex, int row) {
+        return rangeLimit(simplex, row, -1);
+    }
+
+    private static double rangeLimit(BoundedSimplex simplex, int row, int direction) {
+        double limit = Double.POSITIVE_INFINITY;
+        for (int b = 0; b < simplex.rows; b++) {
+            // Basic variable b moves by alpha per unit the right-hand side moves
+            double alpha = direction * simplex.inverse(b, row);
+            if (Math.abs(alpha) <= ZERO_TOLERANCE) {
+                continue;
+            }
+            int basic = simplex.basicVariable(b);
+            double value = simplex.x[basic];
+            double room = alpha > 0 ? simplex.upper[basic] - value : value - simplex.lower[basic];
+            limit = Math.min(limit, Math.max(0, room) / Math.abs(alpha));
+        }
+        return clean(limit);
+    }
+
+    private static double clean(double value) {
+        return Math.abs(value) <= ZERO_TOLERANCE ? 0 : value;
+    }
+}
@@ -0,0 +1,75 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import java.math.BigDecimal;
+
+/**
+ * Shared between a running solve and whoever waits for it. The engine publishes each plan that
+ * improves on the previous one and checks {@link #shouldStop()} between steps; once the solve is
+ * cancelled or the deadline passes, it returns the best plan found so far. Engines that split a solve
+ * into parts may hand each part a subclass that passes its reports on to the whole.
+ */
+public class SolveProgress {
+
+    private final long deadline;
+    private volatile boolean cancelled;
+    private volatile int[] bestPlan;
+    private volatile long nodes;
+    private volatile BigDecimal upperBound;
+
+    /**
+     * @param deadline {@link System#nanoTime()} after which the engine should return its best plan
+     */
+    public SolveProgress(long deadline) {
+        this.deadline = deadline;
+    }
+
+    public static SolveProgress withTimeBudget(long millis) {
+        return new SolveProgress(System.nanoTime() + millis * 1_000_000L);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean shouldStop() {
+        return cancelled || System.nanoTime() >= deadline;
+    }
+
+    /**
+     * Best plan published so far, indexed like the result of {@link OptimizerEngine#solve}; {@code null}
+     * until the engine has one. The array must not be modified.
+     */
+    public int[] bestPlan() {
+        return bestPlan;
+    }
+
+    /**
+     * Branch-and-bound nodes explored so far; stays 0 for engines that do not search.
+     */
+    public long nodes() {
+        return nodes;
+    }
+
+    /**
+     * Total profit no plan can exceed, once the engine has proven one; {@code null} otherwise.
+     */
+    public BigDecimal upperBound() {
+        return upperBound;
+    }
+
+    void improved(int[] quantities) {
+        bestPlan = quantities;
+    }
+
+    void explored(long nodes) {
+        this.nodes = nodes;
+    }
+
+    void bounded(BigDecimal upperBound) {
+        this.upperBound = upperBound;
+    }
+}
@@ -0,0 +1,17 @@
+package com.factory.profit.maximizer.backend.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * A product that consumes a given raw material, with how much of it one unit takes and how many units
+ * the stored stock of all the product's materials allows.
+ */
+public record MaterialConsumerRow(
+        Long productId,
+        String productCode,
+        String productName,
+        BigDecimal productValue,
+        int quantityPerUnit,
+        Integer unitsSupported
+) {
+}
@@ -0,0 +1,7 @@
+package com.factory.profit.maximizer.backend.repository;
+
+public record MaterialDeltaRow(
+        Long rawMaterialId,
+        long delta
+) {
+}
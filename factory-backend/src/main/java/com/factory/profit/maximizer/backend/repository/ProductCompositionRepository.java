@@ -1,9 +1,39 @@
 package com.factory.profit.maximizer.backend.repository;
 
 import com.factory.profit.maximizer.backend.model.ProductComposition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ProductCompositionRepository extends JpaRepository<ProductComposition, Long> {
+
+    /**
+     * The products that use the raw material, ordered by code. Found through the index on
+     * {@code raw_material_id}; only their own composition lines are read to bound the units.
+     */
+    @Query("""
+            select new com.factory.profit.maximizer.backend.repository.MaterialConsumerRow(
+                p.id, p.code, p.name, p.value, c.quantity, min(m.stockQuantity / line.quantity))
+            from ProductComposition c
+            join c.product p
+            join p.composition line
+            join line.rawMaterial m
+            where c.rawMaterial.id = :rawMaterialId
+            group by p.id, p.code, p.name, p.value, c.quantity
+            order by p.code
+            """)
+    List<MaterialConsumerRow> findConsumers(@Param("rawMaterialId") Long rawMaterialId);
+
+    @Query("""
+            select c.product.code
+            from ProductComposition c
+            where c.rawMaterial.id = :rawMaterialId
+            order by c.product.code
+            """)
+    List<String> findConsumerCodes(@Param("rawMaterialId") Long rawMaterialId, Limit limit);
 }
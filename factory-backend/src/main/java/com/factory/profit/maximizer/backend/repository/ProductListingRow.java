@@ -0,0 +1,18 @@
+package com.factory.profit.maximizer.backend.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * One product joined with one of its composition lines; the composition columns are {@code null} for
+ * a product without composition.
+ */
+public record ProductListingRow(
+        Long productId,
+        String productCode,
+        String productName,
+        BigDecimal productValue,
+        Long rawMaterialId,
+        String rawMaterialCode,
+        Integer quantity
+) {
+}
@@ -1,7 +1,50 @@
 package com.factory.profit.maximizer.backend.repository;
 
 import com.factory.profit.maximizer.backend.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
-}
\ No newline at end of file
+
+    @Query("select p.code from Product p where p.code in :codes")
+    Set<String> findExistingCodes(@Param("codes") Collection<String> codes);
+
+    /**
+     * Products with a code greater than {@code after}, one row per composition line, ordered by
+     * product code. Rows are projections read through a cursor, so callers can stop early and nothing
+     * piles up in the persistence context. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            select new com.factory.profit.maximizer.backend.repository.ProductListingRow(
+                p.id, p.code, p.name, p.value, m.id, m.code, c.quantity)
+            from Product p
+            left join p.composition c
+            left join c.rawMaterial m
+            where p.code > :after
+            order by p.code, m.code
+            """)
+    Stream<ProductListingRow> streamListing(@Param("after") String after);
+
+    /**
+     * The products with the given codes, one row per composition line, like {@link #streamListing}.
+     */
+    @Query("""
+            select new com.factory.profit.maximizer.backend.repository.ProductListingRow(
+                p.id, p.code, p.name, p.value, m.id, m.code, c.quantity)
+            from Product p
+            left join p.composition c
+            left join c.rawMaterial m
+            where p.code in :codes
+            """)
+    List<ProductListingRow> findListingByCodeIn(@Param("codes") Collection<String> codes);
+}
@@ -0,0 +1,16 @@
+package com.factory.profit.maximizer.backend.repository;
+
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RawMaterialLookupRepository {
+
+    /**
+     * The raw materials with the given ids that exist, in no particular order. Unlike
+     * {@code findAllById}, materials in the second-level cache are taken from it and only the others
+     * are read, all with one query.
+     */
+    List<RawMaterial> findAllByIdCached(Collection<Long> ids);
+}
@@ -0,0 +1,23 @@
+package com.factory.profit.maximizer.backend.repository;
+
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class RawMaterialLookupRepositoryImpl implements RawMaterialLookupRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<RawMaterial> findAllByIdCached(Collection<Long> ids) {
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(RawMaterial.class)
+                .enableOrderedReturn(false)
+                .multiLoad(List.copyOf(ids));
+    }
+}
@@ -1,7 +1,45 @@
 package com.factory.profit.maximizer.backend.repository;
 
+import com.factory.profit.maximizer.backend.dto.RawMaterialViewDto;
 import com.factory.profit.maximizer.backend.model.RawMaterial;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface RawMaterialRepository extends JpaRepository<RawMaterial, Long> {
-}
\ No newline at end of file
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface RawMaterialRepository extends JpaRepository<RawMaterial, Long>, RawMaterialStockRepository,
+        RawMaterialLookupRepository {
+
+    /**
+     * Loaded read-only and without an auto flush: the bulk import only references these materials, so
+     * there is nothing to dirty check or write before the lookup.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT")
+    })
+    List<RawMaterial> findByCodeIn(Collection<String> codes);
+
+    @Query("select m.code from RawMaterial m where m.code in :codes")
+    Set<String> findExistingCodes(@Param("codes") Collection<String> codes);
+
+    @Query("""
+            select new com.factory.profit.maximizer.backend.repository.RawMaterialStockRow(m.id, m.code, m.stockQuantity)
+            from RawMaterial m
+            where m.id in :ids
+            """)
+    List<RawMaterialStockRow> findStockLevels(@Param("ids") Collection<Long> ids);
+
+    @Query("""
+            select new com.factory.profit.maximizer.backend.dto.RawMaterialViewDto(m.id, m.code, m.name, m.stockQuantity, m.version)
+            from RawMaterial m
+            order by m.code
+            """)
+    List<RawMaterialViewDto> findAllViews();
+}
@@ -0,0 +1,29 @@
+package com.factory.profit.maximizer.backend.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Stock changes that go straight to the database instead of through loaded entities.
+ */
+public interface RawMaterialStockRepository {
+
+    /**
+     * Subtracts {@code quantities[i]} from the stock of raw material {@code rawMaterialIds[i]}, but only
+     * where at least that much is left, and bumps the version of every row it changes. All rows go out
+     * as one JDBC batch in the order given; returns the update count of each, 0 where the stock was short.
+     */
+    int[] deductStock(long[] rawMaterialIds, int[] quantities);
+
+    /**
+     * Adds {@code deltas[i]} to the stock of raw material {@code rawMaterialIds[i]}, keeping the result
+     * between 0 and {@link Integer#MAX_VALUE}, and bumps its version, as one JDBC batch in the order given.
+     */
+    int[] addStock(long[] rawMaterialIds, long[] deltas);
+
+    /**
+     * Reads the stock of the given raw materials and locks their rows until the transaction ends. Rows
+     * are locked in id order, the order every other stock writer follows; missing ids are left out.
+     */
+    List<RawMaterialStockRow> lockStockLevels(Collection<Long> rawMaterialIds);
+}
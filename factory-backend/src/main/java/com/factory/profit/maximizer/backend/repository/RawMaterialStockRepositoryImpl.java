@@ -0,0 +1,112 @@
+package com.factory.profit.maximizer.backend.repository;
+
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs on the connection of the surrounding JPA transaction. The persistence context is not flushed
+ * first, so callers must not have pending changes to the same rows. Hibernate does not see these
+ * updates, so the rows are evicted from the second-level cache here, once right away and once more
+ * after the transaction ends, in case a concurrent reader cached the old row in between.
+ */
+@RequiredArgsConstructor
+public class RawMaterialStockRepositoryImpl implements RawMaterialStockRepository {
+
+    private static final String DEDUCT_STOCK = """
+            update raw_materials
+            set stock_quantity = stock_quantity - ?, version = version + 1
+            where id = ? and stock_quantity >= ?
+            """;
+
+    private static final String ADD_STOCK = """
+            update raw_materials
+            set stock_quantity = greatest(0, least(2147483647, stock_quantity + ?)), version = version + 1
+            where id = ?
+            """;
+
+    private static final String LOCK_STOCK_LEVELS = """
+            select id, code, stock_quantity
+            from raw_materials
+            where id in (%s)
+            order by id
+            for update
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    @Override
+    public int[] deductStock(long[] rawMaterialIds, int[] quantities) {
+        evict(rawMaterialIds);
+        return jdbcTemplate.batchUpdate(DEDUCT_STOCK, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                statement.setInt(1, quantities[i]);
+                statement.setLong(2, rawMaterialIds[i]);
+                statement.setInt(3, quantities[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rawMaterialIds.length;
+            }
+        });
+    }
+
+    @Override
+    public int[] addStock(long[] rawMaterialIds, long[] deltas) {
+        evict(rawMaterialIds);
+        return jdbcTemplate.batchUpdate(ADD_STOCK, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                statement.setLong(1, deltas[i]);
+                statement.setLong(2, rawMaterialIds[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rawMaterialIds.length;
+            }
+        });
+    }
+
+    @Override
+    public List<RawMaterialStockRow> lockStockLevels(Collection<Long> rawMaterialIds) {
+        if (rawMaterialIds.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(rawMaterialIds.size(), "?"));
+        return jdbcTemplate.query(LOCK_STOCK_LEVELS.formatted(placeholders),
+                (row, rowNumber) -> new RawMaterialStockRow(row.getLong("id"), row.getString("code"), row.getInt("stock_quantity")),
+                rawMaterialIds.toArray());
+    }
+
+    private void evict(long[] rawMaterialIds) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        for (long id : rawMaterialIds) {
+            cache.evict(RawMaterial.class, id);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    for (long id : rawMaterialIds) {
+                        cache.evict(RawMaterial.class, id);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.factory.profit.maximizer.backend.repository;
+
+public record RawMaterialStockRow(
+        Long id,
+        String code,
+        int stockQuantity
+) {
+}
@@ -0,0 +1,60 @@
+package com.factory.profit.maximizer.backend.repository;
+
+import com.factory.profit.maximizer.backend.dto.StockMovementViewDto;
+import com.factory.profit.maximizer.backend.model.StockMovement;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+
+    boolean existsByRawMaterialId(Long rawMaterialId);
+
+    /**
+     * Tags every committed movement that no flush has applied yet with {@code batch}, so that the
+     * movements summed and the movements marked as applied are the same set.
+     */
+    @Modifying
+    @Query("update StockMovement m set m.flushBatch = :batch where m.flushBatch is null")
+    int claimUnflushed(@Param("batch") UUID batch);
+
+    @Query("""
+            select new com.factory.profit.maximizer.backend.repository.MaterialDeltaRow(m.rawMaterial.id, sum(m.delta))
+            from StockMovement m
+            where m.flushBatch = :batch
+            group by m.rawMaterial.id
+            order by m.rawMaterial.id
+            """)
+    List<MaterialDeltaRow> sumByMaterial(@Param("batch") UUID batch);
+
+    @Query("""
+            select new com.factory.profit.maximizer.backend.repository.MaterialDeltaRow(m.rawMaterial.id, sum(m.delta))
+            from StockMovement m
+            where m.flushBatch is null
+            group by m.rawMaterial.id
+            """)
+    List<MaterialDeltaRow> sumUnflushed();
+
+    @Query("""
+            select new com.factory.profit.maximizer.backend.repository.MaterialDeltaRow(m.rawMaterial.id, sum(m.delta))
+            from StockMovement m
+            where m.flushBatch is null and m.rawMaterial.id in :rawMaterialIds
+            group by m.rawMaterial.id
+            """)
+    List<MaterialDeltaRow> sumUnflushed(@Param("rawMaterialIds") Collection<Long> rawMaterialIds);
+
+    @Query("""
+            select new com.factory.profit.maximizer.backend.dto.StockMovementViewDto(
+                m.id, m.rawMaterial.id, m.delta, m.reason, m.createdAt, case when m.flushBatch is null then false else true end)
+            from StockMovement m
+            where m.rawMaterial.id = :rawMaterialId and m.id > :after
+            order by m.id
+            """)
+    List<StockMovementViewDto> findPage(@Param("rawMaterialId") Long rawMaterialId, @Param("after") long after, Limit limit);
+}
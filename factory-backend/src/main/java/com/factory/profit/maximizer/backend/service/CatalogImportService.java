@@ -0,0 +1,307 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.ImportErrorDto;
+import com.factory.profit.maximizer.backend.dto.ImportReportDto;
+import com.factory.profit.maximizer.backend.dto.ProductImportDto;
+import com.factory.profit.maximizer.backend.dto.ProductImportLineDto;
+import com.factory.profit.maximizer.backend.dto.RawMaterialDto;
+import com.factory.profit.maximizer.backend.event.CatalogChangedEvent;
+import com.factory.profit.maximizer.backend.importer.ImportFormat;
+import com.factory.profit.maximizer.backend.importer.ImportRow;
+import com.factory.profit.maximizer.backend.importer.RowReader;
+import com.factory.profit.maximizer.backend.importer.RowReaders;
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.repository.ProductRepository;
+import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bulk import of raw materials and products from a streamed body. Rows are validated as they are
+ * read and written in chunks, each chunk in its own transaction, so a bad row only fails itself and
+ * a failed chunk does not undo the chunks before it. Codes are resolved with one query per chunk and
+ * the inserts go out as JDBC batches.
+ * <p>
+ * The import only creates: a code that already exists, in the database or earlier in the same body,
+ * is reported as an error.
+ */
+@Service
+public class CatalogImportService {
+
+    private static final int LOOKUP_BATCH_SIZE = 1_000;
+
+    private final ProductRepository productRepository;
+    private final RawMaterialRepository rawMaterialRepository;
+    private final CatalogVersionService catalogVersionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public CatalogImportService(ProductRepository productRepository,
+                                RawMaterialRepository rawMaterialRepository,
+                                CatalogVersionService catalogVersionService,
+                                ApplicationEventPublisher eventPublisher,
+                                EntityManager entityManager,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${catalog.import.chunk-size:1000}") int chunkSize) {
+        this.productRepository = productRepository;
+        this.rawMaterialRepository = rawMaterialRepository;
+        this.catalogVersionService = catalogVersionService;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportReportDto importRawMaterials(Reader body, ImportFormat format) throws IOException {
+        RowReader<RawMaterialDto> rows = RowReaders.rawMaterials(body, format, objectMapper);
+        Report report = new Report();
+        Set<String> seenCodes = new HashSet<>();
+        List<ImportRow<RawMaterialDto>> chunk = new ArrayList<>(chunkSize);
+        for (ImportRow<RawMaterialDto> row = rows.next(); row != null; row = rows.next()) {
+            report.rowsRead++;
+            String error = row.isValid() ? validate(row.value(), seenCodes) : row.error();
+            if (error != null) {
+                report.fail(row, error);
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                writeChunk(chunk, report, this::writeRawMaterials);
+            }
+        }
+        writeChunk(chunk, report, this::writeRawMaterials);
+        return report.toDto();
+    }
+
+    public ImportReportDto importProducts(Reader body, ImportFormat format) throws IOException {
+        RowReader<ProductImportDto> rows = RowReaders.products(body, format, objectMapper);
+        Report report = new Report();
+        Set<String> seenCodes = new HashSet<>();
+        List<ImportRow<ProductImportDto>> chunk = new ArrayList<>(chunkSize);
+        for (ImportRow<ProductImportDto> row = rows.next(); row != null; row = rows.next()) {
+            report.rowsRead++;
+            String error = row.isValid() ? validate(row.value(), seenCodes) : row.error();
+            if (error != null) {
+                report.fail(row, error);
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                writeChunk(chunk, report, this::writeProducts);
+            }
+        }
+        writeChunk(chunk, report, this::writeProducts);
+        return report.toDto();
+    }
+
+    private interface ChunkWriter<T> {
+        /**
+         * Writes the rows that can be written, reports the others, and returns the written rows.
+         */
+        List<ImportRow<T>> write(List<ImportRow<T>> chunk, Report report);
+    }
+
+    /**
+     * Writes one chunk in its own transaction. If the transaction fails, every row it would have
+     * written is reported with the cause.
+     */
+    private <T> void writeChunk(List<ImportRow<T>> chunk, Report report, ChunkWriter<T> writer) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<ImportRow<T>> attempted = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<ImportRow<T>> written = writer.write(chunk, report);
+                attempted.addAll(written);
+                if (!written.isEmpty()) {
+                    eventPublisher.publishEvent(CatalogChangedEvent.structural(catalogVersionService.increment()));
+                }
+            });
+            report.imported += attempted.size();
+        } catch (DataAccessException | TransactionException e) {
+            for (ImportRow<T> row : attempted) {
+                report.fail(row, "Not imported, the chunk failed: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            }
+        } finally {
+            // The request may keep one persistence context open across chunks; do not let it grow
+            entityManager.clear();
+            chunk.clear();
+        }
+    }
+
+    private List<ImportRow<RawMaterialDto>> writeRawMaterials(List<ImportRow<RawMaterialDto>> chunk, Report report) {
+        Set<String> existingCodes = findExisting(codesOf(chunk), rawMaterialRepository::findExistingCodes);
+        List<ImportRow<RawMaterialDto>> written = new ArrayList<>(chunk.size());
+        List<RawMaterial> rawMaterials = new ArrayList<>(chunk.size());
+        for (ImportRow<RawMaterialDto> row : chunk) {
+            if (existingCodes.contains(row.code())) {
+                report.fail(row, "Raw material code already exists: " + row.code());
+                continue;
+            }
+            RawMaterialDto dto = row.value();
+            rawMaterials.add(new RawMaterial(null, dto.getCode(), dto.getName(), dto.getStockQuantity()));
+            written.add(row);
+        }
+        rawMaterialRepository.saveAll(rawMaterials);
+        return written;
+    }
+
+    private List<ImportRow<ProductImportDto>> writeProducts(List<ImportRow<ProductImportDto>> chunk, Report report) {
+        Set<String> existingCodes = findExisting(codesOf(chunk), productRepository::findExistingCodes);
+        Set<String> materialCodes = new HashSet<>();
+        for (ImportRow<ProductImportDto> row : chunk) {
+            for (ProductImportLineDto line : row.value().getComposition()) {
+                materialCodes.add(line.getRawMaterialCode());
+            }
+        }
+        Map<String, RawMaterial> rawMaterials = new HashMap<>();
+        List<String> pendingCodes = new ArrayList<>(materialCodes);
+        for (int from = 0; from < pendingCodes.size(); from += LOOKUP_BATCH_SIZE) {
+            List<String> batch = pendingCodes.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, pendingCodes.size()));
+            for (RawMaterial rawMaterial : rawMaterialRepository.findByCodeIn(batch)) {
+                rawMaterials.put(rawMaterial.getCode(), rawMaterial);
+            }
+        }
+
+        List<ImportRow<ProductImportDto>> written = new ArrayList<>(chunk.size());
+        List<Product> products = new ArrayList<>(chunk.size());
+        rows:
+        for (ImportRow<ProductImportDto> row : chunk) {
+            if (existingCodes.contains(row.code())) {
+                report.fail(row, "Product code already exists: " + row.code());
+                continue;
+            }
+            ProductImportDto dto = row.value();
+            Product product = new Product(null, dto.getCode(), dto.getName(), dto.getValue(), new HashSet<>());
+            for (ProductImportLineDto line : dto.getComposition()) {
+                RawMaterial rawMaterial = rawMaterials.get(line.getRawMaterialCode());
+                if (rawMaterial == null) {
+                    report.fail(row, "RawMaterial not found with code: " + line.getRawMaterialCode());
+                    continue rows;
+                }
+                product.getComposition().add(new ProductComposition(null, product, rawMaterial, line.getQuantity()));
+            }
+            products.add(product);
+            written.add(row);
+        }
+        productRepository.saveAll(products);
+        return written;
+    }
+
+    private static String validate(RawMaterialDto dto, Set<String> seenCodes) {
+        if (isBlank(dto.getCode())) {
+            return "Code cannot be blank";
+        }
+        if (isBlank(dto.getName())) {
+            return "Name cannot be blank";
+        }
+        if (dto.getStockQuantity() == null) {
+            return "Stock quantity cannot be null";
+        }
+        if (dto.getStockQuantity() < 0) {
+            return "Stock quantity must be zero or positive";
+        }
+        if (!seenCodes.add(dto.getCode())) {
+            return "Duplicate raw material code in import: " + dto.getCode();
+        }
+        return null;
+    }
+
+    private static String validate(ProductImportDto dto, Set<String> seenCodes) {
+        if (isBlank(dto.getCode())) {
+            return "Code cannot be blank";
+        }
+        if (isBlank(dto.getName())) {
+            return "Name cannot be blank";
+        }
+        if (dto.getValue() == null) {
+            return "Value cannot be null";
+        }
+        if (dto.getValue().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Value must be positive";
+        }
+        if (dto.getComposition() == null) {
+            dto.setComposition(new ArrayList<>());
+        }
+        Set<String> materialCodes = new HashSet<>();
+        for (ProductImportLineDto line : dto.getComposition()) {
+            if (line == null || isBlank(line.getRawMaterialCode())) {
+                return "Raw material code cannot be blank";
+            }
+            if (line.getQuantity() == null || line.getQuantity() <= 0) {
+                return "Quantity must be positive";
+            }
+            if (!materialCodes.add(line.getRawMaterialCode())) {
+                return "Raw material listed twice: " + line.getRawMaterialCode();
+            }
+        }
+        if (!seenCodes.add(dto.getCode())) {
+            return "Duplicate product code in import: " + dto.getCode();
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static <T> List<String> codesOf(List<ImportRow<T>> chunk) {
+        List<String> codes = new ArrayList<>(chunk.size());
+        for (ImportRow<T> row : chunk) {
+            codes.add(row.code());
+        }
+        return codes;
+    }
+
+    private static Set<String> findExisting(List<String> codes, Function<List<String>, Set<String>> query) {
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < codes.size(); from += LOOKUP_BATCH_SIZE) {
+            existing.addAll(query.apply(codes.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, codes.size()))));
+        }
+        return existing;
+    }
+
+    private static final class Report {
+
+        private long rowsRead;
+        private long imported;
+        private final List<ImportErrorDto> errors = new ArrayList<>();
+
+        void fail(ImportRow<?> row, String message) {
+            errors.add(new ImportErrorDto(row.row(), row.code(), message));
+        }
+
+        ImportReportDto toDto() {
+            errors.sort(Comparator.comparingLong(ImportErrorDto::row));
+            return new ImportReportDto(rowsRead, imported, errors.size(), errors);
+        }
+    }
+}
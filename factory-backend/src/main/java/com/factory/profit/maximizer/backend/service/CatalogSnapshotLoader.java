@@ -0,0 +1,63 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshot;
+import com.factory.profit.maximizer.backend.repository.ProductRepository;
+import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Reads the catalog for the optimizer. Reading the entities and building the snapshot from them
+ * (flattening the compositions, scoring and ranking the products) are timed separately, as
+ * {@code optimizer.catalog.load} and {@code optimizer.catalog.rank}.
+ */
+@Component
+public class CatalogSnapshotLoader {
+
+    private final ProductRepository productRepository;
+    private final RawMaterialRepository rawMaterialRepository;
+    private final CatalogVersionService catalogVersionService;
+    private final MeterRegistry meterRegistry;
+    private final Timer loadTimer;
+    private final Timer rankTimer;
+
+    public CatalogSnapshotLoader(ProductRepository productRepository, RawMaterialRepository rawMaterialRepository,
+                                 CatalogVersionService catalogVersionService, MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.rawMaterialRepository = rawMaterialRepository;
+        this.catalogVersionService = catalogVersionService;
+        this.meterRegistry = meterRegistry;
+        this.loadTimer = Timer.builder("optimizer.catalog.load")
+                .description("Reading products and raw materials from the database for the optimizer")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rankTimer = Timer.builder("optimizer.catalog.rank")
+                .description("Building the optimizer snapshot: flattening compositions, scoring and ranking products")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Transactional(readOnly = true)
+    public long currentVersion() {
+        return catalogVersionService.current();
+    }
+
+    /**
+     * Reads the version before the catalog itself, so the data is at least as new as the version says.
+     */
+    @Transactional(readOnly = true)
+    public VersionedSnapshot load() {
+        long version = catalogVersionService.current();
+        Timer.Sample load = Timer.start(meterRegistry);
+        List<Product> products = productRepository.findAll();
+        List<RawMaterial> rawMaterials = rawMaterialRepository.findAll();
+        load.stop(loadTimer);
+        return new VersionedSnapshot(rankTimer.record(() -> CatalogSnapshot.of(products, rawMaterials)), version);
+    }
+}
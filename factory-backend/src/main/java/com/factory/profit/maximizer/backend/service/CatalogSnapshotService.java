@@ -0,0 +1,177 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.event.CatalogChangedEvent;
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.OptionalLong;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Keeps the optimizer's {@link CatalogSnapshot} in memory so that optimize calls do not go to the
+ * database. The snapshot is loaded lazily, patched in place when only stock levels change and
+ * dropped on any other catalog write; both happen after the writing transaction commits.
+ * <p>
+ * Catalog versions have no gaps, so a stock patch is only applied on top of the version right before
+ * it. If an event is missed or arrives out of order, the snapshot is dropped and read again.
+ */
+@Service
+@RequiredArgsConstructor
+public class CatalogSnapshotService {
+
+    private final CatalogSnapshotLoader loader;
+
+    private final Object lock = new Object();
+    private volatile VersionedSnapshot current;
+    private volatile long latestVersion = -1;
+    private Load loading;
+
+    /**
+     * A load in progress and the latest version known when it started.
+     */
+    private record Load(CompletableFuture<VersionedSnapshot> result, long versionBeforeLoad) {
+    }
+
+    public CatalogSnapshot getSnapshot() {
+        return getVersionedSnapshot().snapshot();
+    }
+
+    /**
+     * The cached snapshot, loading it first if needed. Concurrent callers share one load, unless a
+     * write committed after it started: they would not see their own write in it, so they start another.
+     */
+    public VersionedSnapshot getVersionedSnapshot() {
+        VersionedSnapshot snapshot = current;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        Load load;
+        boolean leader = false;
+        synchronized (lock) {
+            if (current != null) {
+                return current;
+            }
+            if (loading == null || loading.versionBeforeLoad() != latestVersion) {
+                loading = new Load(new CompletableFuture<>(), latestVersion);
+                leader = true;
+            }
+            load = loading;
+        }
+        return leader ? load(load) : await(load.result());
+    }
+
+    private VersionedSnapshot load(Load load) {
+        VersionedSnapshot loaded;
+        try {
+            loaded = loader.load();
+        } catch (RuntimeException e) {
+            finish(load);
+            load.result().completeExceptionally(e);
+            throw e;
+        }
+        synchronized (lock) {
+            // A write committed while we were loading: serve what we read, but do not cache it
+            if (latestVersion == load.versionBeforeLoad() && current == null && loaded.version() >= latestVersion) {
+                current = loaded;
+                latestVersion = loaded.version();
+            }
+            if (loading == load) {
+                loading = null;
+            }
+        }
+        load.result().complete(loaded);
+        return loaded;
+    }
+
+    private void finish(Load load) {
+        synchronized (lock) {
+            if (loading == load) {
+                loading = null;
+            }
+        }
+    }
+
+    private static VersionedSnapshot await(CompletableFuture<VersionedSnapshot> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the catalog to load");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Installs a snapshot restored from disk as the cached one, unless the catalog has been read or
+     * written since startup or the snapshot is newer than the database. A snapshot older than
+     * {@code databaseVersion} is served until {@link #reconcile} replaces it; returns whether it was installed.
+     */
+    public boolean restore(VersionedSnapshot snapshot, long databaseVersion) {
+        synchronized (lock) {
+            if (current != null || loading != null || latestVersion >= 0 || snapshot.version() > databaseVersion) {
+                return false;
+            }
+            current = snapshot;
+            latestVersion = databaseVersion;
+            return true;
+        }
+    }
+
+    /**
+     * Reads the catalog from the database and replaces the cached snapshot with it if the cached one is
+     * older. Nothing changes if the snapshot was dropped in the meantime or a write committed during the read.
+     */
+    public void reconcile() {
+        VersionedSnapshot loaded = loader.load();
+        synchronized (lock) {
+            VersionedSnapshot snapshot = current;
+            if (snapshot != null && snapshot.version() < loaded.version() && loaded.version() >= latestVersion) {
+                current = loaded;
+                latestVersion = loaded.version();
+            }
+        }
+    }
+
+    /**
+     * The cached snapshot, or {@code null} if it has not been loaded since the last structural change.
+     * Never goes to the database.
+     */
+    public VersionedSnapshot cachedSnapshot() {
+        return current;
+    }
+
+    /**
+     * Latest catalog version known to have committed, without going to the database; empty until
+     * the catalog has been read or written once.
+     */
+    public OptionalLong latestVersion() {
+        long version = latestVersion;
+        return version < 0 ? OptionalLong.empty() : OptionalLong.of(version);
+    }
+
+    @TransactionalEventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        synchronized (lock) {
+            if (event.version() <= latestVersion) {
+                return; // Already part of what we loaded
+            }
+            latestVersion = event.version();
+            VersionedSnapshot snapshot = current;
+            current = null;
+            if (snapshot != null && event.isStockOnly() && event.version() == snapshot.version() + 1) {
+                CatalogSnapshot patched = snapshot.snapshot().withStock(event.stockLevels());
+                if (patched != null) {
+                    current = new VersionedSnapshot(patched, event.version());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshotFile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps a copy of the optimizer's catalog snapshot on local disk (see {@link CatalogSnapshotFile}) so
+ * that a restart does not wait for the whole catalog to be read through JPA. The cached snapshot is
+ * written whenever its version moved since the last write, checked every
+ * {@code catalog.snapshot.write-interval-ms} and once more on shutdown.
+ * <p>
+ * At startup, before requests are served, the file is mapped and checked against the database version
+ * counter, which is one query. A file at the current version becomes the cached snapshot as is. An
+ * older one is served right away, so its plans carry its older version, while the catalog is read from
+ * the database in the background and replaces it. A file newer than the database belongs to another
+ * database and is ignored. Nothing is stored while {@code catalog.snapshot.path} is empty.
+ */
+@Slf4j
+@Component
+public class CatalogSnapshotStore {
+
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final CatalogSnapshotLoader loader;
+    private final Path path;
+    private final Timer restoreTimer;
+    private final ExecutorService reconciler;
+    private volatile long writtenVersion = -1;
+
+    public CatalogSnapshotStore(CatalogSnapshotService catalogSnapshotService, CatalogSnapshotLoader loader,
+                                MeterRegistry meterRegistry,
+                                @Value("${catalog.snapshot.path:}") String path) {
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.loader = loader;
+        this.path = path.isBlank() ? null : Path.of(path);
+        this.restoreTimer = Timer.builder("optimizer.catalog.restore")
+                .description("Reading the optimizer snapshot from the catalog snapshot file at startup")
+                .register(meterRegistry);
+        this.reconciler = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void restore() {
+        if (path == null || !Files.isRegularFile(path)) {
+            return;
+        }
+        Timer.Sample sample = Timer.start();
+        CatalogSnapshotFile.Stored stored;
+        try {
+            stored = CatalogSnapshotFile.read(path);
+        } catch (IOException e) {
+            // Loaded from the database on first use and written over at the next interval
+            log.warn("Could not restore the catalog snapshot from {}", path, e);
+            return;
+        }
+        sample.stop(restoreTimer);
+        long databaseVersion = loader.currentVersion();
+        if (catalogSnapshotService.restore(new VersionedSnapshot(stored.snapshot(), stored.version()), databaseVersion)) {
+            writtenVersion = stored.version();
+            if (stored.version() < databaseVersion) {
+                reconciler.execute(() -> {
+                    try {
+                        catalogSnapshotService.reconcile();
+                    } catch (RuntimeException e) {
+                        // The restored snapshot stays until the next catalog write drops it
+                        log.warn("Could not reconcile the catalog snapshot restored from {} at version {}",
+                                path, stored.version(), e);
+                    }
+                });
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        reconciler.shutdownNow();
+        write();
+    }
+
+    /**
+     * Writes the cached snapshot if its version changed since the last write. A failed write leaves the
+     * previous file in place and is tried again at the next interval.
+     */
+    @Scheduled(fixedDelayString = "${catalog.snapshot.write-interval-ms:60000}")
+    public void write() {
+        VersionedSnapshot snapshot = catalogSnapshotService.cachedSnapshot();
+        if (path == null || snapshot == null || snapshot.version() == writtenVersion) {
+            return;
+        }
+        try {
+            CatalogSnapshotFile.write(path, snapshot.snapshot(), snapshot.version());
+            writtenVersion = snapshot.version();
+        } catch (IOException e) {
+            // Kept for the next interval
+            log.warn("Could not write the catalog snapshot at version {} to {}", snapshot.version(), path, e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.factory.profit.maximizer.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+/**
+ * Seeds the catalog version row once every bean is ready, before the web server starts taking writes.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogVersionInitializer implements SmartInitializingSingleton {
+
+    private final CatalogVersionService catalogVersionService;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        catalogVersionService.seed();
+    }
+}
@@ -0,0 +1,50 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.model.CatalogVersion;
+import com.factory.profit.maximizer.backend.repository.CatalogVersionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+public class CatalogVersionService {
+
+    private final CatalogVersionRepository catalogVersionRepository;
+
+    /**
+     * Increments the catalog version as part of the caller's write transaction and returns the new
+     * value. The row lock is held until that transaction ends, so concurrent writers queue up here.
+     * The row is created by {@link #seed()} at startup, so this is only ever an update.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long increment() {
+        if (catalogVersionRepository.increment(CatalogVersion.ID) == 0) {
+            throw new IllegalStateException("Catalog version row is missing");
+        }
+        return catalogVersionRepository.findVersion(CatalogVersion.ID).orElseThrow();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long current() {
+        return catalogVersionRepository.findVersion(CatalogVersion.ID).orElse(0L);
+    }
+
+    /**
+     * Creates the version row at 0 unless it exists. Another instance starting at the same time may
+     * win the insert, which is as good.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void seed() {
+        if (catalogVersionRepository.existsById(CatalogVersion.ID)) {
+            return;
+        }
+        try {
+            catalogVersionRepository.saveAndFlush(new CatalogVersion(CatalogVersion.ID, 0L));
+        } catch (DataIntegrityViolationException e) {
+            // Inserted concurrently
+        }
+    }
+}
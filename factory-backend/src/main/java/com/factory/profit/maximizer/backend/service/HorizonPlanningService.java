@@ -0,0 +1,113 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.HorizonPlanDto;
+import com.factory.profit.maximizer.backend.dto.HorizonRequestDto;
+import com.factory.profit.maximizer.backend.dto.PeriodPlanDto;
+import com.factory.profit.maximizer.backend.dto.ProductionPlanDto;
+import com.factory.profit.maximizer.backend.dto.ReplenishmentDto;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshot;
+import com.factory.profit.maximizer.backend.optimizer.HorizonPlanner;
+import com.factory.profit.maximizer.backend.optimizer.OptimizerEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plans production period by period over a horizon with scheduled replenishments, starting from the
+ * current stock of the cached snapshot; see {@link HorizonPlanner}. Nothing is written to the database.
+ */
+@Service
+public class HorizonPlanningService {
+
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final ProductionOptimizerService optimizerService;
+    private final int defaultWindow;
+    private final int maxPeriods;
+    private final long timeBudgetMillis;
+
+    public HorizonPlanningService(CatalogSnapshotService catalogSnapshotService,
+                                  ProductionOptimizerService optimizerService,
+                                  @Value("${optimizer.horizon.window:4}") int defaultWindow,
+                                  @Value("${optimizer.horizon.max-periods:104}") int maxPeriods,
+                                  @Value("${optimizer.horizon.time-budget-ms:5000}") long timeBudgetMillis) {
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.optimizerService = optimizerService;
+        this.defaultWindow = defaultWindow;
+        this.maxPeriods = maxPeriods;
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    public HorizonPlanDto plan(String engineName, HorizonRequestDto request) {
+        OptimizerEngine engine = optimizerService.resolveEngine(engineName);
+        if (request == null || request.getPeriods() == null || request.getPeriods() < 1 || request.getPeriods() > maxPeriods) {
+            throw new BadRequestException("Periods must be between 1 and " + maxPeriods);
+        }
+        int periods = request.getPeriods();
+        int window = request.getWindow() != null ? request.getWindow() : defaultWindow;
+        if (window < 1) {
+            throw new BadRequestException("Window must be at least 1 period");
+        }
+
+        VersionedSnapshot base = catalogSnapshotService.getVersionedSnapshot();
+        CatalogSnapshot snapshot = base.snapshot();
+        List<Map<Long, Integer>> replenishments = replenishments(snapshot, periods, request.getReplenishments());
+        int[][] quantities;
+        try {
+            quantities = HorizonPlanner.plan(engine, snapshot, replenishments, window, timeBudgetMillis);
+        } catch (ArithmeticException e) {
+            throw new BadRequestException("The stock of a raw material over the horizon exceeds " + Integer.MAX_VALUE);
+        }
+
+        List<PeriodPlanDto> plans = new ArrayList<>(periods);
+        BigDecimal totalProfit = BigDecimal.ZERO;
+        for (int t = 0; t < periods; t++) {
+            ProductionPlanDto plan = ProductionOptimizerService.toPlan(snapshot, quantities[t]);
+            plans.add(new PeriodPlanDto(t + 1, plan));
+            totalProfit = totalProfit.add(plan.totalProfit());
+        }
+        return new HorizonPlanDto(engine.name(), base.version(), window, totalProfit, plans);
+    }
+
+    /**
+     * Arrivals per period by raw material id; several replenishments of one material in a period add up.
+     */
+    private static List<Map<Long, Integer>> replenishments(CatalogSnapshot snapshot, int periods,
+                                                           List<ReplenishmentDto> replenishments) {
+        List<Map<Long, Integer>> arrivals = new ArrayList<>(periods);
+        for (int t = 0; t < periods; t++) {
+            arrivals.add(new HashMap<>());
+        }
+        if (replenishments == null) {
+            return arrivals;
+        }
+        for (ReplenishmentDto replenishment : replenishments) {
+            Long rawMaterialId = replenishment.getRawMaterialId();
+            if (rawMaterialId == null) {
+                throw new BadRequestException("RawMaterial id cannot be null");
+            }
+            if (snapshot.stockOf(rawMaterialId) == null) {
+                throw new BadRequestException("RawMaterial not found with id: " + rawMaterialId);
+            }
+            Integer period = replenishment.getPeriod();
+            if (period == null || period < 1 || period > periods) {
+                throw new BadRequestException("Replenishment period must be between 1 and " + periods);
+            }
+            Integer quantity = replenishment.getQuantity();
+            if (quantity == null || quantity < 0) {
+                throw new BadRequestException("Replenishment quantity cannot be negative");
+            }
+            try {
+                arrivals.get(period - 1).merge(rawMaterialId, quantity, Math::addExact);
+            } catch (ArithmeticException e) {
+                throw new BadRequestException("The stock of a raw material over the horizon exceeds " + Integer.MAX_VALUE);
+            }
+        }
+        return arrivals;
+    }
+}
@@ -0,0 +1,71 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.MaterialConsumerDto;
+import com.factory.profit.maximizer.backend.dto.MaterialImpactDto;
+import com.factory.profit.maximizer.backend.dto.OptimizedProductDto;
+import com.factory.profit.maximizer.backend.exception.ResourceNotFoundException;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.repository.MaterialConsumerRow;
+import com.factory.profit.maximizer.backend.repository.ProductCompositionRepository;
+import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers what a raw material is needed for, going from the material to its consumers through the
+ * index on the composition lines instead of through the whole catalog.
+ */
+@Service
+@RequiredArgsConstructor
+public class MaterialImpactService {
+
+    private final RawMaterialRepository rawMaterialRepository;
+    private final ProductCompositionRepository productCompositionRepository;
+    private final ProductionOptimizerService optimizerService;
+    private final PlanRefreshService planRefreshService;
+
+    /**
+     * The plan compared against is the engine's materialized plan when it is refreshed in the
+     * background, even if a little stale, so that the answer does not wait for a solve.
+     */
+    @Transactional(readOnly = true)
+    public MaterialImpactDto impact(Long rawMaterialId, String engine) {
+        optimizerService.resolveEngine(engine);
+        if (rawMaterialId == null) {
+            throw new ResourceNotFoundException("RawMaterial id cannot be null");
+        }
+        RawMaterial rawMaterial = rawMaterialRepository.findById(rawMaterialId)
+                .orElseThrow(() -> new ResourceNotFoundException("RawMaterial not found with id: " + rawMaterialId));
+        List<MaterialConsumerRow> rows = productCompositionRepository.findConsumers(rawMaterialId);
+
+        ProductionOptimizerService.VersionedPlan plan = planRefreshService.materializedPlan(engine)
+                .map(PlanRefreshService.MaterializedPlan::plan)
+                .orElseGet(() -> optimizerService.getProductionPlan(engine));
+        Map<String, Integer> plannedUnits = new HashMap<>();
+        for (OptimizedProductDto item : plan.plan().productionPlan()) {
+            plannedUnits.put(item.productCode(), item.quantityToProduce());
+        }
+
+        List<MaterialConsumerDto> consumers = new ArrayList<>(rows.size());
+        long plannedConsumption = 0;
+        BigDecimal dependentProfit = BigDecimal.ZERO;
+        for (MaterialConsumerRow row : rows) {
+            int units = plannedUnits.getOrDefault(row.productCode(), 0);
+            long consumption = (long) units * row.quantityPerUnit();
+            plannedConsumption += consumption;
+            dependentProfit = dependentProfit.add(row.productValue().multiply(BigDecimal.valueOf(units)));
+            consumers.add(new MaterialConsumerDto(row.productId(), row.productCode(), row.productName(), row.productValue(),
+                    row.quantityPerUnit(), rawMaterial.getStockQuantity() / row.quantityPerUnit(),
+                    row.unitsSupported() == null ? 0 : row.unitsSupported(), units, consumption));
+        }
+        return new MaterialImpactDto(rawMaterial.getId(), rawMaterial.getCode(), rawMaterial.getStockQuantity(), engine,
+                plan.catalogVersion(), plannedConsumption, dependentProfit, plan.plan().totalProfit(), consumers);
+    }
+}
@@ -0,0 +1,226 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.OptimizationJobDto;
+import com.factory.profit.maximizer.backend.dto.OptimizationJobDto.Status;
+import com.factory.profit.maximizer.backend.dto.ProductionPlanDto;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import com.factory.profit.maximizer.backend.exception.ResourceNotFoundException;
+import com.factory.profit.maximizer.backend.exception.TooManyRequestsException;
+import com.factory.profit.maximizer.backend.optimizer.OptimizerEngine;
+import com.factory.profit.maximizer.backend.optimizer.SolveProgress;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs optimizations that take longer than a request should, such as the exact engine on a large
+ * catalog. Jobs wait in a bounded queue for one of a fixed number of workers; when the queue is full,
+ * new jobs are refused rather than piling up. Each job solves the catalog snapshot taken when it was
+ * submitted, which is detached from the persistence context, so no transaction or connection is held
+ * while it runs. Finished jobs are forgotten after the retention period.
+ */
+@Service
+public class OptimizationJobService {
+
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final ProductionOptimizerService optimizerService;
+    private final ThreadPoolExecutor executor;
+    private final long defaultTimeBudgetMillis;
+    private final long maxTimeBudgetMillis;
+    private final long retentionMillis;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public OptimizationJobService(CatalogSnapshotService catalogSnapshotService,
+                                  ProductionOptimizerService optimizerService,
+                                  @Value("${optimizer.jobs.threads:1}") int threads,
+                                  @Value("${optimizer.jobs.queue-capacity:16}") int queueCapacity,
+                                  @Value("${optimizer.jobs.time-budget-ms:10000}") long defaultTimeBudgetMillis,
+                                  @Value("${optimizer.jobs.max-time-budget-ms:300000}") long maxTimeBudgetMillis,
+                                  @Value("${optimizer.jobs.retention-ms:600000}") long retentionMillis) {
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.optimizerService = optimizerService;
+        AtomicInteger workers = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "optimization-job-" + workers.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.defaultTimeBudgetMillis = defaultTimeBudgetMillis;
+        this.maxTimeBudgetMillis = maxTimeBudgetMillis;
+        this.retentionMillis = retentionMillis;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobs.values().forEach(Job::cancel);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues a job for the current catalog. The time budget starts when a worker picks the job up.
+     */
+    public OptimizationJobDto submit(String engineName, Long timeBudgetMillis) {
+        OptimizerEngine engine = optimizerService.resolveEngine(engineName);
+        long budget = timeBudgetMillis != null ? timeBudgetMillis : defaultTimeBudgetMillis;
+        if (budget <= 0 || budget > maxTimeBudgetMillis) {
+            throw new BadRequestException("Time budget must be between 1 and " + maxTimeBudgetMillis + " ms");
+        }
+        evictExpired();
+
+        Job job = new Job(UUID.randomUUID().toString(), engine, catalogSnapshotService.getVersionedSnapshot(), budget);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(job.task);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw new TooManyRequestsException("The optimization queue is full, try again later");
+        }
+        return job.toDto();
+    }
+
+    public OptimizationJobDto get(String id, boolean includePlan) {
+        Job job = find(id);
+        return includePlan ? job.toDto() : job.toDto(null);
+    }
+
+    /**
+     * A queued job is dropped right away; a running one stops at the engine's next check and keeps the
+     * best plan found until then. Cancelling a finished job changes nothing.
+     */
+    public OptimizationJobDto cancel(String id) {
+        Job job = find(id);
+        job.cancel();
+        executor.remove(job.task);
+        return job.toDto();
+    }
+
+    private Job find(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("Optimization job not found with id: " + id);
+        }
+        return job;
+    }
+
+    private void evictExpired() {
+        long now = System.nanoTime();
+        jobs.values().removeIf(job -> job.status.get().isFinished()
+                && now - job.finishedAt > TimeUnit.MILLISECONDS.toNanos(retentionMillis));
+    }
+
+    private static final class Job {
+
+        private final String id;
+        private final OptimizerEngine engine;
+        private final VersionedSnapshot snapshot;
+        private final long timeBudgetMillis;
+        private final AtomicReference<Status> status = new AtomicReference<>(Status.QUEUED);
+        private final FutureTask<Void> task = new FutureTask<>(this::run, null);
+
+        private volatile boolean cancelRequested;
+        private volatile SolveProgress progress;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private volatile int[] result;
+        private volatile String error;
+        private volatile PlanView planView;
+
+        /**
+         * The plan assembled for the quantities it was built from, so that polling a job whose best
+         * plan has not changed does not assemble it again.
+         */
+        private record PlanView(int[] quantities, ProductionPlanDto plan) {
+        }
+
+        Job(String id, OptimizerEngine engine, VersionedSnapshot snapshot, long timeBudgetMillis) {
+            this.id = id;
+            this.engine = engine;
+            this.snapshot = snapshot;
+            this.timeBudgetMillis = timeBudgetMillis;
+        }
+
+        private void run() {
+            if (!status.compareAndSet(Status.QUEUED, Status.RUNNING)) {
+                return;
+            }
+            startedAt = System.nanoTime();
+            SolveProgress solveProgress = SolveProgress.withTimeBudget(timeBudgetMillis);
+            progress = solveProgress;
+            if (cancelRequested) {
+                solveProgress.cancel();
+            }
+            try {
+                result = engine.solve(snapshot.snapshot(), solveProgress);
+                finish(solveProgress.isCancelled() ? Status.CANCELLED : Status.COMPLETED);
+            } catch (RuntimeException e) {
+                error = e.getMessage();
+                finish(Status.FAILED);
+            }
+        }
+
+        void cancel() {
+            cancelRequested = true;
+            if (status.compareAndSet(Status.QUEUED, Status.CANCELLED)) {
+                finishedAt = System.nanoTime();
+                return;
+            }
+            SolveProgress solveProgress = progress;
+            if (solveProgress != null) {
+                solveProgress.cancel();
+            }
+        }
+
+        private void finish(Status finalStatus) {
+            finishedAt = System.nanoTime();
+            status.set(finalStatus);
+        }
+
+        OptimizationJobDto toDto() {
+            int[] quantities = result;
+            SolveProgress solveProgress = progress;
+            if (quantities == null && solveProgress != null) {
+                quantities = solveProgress.bestPlan();
+            }
+            return toDto(quantities);
+        }
+
+        private OptimizationJobDto toDto(int[] quantities) {
+            Status current = status.get();
+            SolveProgress solveProgress = progress;
+            long elapsedNanos = switch (current) {
+                case QUEUED -> 0;
+                case RUNNING -> startedAt == 0 ? 0 : System.nanoTime() - startedAt;
+                default -> startedAt == 0 ? 0 : finishedAt - startedAt;
+            };
+            return new OptimizationJobDto(id, engine.name(), current, snapshot.version(), timeBudgetMillis,
+                    TimeUnit.NANOSECONDS.toMillis(Math.max(0, elapsedNanos)),
+                    solveProgress == null ? 0 : solveProgress.nodes(),
+                    solveProgress == null ? null : solveProgress.upperBound(),
+                    error, plan(quantities));
+        }
+
+        private ProductionPlanDto plan(int[] quantities) {
+            if (quantities == null) {
+                return null;
+            }
+            PlanView view = planView;
+            if (view == null || view.quantities() != quantities) {
+                view = new PlanView(quantities, ProductionOptimizerService.toPlan(snapshot.snapshot(), quantities));
+                planView = view;
+            }
+            return view.plan();
+        }
+    }
+}
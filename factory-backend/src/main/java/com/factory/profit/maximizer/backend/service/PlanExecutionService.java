@@ -0,0 +1,206 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.OptimizedProductDto;
+import com.factory.profit.maximizer.backend.dto.PlanExecutionDto;
+import com.factory.profit.maximizer.backend.dto.ProductionPlanDto;
+import com.factory.profit.maximizer.backend.dto.StockDeductionDto;
+import com.factory.profit.maximizer.backend.event.CatalogChangedEvent;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import com.factory.profit.maximizer.backend.exception.ConflictException;
+import com.factory.profit.maximizer.backend.repository.ProductListingRow;
+import com.factory.profit.maximizer.backend.repository.ProductRepository;
+import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
+import com.factory.profit.maximizer.backend.repository.RawMaterialStockRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Deducts the raw materials a production plan consumes, all or nothing. The deductions are conditional
+ * updates ({@code stock_quantity >= needed}) sent as one batch, so concurrent executions never read
+ * stock in the application and cannot lose each other's updates; an execution that finds too little
+ * stock fails as a whole. Rows are always updated in raw material id order and the catalog version row
+ * is locked last, which keeps concurrent executions from deadlocking and holds each lock only briefly.
+ * Lock timeouts and other transient failures are retried with jittered backoff.
+ */
+@Service
+public class PlanExecutionService {
+
+    private static final int LOOKUP_BATCH_SIZE = 1_000;
+    private static final int MAX_REPORTED_SHORTAGES = 10;
+
+    private final ProductRepository productRepository;
+    private final RawMaterialRepository rawMaterialRepository;
+    private final CatalogVersionService catalogVersionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+
+    public PlanExecutionService(ProductRepository productRepository,
+                                RawMaterialRepository rawMaterialRepository,
+                                CatalogVersionService catalogVersionService,
+                                ApplicationEventPublisher eventPublisher,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${production.execute.max-attempts:3}") int maxAttempts,
+                                @Value("${production.execute.retry-backoff-ms:20}") long retryBackoffMillis) {
+        this.productRepository = productRepository;
+        this.rawMaterialRepository = rawMaterialRepository;
+        this.catalogVersionService = catalogVersionService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    public PlanExecutionDto execute(ProductionPlanDto plan) {
+        Map<String, Long> unitsByProduct = unitsByProduct(plan);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> deduct(unitsByProduct));
+            } catch (TransientDataAccessException e) {
+                if (attempt >= maxAttempts) {
+                    throw new ConflictException("Raw material stock is busy, try again later");
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    private PlanExecutionDto deduct(Map<String, Long> unitsByProduct) {
+        Map<Long, Long> required = requiredMaterials(unitsByProduct);
+        if (required.isEmpty()) {
+            return new PlanExecutionDto(catalogVersionService.current(), List.of());
+        }
+
+        long[] rawMaterialIds = new long[required.size()];
+        int[] quantities = new int[required.size()];
+        List<Long> shortIds = new ArrayList<>();
+        int i = 0;
+        for (Map.Entry<Long, Long> entry : required.entrySet()) {
+            rawMaterialIds[i] = entry.getKey();
+            // More than any stock can hold: cannot succeed, but still let the batch run into it
+            quantities[i++] = (int) Math.min(entry.getValue(), Integer.MAX_VALUE);
+        }
+        int[] updated = rawMaterialRepository.deductStock(rawMaterialIds, quantities);
+        for (int m = 0; m < updated.length; m++) {
+            if (updated[m] == 0 || required.get(rawMaterialIds[m]) > Integer.MAX_VALUE) {
+                shortIds.add(rawMaterialIds[m]);
+            }
+        }
+        if (!shortIds.isEmpty()) {
+            throw new ConflictException("Insufficient stock for raw materials: " + describeShortages(shortIds, required));
+        }
+
+        Map<Long, RawMaterialStockRow> stock = findStockLevels(required.keySet());
+        Map<Long, Integer> stockLevels = new HashMap<>();
+        List<StockDeductionDto> deductions = new ArrayList<>(required.size());
+        for (Map.Entry<Long, Long> entry : required.entrySet()) {
+            RawMaterialStockRow row = stock.get(entry.getKey());
+            stockLevels.put(row.id(), row.stockQuantity());
+            deductions.add(new StockDeductionDto(row.id(), row.code(), entry.getValue().intValue(), row.stockQuantity()));
+        }
+        long version = catalogVersionService.increment();
+        eventPublisher.publishEvent(CatalogChangedEvent.stockChanged(version, stockLevels));
+        return new PlanExecutionDto(version, deductions);
+    }
+
+    /**
+     * Total quantity of each raw material the plan consumes, ordered by raw material id.
+     */
+    private Map<Long, Long> requiredMaterials(Map<String, Long> unitsByProduct) {
+        Map<Long, Long> required = new TreeMap<>();
+        Set<String> found = new HashSet<>();
+        List<String> codes = new ArrayList<>(unitsByProduct.keySet());
+        for (int from = 0; from < codes.size(); from += LOOKUP_BATCH_SIZE) {
+            List<String> batch = codes.subList(from, Math.min(codes.size(), from + LOOKUP_BATCH_SIZE));
+            for (ProductListingRow row : productRepository.findListingByCodeIn(batch)) {
+                found.add(row.productCode());
+                if (row.rawMaterialId() != null && row.quantity() > 0) {
+                    long units = unitsByProduct.get(row.productCode());
+                    required.merge(row.rawMaterialId(), units * row.quantity(), Long::sum);
+                }
+            }
+        }
+        if (found.size() < unitsByProduct.size()) {
+            List<String> missing = codes.stream().filter(code -> !found.contains(code)).limit(10).toList();
+            throw new BadRequestException("Products not found with codes: " + missing);
+        }
+        return required;
+    }
+
+    private String describeShortages(List<Long> shortIds, Map<Long, Long> required) {
+        List<Long> described = shortIds.subList(0, Math.min(shortIds.size(), MAX_REPORTED_SHORTAGES));
+        Map<Long, RawMaterialStockRow> stock = findStockLevels(described);
+        List<String> shortages = new ArrayList<>(described.size() + 1);
+        for (Long id : described) {
+            RawMaterialStockRow row = stock.get(id);
+            shortages.add(row == null
+                    ? "id " + id + " (not found)"
+                    : row.code() + " (needs " + required.get(id) + ", has " + row.stockQuantity() + ")");
+        }
+        if (shortIds.size() > described.size()) {
+            shortages.add("and " + (shortIds.size() - described.size()) + " more");
+        }
+        return String.join(", ", shortages);
+    }
+
+    private Map<Long, RawMaterialStockRow> findStockLevels(Iterable<Long> ids) {
+        List<Long> idList = new ArrayList<>();
+        ids.forEach(idList::add);
+        Map<Long, RawMaterialStockRow> stock = new HashMap<>();
+        for (int from = 0; from < idList.size(); from += LOOKUP_BATCH_SIZE) {
+            for (RawMaterialStockRow row : rawMaterialRepository.findStockLevels(
+                    idList.subList(from, Math.min(idList.size(), from + LOOKUP_BATCH_SIZE)))) {
+                stock.put(row.id(), row);
+            }
+        }
+        return stock;
+    }
+
+    /**
+     * Units to produce per product code; a product listed more than once adds up.
+     */
+    private static Map<String, Long> unitsByProduct(ProductionPlanDto plan) {
+        if (plan == null || plan.productionPlan() == null) {
+            throw new BadRequestException("Production plan cannot be empty");
+        }
+        Map<String, Long> unitsByProduct = new LinkedHashMap<>();
+        for (OptimizedProductDto line : plan.productionPlan()) {
+            if (line == null || line.productCode() == null || line.productCode().isBlank()) {
+                throw new BadRequestException("Product code cannot be blank");
+            }
+            if (line.quantityToProduce() < 0) {
+                throw new BadRequestException("Quantity to produce cannot be negative for product: " + line.productCode());
+            }
+            if (line.quantityToProduce() > 0) {
+                unitsByProduct.merge(line.productCode(), (long) line.quantityToProduce(), Long::sum);
+            }
+        }
+        return unitsByProduct;
+    }
+
+    private void backOff(int attempt) {
+        long ceiling = retryBackoffMillis << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting to retry the plan execution");
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.event.CatalogChangedEvent;
+import com.factory.profit.maximizer.backend.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the plans of the configured engines materialized in the background, so that reads never wait
+ * for a solve. Catalog writes arrive in bursts (a stock count fires hundreds of updates), so the plans
+ * are not recomputed per write: every committed write pushes the refresh back by the debounce window,
+ * and one refresh runs once the catalog has been quiet that long, or once the first write of the burst
+ * has waited the maximum delay. Readers get the last materialized plan right away together with how
+ * long it has been stale, i.e. since the first write it does not reflect committed.
+ * <p>
+ * A refresh that fails is logged, counted in {@code optimizer.refresh.failures} and tried again after
+ * the maximum delay, so a plan does not stay stale until the next write.
+ */
+@Slf4j
+@Service
+public class PlanRefreshService {
+
+    private final ProductionOptimizerService optimizerService;
+    private final List<String> engines;
+    private final long debounceMillis;
+    private final long maxDelayMillis;
+    private final ScheduledExecutorService scheduler;
+    private final MeterRegistry meterRegistry;
+    // Commit time of every write not reflected in all materialized plans yet, by catalog version
+    private final ConcurrentNavigableMap<Long, Long> writeTimes = new ConcurrentSkipListMap<>();
+
+    private final Object lock = new Object();
+    private ScheduledFuture<?> pending;
+    private long burstStartMillis = -1;
+
+    /**
+     * A materialized plan, the latest catalog version known and for how long the plan has lagged behind it.
+     */
+    public record MaterializedPlan(ProductionOptimizerService.VersionedPlan plan, long latestVersion,
+                                   long staleMillis) {
+
+        public boolean isStale() {
+            return plan.catalogVersion() < latestVersion;
+        }
+    }
+
+    public PlanRefreshService(ProductionOptimizerService optimizerService,
+                              MeterRegistry meterRegistry,
+                              @Value("${optimizer.refresh.engines:greedy}") List<String> engines,
+                              @Value("${optimizer.refresh.debounce-ms:500}") long debounceMillis,
+                              @Value("${optimizer.refresh.max-delay-ms:5000}") long maxDelayMillis) {
+        engines.forEach(optimizerService::resolveEngine);
+        this.optimizerService = optimizerService;
+        this.meterRegistry = meterRegistry;
+        this.engines = List.copyOf(engines);
+        this.debounceMillis = debounceMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "plan-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * The last materialized plan of the engine, however stale; empty if the engine is not refreshed in
+     * the background or has not been planned yet, in which case the caller computes the plan itself.
+     */
+    public Optional<MaterializedPlan> materializedPlan(String engineName) {
+        OptionalLong latest = optimizerService.currentCatalogVersion(engineName);
+        ProductionOptimizerService.VersionedPlan plan = optimizerService.cachedPlan(engineName);
+        if (!engines.contains(engineName) || plan == null) {
+            return Optional.empty();
+        }
+        long latestVersion = Math.max(plan.catalogVersion(), latest.orElse(plan.catalogVersion()));
+        long staleMillis = 0;
+        if (plan.catalogVersion() < latestVersion) {
+            Map.Entry<Long, Long> firstMissedWrite = writeTimes.higherEntry(plan.catalogVersion());
+            if (firstMissedWrite != null) {
+                staleMillis = Math.max(0, System.currentTimeMillis() - firstMissedWrite.getValue());
+            }
+            // Behind without a write to catch up with, e.g. after a snapshot restored at startup was reconciled
+            scheduleRefresh(debounceMillis);
+        }
+        return Optional.of(new MaterializedPlan(plan, latestVersion, staleMillis));
+    }
+
+    @TransactionalEventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        long now = System.currentTimeMillis();
+        writeTimes.putIfAbsent(event.version(), now);
+        synchronized (lock) {
+            if (burstStartMillis < 0) {
+                burstStartMillis = now;
+            }
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            long delay = Math.min(debounceMillis, Math.max(0, burstStartMillis + maxDelayMillis - now));
+            pending = scheduler.schedule(this::refresh, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void refresh() {
+        synchronized (lock) {
+            // Writes from here on start a new burst and schedule another refresh
+            burstStartMillis = -1;
+            pending = null;
+        }
+        long planned = Long.MAX_VALUE;
+        for (String engine : engines) {
+            try {
+                planned = Math.min(planned, optimizerService.getProductionPlan(engine).catalogVersion());
+            } catch (TooManyRequestsException e) {
+                // Readers are busy computing plans themselves; try again after another quiet window
+                scheduleRefresh(debounceMillis);
+                return;
+            } catch (RuntimeException e) {
+                // The plan stays as it was until the retry, the next write or a fresh read computes it again
+                log.warn("Refreshing the {} plan failed, retrying in {} ms", engine, maxDelayMillis, e);
+                Counter.builder("optimizer.refresh.failures")
+                        .description("Background plan refreshes that failed")
+                        .tag("engine", engine)
+                        .register(meterRegistry)
+                        .increment();
+                scheduleRefresh(maxDelayMillis);
+                return;
+            }
+        }
+        writeTimes.headMap(planned, true).clear();
+    }
+
+    /**
+     * Schedules a refresh after {@code delayMillis} unless one is pending already.
+     */
+    private void scheduleRefresh(long delayMillis) {
+        synchronized (lock) {
+            if (pending == null && !scheduler.isShutdown()) {
+                burstStartMillis = System.currentTimeMillis();
+                pending = scheduler.schedule(this::refresh, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
@@ -1,34 +1,91 @@
 package com.factory.profit.maximizer.backend.service;
 
+import com.factory.profit.maximizer.backend.dto.CompositionViewDto;
 import com.factory.profit.maximizer.backend.dto.ProductCompositionDto;
 import com.factory.profit.maximizer.backend.dto.ProductDto;
+import com.factory.profit.maximizer.backend.dto.ProductPageDto;
+import com.factory.profit.maximizer.backend.dto.ProductViewDto;
+import com.factory.profit.maximizer.backend.event.CatalogChangedEvent;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
 import com.factory.profit.maximizer.backend.exception.ResourceNotFoundException;
+import com.factory.profit.maximizer.backend.instrumentation.CatalogWriteTimer;
 import com.factory.profit.maximizer.backend.model.Product;
 import com.factory.profit.maximizer.backend.model.ProductComposition;
 import com.factory.profit.maximizer.backend.model.RawMaterial;
-import com.factory.profit.maximizer.backend.repository.ProductCompositionRepository;
+import com.factory.profit.maximizer.backend.repository.ProductListingRow;
 import com.factory.profit.maximizer.backend.repository.ProductRepository;
 import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
+    public static final int MAX_PAGE_SIZE = 1_000;
+
     private final ProductRepository productRepository;
     private final RawMaterialRepository rawMaterialRepository;
-    private final ProductCompositionRepository productCompositionRepository;
+    private final CatalogVersionService catalogVersionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogWriteTimer writeTimer;
 
     @Transactional(readOnly = true)
-    public List<Product> findAll() {
-        return productRepository.findAll();
+    public List<ProductViewDto> findAll() {
+        List<ProductViewDto> products = new ArrayList<>();
+        streamAll(products::add);
+        return products;
+    }
+
+    /**
+     * Products ordered by code, starting after the {@code after} code (from the start if {@code null}).
+     */
+    @Transactional(readOnly = true)
+    public ProductPageDto findPage(String after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        // Read one product past the page to know whether there is a next one
+        List<ProductViewDto> items = new ArrayList<>(limit + 1);
+        try (Stream<ProductListingRow> rows = productRepository.streamListing(after == null ? "" : after)) {
+            forEachProduct(rows, product -> {
+                items.add(product);
+                return items.size() <= limit;
+            });
+        }
+        if (items.size() <= limit) {
+            return new ProductPageDto(items, null);
+        }
+        items.remove(limit);
+        return new ProductPageDto(items, items.get(limit - 1).code());
+    }
+
+    /**
+     * Hands every product to {@code consumer} in code order, holding only one product in memory at a time.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<ProductViewDto> consumer) {
+        try (Stream<ProductListingRow> rows = productRepository.streamListing("")) {
+            forEachProduct(rows, product -> {
+                consumer.accept(product);
+                return true;
+            });
+        }
     }
 
     @Transactional(readOnly = true)
@@ -39,21 +96,34 @@ public class ProductService {
         return productRepository.findById(id);
     }
 
+    /**
+     * Read through the entity, so that once the product and its materials are in the second-level
+     * cache this does not touch the database.
+     */
+    @Transactional(readOnly = true)
+    public Optional<ProductViewDto> findViewById(Long id) {
+        return findById(id).map(ProductViewDto::of);
+    }
+
     @Transactional
     public Product save(ProductDto productDto) {
+        writeTimer.start("product", "create");
         Product product = new Product();
         product.setCode(productDto.getCode());
         product.setName(productDto.getName());
         product.setValue(productDto.getValue());
 
-        Set<ProductComposition> composition = buildComposition(product, productDto.getComposition());
+        Set<ProductComposition> composition = buildComposition(product, quantitiesByMaterial(productDto.getComposition()));
         product.setComposition(composition);
 
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(CatalogChangedEvent.structural(catalogVersionService.increment()));
+        return savedProduct;
     }
 
     @Transactional
     public Product update(Long id, ProductDto productDto) {
+        writeTimer.start("product", "update");
         if (id == null) {
             throw new ResourceNotFoundException("Product id cannot be null");
         }
@@ -64,38 +134,112 @@ public class ProductService {
         existingProduct.setName(productDto.getName());
         existingProduct.setValue(productDto.getValue());
 
-        // Clear old composition and build the new one
-        Set<ProductComposition> oldComposition = existingProduct.getComposition();
-        if (oldComposition != null && !oldComposition.isEmpty()) {
-            productCompositionRepository.deleteAll(oldComposition);
-        }
-        Set<ProductComposition> newComposition = buildComposition(existingProduct, productDto.getComposition());
-        existingProduct.setComposition(newComposition);
+        updateComposition(existingProduct, quantitiesByMaterial(productDto.getComposition()));
 
-        return productRepository.save(existingProduct);
+        Product updatedProduct = productRepository.save(existingProduct);
+        eventPublisher.publishEvent(CatalogChangedEvent.structural(catalogVersionService.increment()));
+        return updatedProduct;
     }
 
     @Transactional
     public void deleteById(Long id) {
+        writeTimer.start("product", "delete");
         if (id == null || !productRepository.existsById(id)) {
             throw new ResourceNotFoundException("Product not found with id: " + id);
         }
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(CatalogChangedEvent.structural(catalogVersionService.increment()));
+    }
+
+    /**
+     * Applies the new composition as a diff: lines for new materials are inserted, changed quantities
+     * updated and lines for materials no longer listed deleted. Untouched lines cost nothing.
+     */
+    private void updateComposition(Product product, Map<Long, Integer> quantities) {
+        Map<Long, Integer> added = new LinkedHashMap<>(quantities);
+        Iterator<ProductComposition> lines = product.getComposition().iterator();
+        while (lines.hasNext()) {
+            ProductComposition line = lines.next();
+            Integer quantity = added.remove(line.getRawMaterial().getId());
+            if (quantity == null) {
+                lines.remove();
+            } else if (line.getQuantity() != quantity) {
+                line.setQuantity(quantity);
+            }
+        }
+        product.getComposition().addAll(buildComposition(product, added));
     }
 
-    private Set<ProductComposition> buildComposition(Product product, Set<ProductCompositionDto> compositionDtos) {
+    /**
+     * Builds the lines for the given materials, loading the ones not in the second-level cache with one query.
+     */
+    private Set<ProductComposition> buildComposition(Product product, Map<Long, Integer> quantities) {
         Set<ProductComposition> composition = new HashSet<>();
+        if (quantities.isEmpty()) {
+            return composition;
+        }
+        Map<Long, RawMaterial> rawMaterials = new HashMap<>();
+        for (RawMaterial rawMaterial : rawMaterialRepository.findAllByIdCached(quantities.keySet())) {
+            rawMaterials.put(rawMaterial.getId(), rawMaterial);
+        }
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Long rawMaterialId = entry.getKey();
+            RawMaterial rawMaterial = rawMaterials.get(rawMaterialId);
+            if (rawMaterial == null) {
+                throw new ResourceNotFoundException("RawMaterial not found with id: " + rawMaterialId);
+            }
+            composition.add(new ProductComposition(null, product, rawMaterial, entry.getValue()));
+        }
+        return composition;
+    }
+
+    private static Map<Long, Integer> quantitiesByMaterial(Set<ProductCompositionDto> compositionDtos) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
         if (compositionDtos != null) {
             for (ProductCompositionDto compDto : compositionDtos) {
                 Long rawMaterialId = compDto.getRawMaterialId();
                 if (rawMaterialId == null) {
                     throw new ResourceNotFoundException("RawMaterial id cannot be null");
                 }
-                RawMaterial rawMaterial = rawMaterialRepository.findById(rawMaterialId)
-                        .orElseThrow(() -> new ResourceNotFoundException("RawMaterial not found with id: " + rawMaterialId));
-                composition.add(new ProductComposition(null, product, rawMaterial, compDto.getQuantity()));
+                if (compDto.getQuantity() == null) {
+                    throw new BadRequestException("Quantity cannot be null");
+                }
+                if (quantities.put(rawMaterialId, compDto.getQuantity()) != null) {
+                    throw new BadRequestException("Raw material listed twice: " + rawMaterialId);
+                }
             }
         }
-        return composition;
+        return quantities;
+    }
+
+    /**
+     * Folds the joined rows back into one view per product, stopping as soon as {@code consumer}
+     * returns {@code false}.
+     */
+    private static void forEachProduct(Stream<ProductListingRow> rows, Predicate<ProductViewDto> consumer) {
+        Iterator<ProductListingRow> iterator = rows.iterator();
+        ProductListingRow product = null;
+        List<CompositionViewDto> composition = null;
+        while (iterator.hasNext()) {
+            ProductListingRow row = iterator.next();
+            if (product == null || !product.productId().equals(row.productId())) {
+                if (product != null && !consumer.test(toView(product, composition))) {
+                    return;
+                }
+                product = row;
+                composition = new ArrayList<>();
+            }
+            if (row.rawMaterialId() != null) {
+                composition.add(new CompositionViewDto(row.rawMaterialId(), row.rawMaterialCode(), row.quantity()));
+            }
+        }
+        if (product != null) {
+            consumer.test(toView(product, composition));
+        }
+    }
+
+    private static ProductViewDto toView(ProductListingRow product, List<CompositionViewDto> composition) {
+        return new ProductViewDto(product.productId(), product.productCode(), product.productName(),
+                product.productValue(), composition);
     }
 }
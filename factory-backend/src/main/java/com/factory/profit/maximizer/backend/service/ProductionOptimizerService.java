@@ -2,122 +2,216 @@ package com.factory.profit.maximizer.backend.service;
 
 import com.factory.profit.maximizer.backend.dto.OptimizedProductDto;
 import com.factory.profit.maximizer.backend.dto.ProductionPlanDto;
-import com.factory.profit.maximizer.backend.model.Product;
-import com.factory.profit.maximizer.backend.model.ProductComposition;
-import com.factory.profit.maximizer.backend.model.RawMaterial;
-import com.factory.profit.maximizer.backend.repository.ProductRepository;
-import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
-import lombok.RequiredArgsConstructor;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import com.factory.profit.maximizer.backend.exception.TooManyRequestsException;
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshot;
+import com.factory.profit.maximizer.backend.optimizer.GreedyEngine;
+import com.factory.profit.maximizer.backend.optimizer.OptimizerEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Serves production plans from the cached catalog snapshot. Solving and assembling the plan are timed
+ * per engine as {@code optimizer.solve} and {@code optimizer.assemble}; both only run when the catalog
+ * changed since the engine's last plan.
+ */
 @Service
-@RequiredArgsConstructor
 public class ProductionOptimizerService {
 
-    private final ProductRepository productRepository;
-    private final RawMaterialRepository rawMaterialRepository;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final Map<String, OptimizerEngine> engines;
+    private final Map<String, VersionedPlan> planCache = new ConcurrentHashMap<>();
+    private final Map<String, Timer> solveTimers = new HashMap<>();
+    private final Map<String, Timer> assembleTimers = new HashMap<>();
+    private final Map<String, CompletableFuture<VersionedPlan>> computations = new ConcurrentHashMap<>();
+    private final Semaphore computePermits;
+    private final long retryAfterSeconds;
+
+    /**
+     * A production plan together with the catalog version it was computed from.
+     */
+    public record VersionedPlan(ProductionPlanDto plan, long catalogVersion) {
+    }
+
+    public ProductionOptimizerService(CatalogSnapshotService catalogSnapshotService, List<OptimizerEngine> engines,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${optimizer.optimize.max-concurrent:4}") int maxConcurrent,
+                                      @Value("${optimizer.optimize.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.computePermits = new Semaphore(maxConcurrent);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.engines = engines.stream().collect(Collectors.toMap(OptimizerEngine::name, Function.identity()));
+        for (String engine : this.engines.keySet()) {
+            solveTimers.put(engine, Timer.builder("optimizer.solve")
+                    .description("Time the engine spends deciding the quantities of a production plan")
+                    .tag("engine", engine)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            assembleTimers.put(engine, Timer.builder("optimizer.assemble")
+                    .description("Time spent turning the engine's quantities into the production plan response")
+                    .tag("engine", engine)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
 
-    @Transactional(readOnly = true)
     public ProductionPlanDto calculateOptimalProductionPlan() {
-        // 1. Fetch all necessary data from the database
-        List<Product> products = productRepository.findAll();
-        Map<Long, Integer> availableStock = rawMaterialRepository.findAll().stream()
-                .collect(Collectors.toMap(RawMaterial::getId, RawMaterial::getStockQuantity));
+        return calculateOptimalProductionPlan(GreedyEngine.NAME);
+    }
+
+    public ProductionPlanDto calculateOptimalProductionPlan(String engineName) {
+        return getProductionPlan(engineName).plan();
+    }
 
-        // 2. Sort products by a calculated efficiency score (value per resource cost)
-        products.sort(Comparator.comparing(this::getEfficiencyScore).reversed());
+    /**
+     * Returns the plan of the given engine for the current catalog, reusing the last computed plan
+     * as long as the catalog version has not moved. Concurrent callers that need a new plan share one
+     * computation per engine; at most {@code optimizer.optimize.max-concurrent} computations run at a
+     * time, and callers beyond that are turned away with a 429 rather than queued.
+     */
+    public VersionedPlan getProductionPlan(String engineName) {
+        OptimizerEngine engine = resolveEngine(engineName);
 
-        List<OptimizedProductDto> productionPlan = new ArrayList<>();
-        BigDecimal totalProfit = BigDecimal.ZERO;
+        VersionedSnapshot cachedSnapshot = catalogSnapshotService.cachedSnapshot();
+        VersionedPlan cached = planCache.get(engineName);
+        if (cachedSnapshot != null && cached != null && cached.catalogVersion() == cachedSnapshot.version()) {
+            return cached;
+        }
 
-        // 3. Iterate through sorted products to decide how many to produce
-        for (Product product : products) {
-            if (product.getComposition().isEmpty()) {
-                continue; // Cannot produce a product with no composition defined
+        OptionalLong latestVersion = catalogSnapshotService.latestVersion();
+        CompletableFuture<VersionedPlan> computation = new CompletableFuture<>();
+        while (true) {
+            CompletableFuture<VersionedPlan> running = computations.putIfAbsent(engineName, computation);
+            if (running == null) {
+                break;
             }
-
-            // 4. Calculate the maximum number of units we can produce for this product
-            int maxUnitsToProduce = calculateMaxProducibleUnits(product, availableStock);
-
-            if (maxUnitsToProduce > 0) {
-                // 5. "Produce" the items: add to plan and update stock
-                productionPlan.add(new OptimizedProductDto(
-                        product.getCode(),
-                        product.getName(),
-                        maxUnitsToProduce,
-                        product.getValue(),
-                        product.getValue().multiply(BigDecimal.valueOf(maxUnitsToProduce))
-                ));
-
-                // Update total profit
-                totalProfit = totalProfit.add(product.getValue().multiply(BigDecimal.valueOf(maxUnitsToProduce)));
-
-                // Update the available stock of raw materials
-                for (ProductComposition component : product.getComposition()) {
-                    Long rawMaterialId = component.getRawMaterial().getId();
-                    int quantityNeeded = component.getQuantity();
-                    availableStock.computeIfPresent(rawMaterialId,
-                            (id, currentStock) -> currentStock - (maxUnitsToProduce * quantityNeeded)
-                    );
-                }
+            VersionedPlan shared = await(running);
+            // A computation that started before a write this caller already knows of is not good enough
+            if (latestVersion.isEmpty() || shared.catalogVersion() >= latestVersion.getAsLong()) {
+                return shared;
             }
         }
 
-        return new ProductionPlanDto(productionPlan, totalProfit);
+        if (!computePermits.tryAcquire()) {
+            computations.remove(engineName, computation);
+            TooManyRequestsException rejected = new TooManyRequestsException(
+                    "Too many production plans are being computed, try again later", retryAfterSeconds);
+            computation.completeExceptionally(rejected);
+            throw rejected;
+        }
+        try {
+            VersionedPlan plan = computePlan(engineName, engine);
+            computation.complete(plan);
+            return plan;
+        } catch (RuntimeException e) {
+            computation.completeExceptionally(e);
+            throw e;
+        } finally {
+            computations.remove(engineName, computation);
+            computePermits.release();
+        }
     }
 
-    /**
-     * Calculates an efficiency score for a product to help prioritize production.
-     * The score is defined as value / total_quantity_of_materials.
-     * A higher score means more value per unit of resource.
-     */
-    private double getEfficiencyScore(Product product) {
-        if (product.getComposition() == null || product.getComposition().isEmpty()) {
-            return 0;
+    private VersionedPlan computePlan(String engineName, OptimizerEngine engine) {
+        // 1. Take the cached catalog snapshot (loaded from the database only after a catalog write)
+        VersionedSnapshot versionedSnapshot = catalogSnapshotService.getVersionedSnapshot();
+        VersionedPlan cached = planCache.get(engineName);
+        if (cached != null && cached.catalogVersion() == versionedSnapshot.version()) {
+            return cached;
         }
+        CatalogSnapshot snapshot = versionedSnapshot.snapshot();
 
-        double totalResourceCost = product.getComposition().stream()
-                .mapToDouble(ProductComposition::getQuantity)
-                .sum();
+        // 2. Let the selected engine decide how many units of each product to produce
+        int[] quantities = solveTimers.get(engineName).record(() -> engine.solve(snapshot));
 
-        if (totalResourceCost == 0) {
-            return 0; // Avoid division by zero; a product that costs nothing is infinitely efficient
-        }
+        // 3. Assemble the plan, listing products by their efficiency score
+        ProductionPlanDto productionPlan = assembleTimers.get(engineName).record(() -> toPlan(snapshot, quantities));
+        VersionedPlan plan = new VersionedPlan(productionPlan, versionedSnapshot.version());
+        planCache.merge(engineName, plan, (old, computed) -> computed.catalogVersion() >= old.catalogVersion() ? computed : old);
+        return plan;
+    }
 
-        return product.getValue().doubleValue() / totalResourceCost;
+    private static VersionedPlan await(CompletableFuture<VersionedPlan> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the production plan");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
     }
 
     /**
-     * Determines the maximum number of units of a single product that can be
-     * produced based on the currently available stock of raw materials.
+     * Latest committed catalog version, known without touching the database; empty on a cold start.
+     * Fails like {@link #getProductionPlan} for an unknown engine.
      */
-    private int calculateMaxProducibleUnits(Product product, Map<Long, Integer> availableStock) {
-        int maxPossibleUnits = Integer.MAX_VALUE;
-
-        for (ProductComposition component : product.getComposition()) {
-            RawMaterial material = component.getRawMaterial();
-            int quantityNeededPerUnit = component.getQuantity();
-
-            if (quantityNeededPerUnit <= 0) {
-                continue; // Skip if material quantity is zero or negative
-            }
+    public OptionalLong currentCatalogVersion(String engineName) {
+        resolveEngine(engineName);
+        return catalogSnapshotService.latestVersion();
+    }
 
-            int stock = availableStock.getOrDefault(material.getId(), 0);
-            int unitsPossibleForThisMaterial = stock / quantityNeededPerUnit;
+    /**
+     * The last plan computed for the engine, whatever catalog version it was computed from; {@code null}
+     * if there is none.
+     */
+    VersionedPlan cachedPlan(String engineName) {
+        return planCache.get(engineName);
+    }
 
-            if (unitsPossibleForThisMaterial < maxPossibleUnits) {
-                maxPossibleUnits = unitsPossibleForThisMaterial;
+    /**
+     * Lists the products to produce in order of efficiency score, with their value and the total profit.
+     */
+    static ProductionPlanDto toPlan(CatalogSnapshot snapshot, int[] quantities) {
+        List<OptimizedProductDto> productionPlan = new ArrayList<>();
+        // Summed in fixed point and converted once; the scales are those BigDecimal arithmetic would give
+        long totalProfit = 0;
+        int totalScale = 0;
+        for (int rank = 0; rank < snapshot.productCount(); rank++) {
+            int product = snapshot.productAt(rank);
+            int unitsToProduce = quantities[product];
+            if (unitsToProduce <= 0) {
+                continue;
             }
+            BigDecimal unitValue = snapshot.productValue(product);
+            long totalValue = snapshot.valueOf(product, unitsToProduce);
+            productionPlan.add(new OptimizedProductDto(
+                    snapshot.productCode(product),
+                    snapshot.productName(product),
+                    unitsToProduce,
+                    unitValue,
+                    snapshot.toAmount(totalValue, unitValue.scale())
+            ));
+            totalProfit = Math.addExact(totalProfit, totalValue);
+            totalScale = Math.max(totalScale, unitValue.scale());
         }
+        return new ProductionPlanDto(productionPlan, snapshot.toAmount(totalProfit, totalScale));
+    }
 
-        return maxPossibleUnits == Integer.MAX_VALUE ? 0 : maxPossibleUnits;
+    OptimizerEngine resolveEngine(String engineName) {
+        OptimizerEngine engine = engines.get(engineName);
+        if (engine == null) {
+            throw new BadRequestException("Unknown optimization engine: " + engineName);
+        }
+        return engine;
     }
-}
\ No newline at end of file
+}
@@ -1,25 +1,46 @@
 package com.factory.profit.maximizer.backend.service;
 
 import com.factory.profit.maximizer.backend.dto.RawMaterialDto;
+import com.factory.profit.maximizer.backend.dto.RawMaterialViewDto;
+import com.factory.profit.maximizer.backend.event.CatalogChangedEvent;
+import com.factory.profit.maximizer.backend.exception.ConflictException;
 import com.factory.profit.maximizer.backend.exception.ResourceNotFoundException;
+import com.factory.profit.maximizer.backend.instrumentation.CatalogWriteTimer;
 import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.repository.ProductCompositionRepository;
 import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
+import com.factory.profit.maximizer.backend.repository.StockMovementRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class RawMaterialService {
 
+    private static final int MAX_LISTED_CONSUMERS = 10;
+
     private final RawMaterialRepository rawMaterialRepository;
+    private final ProductCompositionRepository productCompositionRepository;
+    private final StockMovementRepository stockMovementRepository;
+    private final CatalogVersionService catalogVersionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogWriteTimer writeTimer;
+
+    @Transactional(readOnly = true)
+    public List<RawMaterialViewDto> findAll() {
+        return rawMaterialRepository.findAllViews();
+    }
 
     @Transactional(readOnly = true)
-    public List<RawMaterial> findAll() {
-        return rawMaterialRepository.findAll();
+    public Optional<RawMaterialViewDto> findViewById(Long id) {
+        return findById(id).map(RawMaterialViewDto::of);
     }
 
     @Transactional(readOnly = true)
@@ -32,36 +53,67 @@ public class RawMaterialService {
 
     @Transactional
     public RawMaterial save(RawMaterialDto rawMaterialDto) {
+        writeTimer.start("raw_material", "create");
         RawMaterial rawMaterial = new RawMaterial();
         rawMaterial.setCode(rawMaterialDto.getCode());
         rawMaterial.setName(rawMaterialDto.getName());
         rawMaterial.setStockQuantity(rawMaterialDto.getStockQuantity());
-        return rawMaterialRepository.save(rawMaterial);
+        RawMaterial savedRawMaterial = rawMaterialRepository.saveAndFlush(rawMaterial);
+        eventPublisher.publishEvent(CatalogChangedEvent.structural(catalogVersionService.increment()));
+        return savedRawMaterial;
     }
 
     @Transactional
     public RawMaterial update(Long id, RawMaterialDto rawMaterialDto) {
+        writeTimer.start("raw_material", "update");
         if (id == null) {
             throw new ResourceNotFoundException("RawMaterial id cannot be null");
         }
         RawMaterial existingRawMaterial = rawMaterialRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("RawMaterial not found with id: " + id));
+        if (rawMaterialDto.getVersion() != null && !rawMaterialDto.getVersion().equals(existingRawMaterial.getVersion())) {
+            throw new ConflictException("RawMaterial " + id + " is at version " + existingRawMaterial.getVersion()
+                    + ", not " + rawMaterialDto.getVersion() + "; reload it and try again");
+        }
 
+        boolean stockOnly = Objects.equals(existingRawMaterial.getCode(), rawMaterialDto.getCode())
+                && Objects.equals(existingRawMaterial.getName(), rawMaterialDto.getName());
         existingRawMaterial.setCode(rawMaterialDto.getCode());
         existingRawMaterial.setName(rawMaterialDto.getName());
         existingRawMaterial.setStockQuantity(rawMaterialDto.getStockQuantity());
 
-        return rawMaterialRepository.save(existingRawMaterial);
+        // Flush before bumping the version so the row locks are taken in the same order as plan executions
+        // and ledger flushes: raw material first, catalog version last
+        RawMaterial updatedRawMaterial = rawMaterialRepository.saveAndFlush(existingRawMaterial);
+        long version = catalogVersionService.increment();
+        eventPublisher.publishEvent(stockOnly
+                ? CatalogChangedEvent.stockChanged(version, id, updatedRawMaterial.getStockQuantity())
+                : CatalogChangedEvent.structural(version));
+        return updatedRawMaterial;
     }
 
     @Transactional
     public void deleteById(Long id) {
+        writeTimer.start("raw_material", "delete");
         if (id == null) {
             throw new ResourceNotFoundException("RawMaterial id cannot be null");
         }
-        if (!rawMaterialRepository.existsById(id)) {
+        // Locked first, so that no ledger batch for it commits between the checks below and the delete
+        if (rawMaterialRepository.lockStockLevels(List.of(id)).isEmpty()) {
             throw new ResourceNotFoundException("RawMaterial not found with id: " + id);
         }
+        List<String> consumers = productCompositionRepository.findConsumerCodes(id, Limit.of(MAX_LISTED_CONSUMERS + 1));
+        if (!consumers.isEmpty()) {
+            throw new ConflictException("RawMaterial " + id + " is used by products "
+                    + String.join(", ", consumers.subList(0, Math.min(consumers.size(), MAX_LISTED_CONSUMERS)))
+                    + (consumers.size() > MAX_LISTED_CONSUMERS ? " and others" : ""));
+        }
+        // The ledger is the audit trail of the stock and is never deleted
+        if (stockMovementRepository.existsByRawMaterialId(id)) {
+            throw new ConflictException("RawMaterial " + id + " has stock movements in the ledger");
+        }
         rawMaterialRepository.deleteById(id);
+        rawMaterialRepository.flush();
+        eventPublisher.publishEvent(CatalogChangedEvent.structural(catalogVersionService.increment()));
     }
 }
@@ -0,0 +1,154 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.ProductionPlanDto;
+import com.factory.profit.maximizer.backend.dto.ScenarioComparisonDto;
+import com.factory.profit.maximizer.backend.dto.ScenarioDto;
+import com.factory.profit.maximizer.backend.dto.ScenarioResultDto;
+import com.factory.profit.maximizer.backend.dto.StockOverrideDto;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshot;
+import com.factory.profit.maximizer.backend.optimizer.OptimizerEngine;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates what-if stock scenarios against the current catalog without touching the database.
+ * Every scenario is a stock-only copy of the cached snapshot, so they all share its product and
+ * composition arrays, and the engines can warm-start one scenario from another. Scenarios are solved
+ * concurrently on a pool of bounded size shared by all requests.
+ */
+@Service
+public class ScenarioService {
+
+    private static final BigDecimal MAX_STOCK = BigDecimal.valueOf(Integer.MAX_VALUE);
+
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final ProductionOptimizerService optimizerService;
+    private final ForkJoinPool pool;
+    private final int maxScenarios;
+
+    public ScenarioService(CatalogSnapshotService catalogSnapshotService,
+                           ProductionOptimizerService optimizerService,
+                           @Value("${optimizer.scenarios.parallelism:0}") int parallelism,
+                           @Value("${optimizer.scenarios.max-count:200}") int maxScenarios) {
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.optimizerService = optimizerService;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.maxScenarios = maxScenarios;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Ranks the scenarios by total profit. The production plan of each scenario is only returned
+     * with {@code includePlans}, since for a large catalog it dwarfs everything else.
+     */
+    public ScenarioComparisonDto evaluate(String engineName, List<ScenarioDto> scenarios, boolean includePlans) {
+        OptimizerEngine engine = optimizerService.resolveEngine(engineName);
+        if (scenarios == null || scenarios.isEmpty()) {
+            throw new BadRequestException("At least one scenario is required");
+        }
+        if (scenarios.size() > maxScenarios) {
+            throw new BadRequestException("At most " + maxScenarios + " scenarios can be evaluated at once");
+        }
+
+        VersionedSnapshot base = catalogSnapshotService.getVersionedSnapshot();
+        List<Callable<ProductionPlanDto>> solves = new ArrayList<>(scenarios.size());
+        for (ScenarioDto scenario : scenarios) {
+            CatalogSnapshot snapshot = applyOverrides(base.snapshot(), scenario);
+            solves.add(() -> ProductionOptimizerService.toPlan(snapshot, engine.solve(snapshot)));
+        }
+
+        // Solved first and on its own, so that the scenarios start from a run with few stock differences
+        BigDecimal baseProfit = ProductionOptimizerService.toPlan(base.snapshot(), engine.solve(base.snapshot())).totalProfit();
+        List<ProductionPlanDto> plans = solveAll(solves);
+
+        List<Integer> order = new ArrayList<>(scenarios.size());
+        for (int s = 0; s < scenarios.size(); s++) {
+            order.add(s);
+        }
+        order.sort(Comparator.comparing((Integer s) -> plans.get(s).totalProfit()).reversed());
+        List<ScenarioResultDto> results = new ArrayList<>(scenarios.size());
+        for (Integer s : order) {
+            ProductionPlanDto plan = plans.get(s);
+            results.add(new ScenarioResultDto(results.size() + 1, scenarios.get(s).getName(), plan.totalProfit(),
+                    plan.totalProfit().subtract(baseProfit), includePlans ? plan.productionPlan() : null));
+        }
+        return new ScenarioComparisonDto(engine.name(), base.version(), baseProfit, results);
+    }
+
+    private List<ProductionPlanDto> solveAll(List<Callable<ProductionPlanDto>> solves) {
+        List<ProductionPlanDto> plans = new ArrayList<>(solves.size());
+        try {
+            for (Future<ProductionPlanDto> future : pool.invokeAll(solves)) {
+                plans.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while evaluating scenarios");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return plans;
+    }
+
+    /**
+     * Applies the overrides in the order given, so several overrides of one material add up.
+     */
+    private static CatalogSnapshot applyOverrides(CatalogSnapshot base, ScenarioDto scenario) {
+        if (scenario == null || scenario.getName() == null || scenario.getName().isBlank()) {
+            throw new BadRequestException("Scenario name cannot be blank");
+        }
+        Map<Long, Integer> stockLevels = new HashMap<>();
+        if (scenario.getOverrides() != null) {
+            for (StockOverrideDto override : scenario.getOverrides()) {
+                Long rawMaterialId = override.getRawMaterialId();
+                if (rawMaterialId == null) {
+                    throw new BadRequestException("Scenario '" + scenario.getName() + "': RawMaterial id cannot be null");
+                }
+                Integer current = stockLevels.containsKey(rawMaterialId) ? stockLevels.get(rawMaterialId) : base.stockOf(rawMaterialId);
+                if (current == null) {
+                    throw new BadRequestException("Scenario '" + scenario.getName() + "': RawMaterial not found with id: " + rawMaterialId);
+                }
+                stockLevels.put(rawMaterialId, overriddenStock(scenario.getName(), current, override));
+            }
+        }
+        return base.withStock(stockLevels);
+    }
+
+    private static int overriddenStock(String scenario, int current, StockOverrideDto override) {
+        int changes = (override.getQuantity() != null ? 1 : 0) + (override.getDelta() != null ? 1 : 0) + (override.getFactor() != null ? 1 : 0);
+        if (changes != 1) {
+            throw new BadRequestException("Scenario '" + scenario + "': exactly one of quantity, delta or factor must be set");
+        }
+        BigDecimal stock;
+        if (override.getQuantity() != null) {
+            stock = BigDecimal.valueOf(override.getQuantity());
+        } else if (override.getDelta() != null) {
+            stock = BigDecimal.valueOf((long) current + override.getDelta());
+        } else {
+            stock = BigDecimal.valueOf(current).multiply(override.getFactor()).setScale(0, RoundingMode.FLOOR);
+        }
+        return stock.max(BigDecimal.ZERO).min(MAX_STOCK).intValueExact();
+    }
+}
@@ -0,0 +1,70 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.MaterialSensitivityDto;
+import com.factory.profit.maximizer.backend.dto.ProductSensitivityDto;
+import com.factory.profit.maximizer.backend.dto.SensitivityReportDto;
+import com.factory.profit.maximizer.backend.exception.ServiceUnavailableException;
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshot;
+import com.factory.profit.maximizer.backend.optimizer.Sensitivity;
+import com.factory.profit.maximizer.backend.optimizer.SensitivityAnalyzer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Answers how much each raw material is worth to the production plan, from the linear relaxation
+ * of the current catalog rather than by re-optimizing with perturbed stock.
+ */
+@Service
+@RequiredArgsConstructor
+public class SensitivityService {
+
+    private static final int SCALE = 4;
+
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final SensitivityAnalyzer sensitivityAnalyzer;
+
+    /**
+     * Raw materials come most valuable first; products keep the catalog order.
+     */
+    public SensitivityReportDto analyze() {
+        VersionedSnapshot versioned = catalogSnapshotService.getVersionedSnapshot();
+        CatalogSnapshot snapshot = versioned.snapshot();
+        Sensitivity sensitivity = sensitivityAnalyzer.analyze(snapshot);
+        if (sensitivity == null) {
+            throw new ServiceUnavailableException("The sensitivity analysis could not be completed in time, try again later");
+        }
+
+        List<Integer> order = new ArrayList<>(snapshot.materialCount());
+        for (int m = 0; m < snapshot.materialCount(); m++) {
+            order.add(m);
+        }
+        order.sort(Comparator.comparingDouble((Integer m) -> sensitivity.shadowPrices()[m]).reversed()
+                .thenComparingLong(snapshot::materialId));
+        List<MaterialSensitivityDto> rawMaterials = new ArrayList<>(order.size());
+        for (int m : order) {
+            rawMaterials.add(new MaterialSensitivityDto(snapshot.materialId(m), snapshot.stock(m),
+                    decimal(sensitivity.usedQuantities()[m]), decimal(sensitivity.shadowPrices()[m]),
+                    decimal(sensitivity.allowableIncrease()[m]), decimal(sensitivity.allowableDecrease()[m])));
+        }
+
+        List<ProductSensitivityDto> products = new ArrayList<>(snapshot.productCount());
+        for (int p = 0; p < snapshot.productCount(); p++) {
+            products.add(new ProductSensitivityDto(snapshot.productCode(p), snapshot.productName(p), snapshot.productValue(p),
+                    decimal(sensitivity.quantities()[p]), decimal(sensitivity.reducedCosts()[p])));
+        }
+        return new SensitivityReportDto(versioned.version(), decimal(sensitivity.objective()), rawMaterials, products);
+    }
+
+    /**
+     * {@code null} for an unlimited range.
+     */
+    private static BigDecimal decimal(double value) {
+        return Double.isInfinite(value) ? null : BigDecimal.valueOf(value).setScale(SCALE, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,346 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.StockBalanceDto;
+import com.factory.profit.maximizer.backend.dto.StockMovementDto;
+import com.factory.profit.maximizer.backend.dto.StockMovementPageDto;
+import com.factory.profit.maximizer.backend.dto.StockMovementReportDto;
+import com.factory.profit.maximizer.backend.dto.StockMovementViewDto;
+import com.factory.profit.maximizer.backend.event.CatalogChangedEvent;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import com.factory.profit.maximizer.backend.exception.ResourceNotFoundException;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.model.StockMovement;
+import com.factory.profit.maximizer.backend.repository.MaterialDeltaRow;
+import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
+import com.factory.profit.maximizer.backend.repository.RawMaterialStockRow;
+import com.factory.profit.maximizer.backend.repository.StockMovementRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Append-only ledger of stock movements with write-behind aggregation. Movements are inserted in
+ * batches and, once committed, added to a per-material {@link LongAdder}, so the current balance is
+ * read without a query and concurrent writers do not contend on one counter. A periodic flush claims
+ * every movement not applied yet, adds the per-material sums to {@code raw_materials} in one batch and
+ * publishes the new levels as a stock change, so the optimizer snapshot moves one flush at a time.
+ * Recording and reading share a lock that a flush holds exclusively, so no balance is read while a
+ * movement is counted both in the stored stock and as pending, or in neither.
+ * <p>
+ * A batch is rejected if it would take the balance of a raw material below zero or past
+ * {@link Integer#MAX_VALUE}. The check locks the rows of the batch's raw materials in id order and
+ * sums their unflushed movements in the database, so concurrent batches, here or on another instance,
+ * are checked one after the other against each other's movements. Plan executions and edits change the
+ * stored stock without looking at the ledger and can still get there before a flush, so the flush
+ * keeps every stored stock within that range and logs the materials it had to clamp.
+ */
+@Slf4j
+@Service
+public class StockLedgerService {
+
+    private static final int LOOKUP_BATCH_SIZE = 1_000;
+    private static final int MAX_REASON_LENGTH = 255;
+
+    private final StockMovementRepository stockMovementRepository;
+    private final RawMaterialRepository rawMaterialRepository;
+    private final CatalogVersionService catalogVersionService;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final Map<Long, LongAdder> pendingDeltas = new ConcurrentHashMap<>();
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    // Starts set so that movements left over from a previous run are flushed too
+    private final AtomicBoolean recordedSinceFlush = new AtomicBoolean(true);
+    // Bumped by every flush before it releases the lock, so a balance can tell whether one ran meanwhile
+    private final AtomicLong flushes = new AtomicLong();
+
+    public StockLedgerService(StockMovementRepository stockMovementRepository,
+                              RawMaterialRepository rawMaterialRepository,
+                              CatalogVersionService catalogVersionService,
+                              CatalogSnapshotService catalogSnapshotService,
+                              ApplicationEventPublisher eventPublisher,
+                              EntityManager entityManager,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${stock.ledger.max-batch-size:10000}") int maxBatchSize) {
+        this.stockMovementRepository = stockMovementRepository;
+        this.rawMaterialRepository = rawMaterialRepository;
+        this.catalogVersionService = catalogVersionService;
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Appends the movements to the ledger, all or nothing. They count towards {@link #balance} right
+     * away and towards the stored stock at the next flush.
+     *
+     * @throws BadRequestException if a raw material does not exist or its balance would leave the range
+     *                             of a stock quantity
+     */
+    public StockMovementReportDto record(List<StockMovementDto> movements) {
+        Set<Long> rawMaterialIds = validate(movements);
+        flushLock.readLock().lock();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, Integer> storedStock = lockStockLevels(rawMaterialIds);
+                List<Long> missing = rawMaterialIds.stream().filter(id -> !storedStock.containsKey(id)).sorted().limit(10).toList();
+                if (!missing.isEmpty()) {
+                    throw new BadRequestException("Raw materials not found with ids: " + missing);
+                }
+                checkBalances(movements, storedStock, findUnflushedDeltas(rawMaterialIds));
+                Instant now = Instant.now();
+                for (StockMovementDto movement : movements) {
+                    RawMaterial rawMaterial = entityManager.getReference(RawMaterial.class, movement.getRawMaterialId());
+                    entityManager.persist(new StockMovement(null, rawMaterial, movement.getDelta(), movement.getReason(), now, null));
+                }
+            });
+            // Counted only once committed, so a balance never includes a movement that was rolled back
+            for (StockMovementDto movement : movements) {
+                pendingDeltas.computeIfAbsent(movement.getRawMaterialId(), id -> new LongAdder()).add(movement.getDelta());
+            }
+            recordedSinceFlush.set(true);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        return new StockMovementReportDto(movements.size());
+    }
+
+    /**
+     * Stock of the raw material as of its last flush plus every movement recorded since. The stored
+     * stock comes from the cached snapshot, or from its row when the snapshot is not loaded, and is read
+     * without the lock; the read is repeated if a flush ran before the pending movements were.
+     */
+    public StockBalanceDto balance(Long rawMaterialId) {
+        while (true) {
+            long flushesBefore = flushes.get();
+            Integer storedStock = storedStock(rawMaterialId);
+            if (storedStock == null) {
+                throw new ResourceNotFoundException("Raw material not found with id: " + rawMaterialId);
+            }
+            long pendingDelta;
+            flushLock.readLock().lock();
+            try {
+                if (flushes.get() != flushesBefore) {
+                    continue;
+                }
+                LongAdder pending = pendingDeltas.get(rawMaterialId);
+                pendingDelta = pending == null ? 0 : pending.sum();
+            } finally {
+                flushLock.readLock().unlock();
+            }
+            return new StockBalanceDto(rawMaterialId, storedStock, pendingDelta, storedStock + pendingDelta);
+        }
+    }
+
+    /**
+     * Movements of one raw material in insertion order, starting after the movement id {@code after}.
+     */
+    public StockMovementPageDto findPage(Long rawMaterialId, long after, int limit) {
+        if (limit < 1 || limit > ProductService.MAX_PAGE_SIZE) {
+            throw new BadRequestException("Limit must be between 1 and " + ProductService.MAX_PAGE_SIZE);
+        }
+        List<StockMovementViewDto> items = new ArrayList<>(
+                stockMovementRepository.findPage(rawMaterialId, after, Limit.of(limit + 1)));
+        if (items.size() <= limit) {
+            return new StockMovementPageDto(items, null);
+        }
+        items.remove(limit);
+        return new StockMovementPageDto(items, items.get(limit - 1).id());
+    }
+
+    /**
+     * Applies every movement recorded since the last flush to the stored stock in one transaction.
+     * Raw materials are updated in id order and the catalog version row is locked last, like a plan
+     * execution, so the two cannot deadlock.
+     *
+     * @return the number of raw materials whose stock changed
+     */
+    public int flush() {
+        flushLock.writeLock().lock();
+        try {
+            recordedSinceFlush.set(false);
+            return applyUnflushed();
+        } catch (RuntimeException e) {
+            // Nothing was applied; try again at the next scheduled flush
+            recordedSinceFlush.set(true);
+            throw e;
+        } finally {
+            flushes.incrementAndGet();
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes on a fixed delay, skipping the round trip when nothing was recorded since the last flush.
+     */
+    @Scheduled(fixedDelayString = "${stock.ledger.flush-interval-ms:1000}")
+    void flushRecorded() {
+        if (recordedSinceFlush.get()) {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.warn("Stock ledger flush failed, the movements stay pending", e);
+            }
+        }
+    }
+
+    private int applyUnflushed() {
+        List<MaterialDeltaRow> applied = transactionTemplate.execute(status -> {
+            UUID batch = UUID.randomUUID();
+            if (stockMovementRepository.claimUnflushed(batch) == 0) {
+                return List.<MaterialDeltaRow>of();
+            }
+            List<MaterialDeltaRow> deltas = stockMovementRepository.sumByMaterial(batch).stream()
+                    .filter(row -> row.delta() != 0)
+                    .toList();
+            if (deltas.isEmpty()) {
+                return deltas;
+            }
+            List<Long> ids = deltas.stream().map(MaterialDeltaRow::rawMaterialId).toList();
+            Map<Long, Integer> previousLevels = findStockLevels(ids);
+            long[] rawMaterialIds = new long[deltas.size()];
+            long[] amounts = new long[deltas.size()];
+            for (int i = 0; i < deltas.size(); i++) {
+                MaterialDeltaRow row = deltas.get(i);
+                rawMaterialIds[i] = row.rawMaterialId();
+                amounts[i] = row.delta();
+                Integer previous = previousLevels.get(row.rawMaterialId());
+                if (previous != null && !isStockQuantity(previous + row.delta())) {
+                    log.warn("Stock of raw material {} clamped: {} plus the ledger delta {} is out of range",
+                            row.rawMaterialId(), previous, row.delta());
+                }
+            }
+            rawMaterialRepository.addStock(rawMaterialIds, amounts);
+
+            Map<Long, Integer> stockLevels = findStockLevels(ids);
+            long version = catalogVersionService.increment();
+            eventPublisher.publishEvent(CatalogChangedEvent.stockChanged(version, stockLevels));
+            return deltas;
+        });
+        // Rebuilt from the ledger rather than by subtracting what was applied, so that movements
+        // another instance recorded or flushed are accounted for as well
+        pendingDeltas.clear();
+        for (MaterialDeltaRow row : stockMovementRepository.sumUnflushed()) {
+            pendingDeltas.computeIfAbsent(row.rawMaterialId(), id -> new LongAdder()).add(row.delta());
+        }
+        return applied.size();
+    }
+
+    private Set<Long> validate(List<StockMovementDto> movements) {
+        if (movements == null || movements.isEmpty()) {
+            throw new BadRequestException("Stock movements cannot be empty");
+        }
+        if (movements.size() > maxBatchSize) {
+            throw new BadRequestException("At most " + maxBatchSize + " stock movements can be recorded at once");
+        }
+        Set<Long> rawMaterialIds = new HashSet<>();
+        for (StockMovementDto movement : movements) {
+            if (movement == null || movement.getRawMaterialId() == null) {
+                throw new BadRequestException("Raw material id cannot be null");
+            }
+            if (movement.getDelta() == null || movement.getDelta() == 0) {
+                throw new BadRequestException("Delta cannot be zero for raw material: " + movement.getRawMaterialId());
+            }
+            if (movement.getReason() != null && movement.getReason().length() > MAX_REASON_LENGTH) {
+                throw new BadRequestException("Reason cannot be longer than " + MAX_REASON_LENGTH + " characters");
+            }
+            rawMaterialIds.add(movement.getRawMaterialId());
+        }
+        return rawMaterialIds;
+    }
+
+    private Integer storedStock(Long rawMaterialId) {
+        VersionedSnapshot cached = catalogSnapshotService.cachedSnapshot();
+        Integer storedStock = cached == null ? null : cached.snapshot().stockOf(rawMaterialId);
+        if (storedStock != null) {
+            return storedStock;
+        }
+        List<RawMaterialStockRow> rows = rawMaterialRepository.findStockLevels(List.of(rawMaterialId));
+        return rows.isEmpty() ? null : rows.get(0).stockQuantity();
+    }
+
+    /**
+     * Rejects the movements if the stored stock, the unflushed movements and the new ones would add up
+     * to a balance a stock quantity cannot hold for any raw material.
+     */
+    private static void checkBalances(List<StockMovementDto> movements, Map<Long, Integer> storedStock,
+                                      Map<Long, Long> unflushedDeltas) {
+        Map<Long, Long> balances = new HashMap<>();
+        for (StockMovementDto movement : movements) {
+            balances.merge(movement.getRawMaterialId(), (long) movement.getDelta(), Long::sum);
+        }
+        for (Map.Entry<Long, Long> entry : balances.entrySet()) {
+            long balance = storedStock.get(entry.getKey()) + unflushedDeltas.getOrDefault(entry.getKey(), 0L) + entry.getValue();
+            if (!isStockQuantity(balance)) {
+                throw new BadRequestException("Stock of raw material " + entry.getKey() + " would become " + balance
+                        + ", it must stay between 0 and " + Integer.MAX_VALUE);
+            }
+        }
+    }
+
+    private static boolean isStockQuantity(long stock) {
+        return stock >= 0 && stock <= Integer.MAX_VALUE;
+    }
+
+    private Map<Long, Integer> lockStockLevels(Collection<Long> rawMaterialIds) {
+        List<Long> ids = rawMaterialIds.stream().sorted().toList();
+        Map<Long, Integer> stockLevels = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += LOOKUP_BATCH_SIZE) {
+            for (RawMaterialStockRow row : rawMaterialRepository.lockStockLevels(
+                    ids.subList(from, Math.min(ids.size(), from + LOOKUP_BATCH_SIZE)))) {
+                stockLevels.put(row.id(), row.stockQuantity());
+            }
+        }
+        return stockLevels;
+    }
+
+    private Map<Long, Long> findUnflushedDeltas(Collection<Long> rawMaterialIds) {
+        List<Long> ids = new ArrayList<>(rawMaterialIds);
+        Map<Long, Long> deltas = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += LOOKUP_BATCH_SIZE) {
+            for (MaterialDeltaRow row : stockMovementRepository.sumUnflushed(
+                    ids.subList(from, Math.min(ids.size(), from + LOOKUP_BATCH_SIZE)))) {
+                deltas.put(row.rawMaterialId(), row.delta());
+            }
+        }
+        return deltas;
+    }
+
+    private Map<Long, Integer> findStockLevels(Collection<Long> rawMaterialIds) {
+        List<Long> ids = new ArrayList<>(rawMaterialIds);
+        Map<Long, Integer> stockLevels = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += LOOKUP_BATCH_SIZE) {
+            for (RawMaterialStockRow row : rawMaterialRepository.findStockLevels(
+                    ids.subList(from, Math.min(ids.size(), from + LOOKUP_BATCH_SIZE)))) {
+                stockLevels.put(row.id(), row.stockQuantity());
+            }
+        }
+        return stockLevels;
+    }
+}
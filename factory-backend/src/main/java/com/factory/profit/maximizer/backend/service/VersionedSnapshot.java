@@ -0,0 +1,9 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshot;
+
+/**
+ * A catalog snapshot together with the catalog version it was read at.
+ */
+public record VersionedSnapshot(CatalogSnapshot snapshot, long version) {
+}
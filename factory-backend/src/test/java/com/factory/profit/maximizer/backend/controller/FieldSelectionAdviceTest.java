@@ -0,0 +1,79 @@
+package com.factory.profit.maximizer.backend.controller;
+
+import com.factory.profit.maximizer.backend.dto.ProductCompositionDto;
+import com.factory.profit.maximizer.backend.dto.ProductDto;
+import com.factory.profit.maximizer.backend.dto.RawMaterialDto;
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.service.ProductService;
+import com.factory.profit.maximizer.backend.service.RawMaterialService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class FieldSelectionAdviceTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private RawMaterialService rawMaterialService;
+
+    @Test
+    void shouldRejectAnUnknownFieldWithTheFieldsItAccepts() throws Exception {
+        mockMvc.perform(get("/api/products").param("fields", "code,price"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.statusCode").value(400))
+                .andExpect(jsonPath("$.message")
+                        .value("Unknown field 'price', expected some of [id, code, name, value, composition]"))
+                .andExpect(jsonPath("$.details").value("uri=/api/products"));
+    }
+
+    @Test
+    void shouldWriteOnlyTheSelectedFieldsOfAProduct() throws Exception {
+        Product lamp = saveLamp("FSA-LAMP");
+
+        mockMvc.perform(get("/api/products/{id}", lamp.getId()).param("fields", "code,value"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"code\":\"FSA-LAMP\",\"value\":35.00}", true));
+    }
+
+    @Test
+    void shouldWriteOnlyTheSelectedFieldsOfEveryStreamedProduct() throws Exception {
+        saveLamp("FSA-DESK-LAMP");
+
+        String body = mockMvc.perform(get("/api/products").param("fields", "code")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertTrue(Arrays.asList(lines).contains("{\"code\":\"FSA-DESK-LAMP\"}"), body);
+        assertTrue(Arrays.stream(lines).allMatch(line -> line.matches("\\{\"code\":\"[^\"]*\"}")), body);
+    }
+
+    private Product saveLamp(String code) {
+        RawMaterial brass = rawMaterialService.save(new RawMaterialDto(code + "-BRASS", "Brass", 50));
+        return productService.save(new ProductDto(code, "Lamp", new BigDecimal("35.00"), Set.of(
+                new ProductCompositionDto(brass.getId(), 2))));
+    }
+}
@@ -0,0 +1,89 @@
+package com.factory.profit.maximizer.backend.controller;
+
+import com.factory.profit.maximizer.backend.dto.ProductCompositionDto;
+import com.factory.profit.maximizer.backend.dto.ProductDto;
+import com.factory.profit.maximizer.backend.dto.RawMaterialDto;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.service.ProductService;
+import com.factory.profit.maximizer.backend.service.RawMaterialService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductionControllerTest {
+
+    private static final String CATALOG_VERSION_HEADER = "X-Catalog-Version";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private RawMaterialService rawMaterialService;
+
+    @Test
+    void shouldAnswerNotModifiedUntilTheCatalogChanges() throws Exception {
+        RawMaterial oak = rawMaterialService.save(new RawMaterialDto("ETG-OAK", "Oak", 40));
+        MockHttpServletResponse first = mockMvc.perform(optimize()).andExpect(status().isOk()).andReturn().getResponse();
+        String eTag = first.getHeader(HttpHeaders.ETAG);
+        long version = Long.parseLong(first.getHeader(CATALOG_VERSION_HEADER));
+        assertEquals("\"greedy-" + version + "\"", eTag);
+
+        mockMvc.perform(optimize().header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(header().string(CATALOG_VERSION_HEADER, Long.toString(version)))
+                .andExpect(content().string(""));
+
+        productService.save(new ProductDto("ETG-SHELF", "Shelf", new BigDecimal("80.00"), Set.of(
+                new ProductCompositionDto(oak.getId(), 8))));
+
+        MockHttpServletResponse afterWrite = mockMvc.perform(optimize().header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        // The write bumps the seeded version row exactly once
+        assertEquals(Long.toString(version + 1), afterWrite.getHeader(CATALOG_VERSION_HEADER));
+        assertNotEquals(eTag, afterWrite.getHeader(HttpHeaders.ETAG));
+        assertEquals("\"greedy-" + (version + 1) + "\"", afterWrite.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void shouldMatchWeakAndListedEntityTags() throws Exception {
+        String eTag = mockMvc.perform(optimize()).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(optimize().header(HttpHeaders.IF_NONE_MATCH, "W/" + eTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(optimize().header(HttpHeaders.IF_NONE_MATCH, "\"exact-1\", " + eTag + ", \"greedy-x\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(optimize().header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(optimize().header(HttpHeaders.IF_NONE_MATCH, "\"exact-1\", W/\"greedy-x\""))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * Asks for a plan of the latest version, so a background refresh still in flight cannot answer.
+     */
+    private static MockHttpServletRequestBuilder optimize() {
+        return get("/api/production/optimize").param("fresh", "true");
+    }
+}
@@ -0,0 +1,104 @@
+package com.factory.profit.maximizer.backend.importer;
+
+import com.factory.profit.maximizer.backend.dto.ProductImportDto;
+import com.factory.profit.maximizer.backend.dto.ProductImportLineDto;
+import com.factory.profit.maximizer.backend.dto.RawMaterialDto;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowReadersTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void shouldReadQuotedCsvFieldsAndReportTheLineOfEachRecord() throws IOException {
+        String csv = """
+                code,name,stockQuantity
+                WOOD,"Oak, dried",100
+
+                GLUE,"Glue ""strong""
+                two lines",abc
+                STEEL,Steel,7
+                """;
+
+        List<ImportRow<RawMaterialDto>> rows = readAll(RowReaders.rawMaterials(new StringReader(csv), ImportFormat.CSV, objectMapper));
+
+        assertEquals(3, rows.size());
+        assertEquals(new RawMaterialDto("WOOD", "Oak, dried", 100), rows.get(0).value());
+        assertEquals(2, rows.get(0).row());
+        assertFalse(rows.get(1).isValid());
+        assertEquals(4, rows.get(1).row());
+        assertEquals("GLUE", rows.get(1).code());
+        assertEquals("Stock quantity is not a whole number: abc", rows.get(1).error());
+        assertEquals(6, rows.get(2).row());
+    }
+
+    @Test
+    void shouldGroupConsecutiveCsvRecordsIntoOneProduct() throws IOException {
+        String csv = """
+                code,name,value,rawMaterialCode,quantity
+                CHAIR,Chair,150.00,WOOD,10
+                CHAIR,Chair,150.00,GLUE,1
+                STOOL,Stool,40,,
+                """;
+
+        List<ImportRow<ProductImportDto>> rows = readAll(RowReaders.products(new StringReader(csv), ImportFormat.CSV, objectMapper));
+
+        assertEquals(2, rows.size());
+        ProductImportDto chair = rows.get(0).value();
+        assertEquals(new BigDecimal("150.00"), chair.getValue());
+        assertEquals(List.of(new ProductImportLineDto("WOOD", 10), new ProductImportLineDto("GLUE", 1)), chair.getComposition());
+        assertEquals(4, rows.get(1).row());
+        assertTrue(rows.get(1).value().getComposition().isEmpty());
+    }
+
+    @Test
+    void shouldReportMalformedNdjsonLinesAndKeepReading() throws IOException {
+        String ndjson = """
+                {"code":"WOOD","name":"Wood","stockQuantity":100}
+                {"code":
+                {"code":"GLUE","name":"Glue","stockQuantity":5}
+                null
+                {"code":"TAPE","name":"Tape","stockQuantity":7}
+                """;
+
+        List<ImportRow<RawMaterialDto>> rows = readAll(RowReaders.rawMaterials(new StringReader(ndjson), ImportFormat.NDJSON, objectMapper));
+
+        assertEquals(5, rows.size());
+        assertFalse(rows.get(1).isValid());
+        assertNull(rows.get(1).code());
+        assertEquals(2, rows.get(1).row());
+        assertEquals("GLUE", rows.get(2).code());
+        assertFalse(rows.get(3).isValid());
+        assertEquals("Expected a JSON object", rows.get(3).error());
+        assertEquals(4, rows.get(3).row());
+        assertEquals("TAPE", rows.get(4).code());
+    }
+
+    @Test
+    void shouldRejectCsvWithoutTheRequiredColumns() {
+        assertThrows(BadRequestException.class,
+                () -> RowReaders.rawMaterials(new StringReader("code,name\nWOOD,Wood\n"), ImportFormat.CSV, objectMapper));
+    }
+
+    private static <T> List<ImportRow<T>> readAll(RowReader<T> reader) throws IOException {
+        List<ImportRow<T>> rows = new ArrayList<>();
+        for (ImportRow<T> row = reader.next(); row != null; row = reader.next()) {
+            rows.add(row);
+        }
+        return rows;
+    }
+}
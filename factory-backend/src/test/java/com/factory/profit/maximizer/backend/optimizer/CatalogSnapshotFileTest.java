@@ -0,0 +1,98 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogSnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReadBackWhatWasWritten() throws IOException {
+        RawMaterial wood = new RawMaterial(7L, "WOOD", "Madeira", 100);
+        Product chair = new Product(3L, "CHAIR", "Cadeira de balanço", new BigDecimal("150.5"), new HashSet<>());
+        chair.getComposition().add(new ProductComposition(1L, chair, wood, 10));
+        Product table = new Product(9L, "TABLE", null, new BigDecimal("400.00"), new HashSet<>());
+        table.getComposition().add(new ProductComposition(2L, table, wood, 30));
+        table.getComposition().add(new ProductComposition(3L, table, new RawMaterial(8L, "GLUE", "Glue", 0), 1));
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(chair, table), List.of(wood));
+        Path path = directory.resolve("catalog.snapshot");
+
+        CatalogSnapshotFile.write(path, snapshot, 42);
+        CatalogSnapshotFile.Stored stored = CatalogSnapshotFile.read(path);
+
+        assertEquals(42, stored.version());
+        assertSame(snapshot, stored.snapshot());
+        assertEquals(new BigDecimal("150.5"), stored.snapshot().productValue(0));
+        assertEquals(new BigDecimal("400.00"), stored.snapshot().productValue(1));
+        assertEquals("Cadeira de balanço", stored.snapshot().productName(0));
+        assertEquals(null, stored.snapshot().productName(1));
+        assertEquals(0, stored.snapshot().stockOf(8L));
+    }
+
+    @Test
+    void restoredCatalogsShouldBePlannedLikeTheOriginals() throws IOException {
+        Random random = new Random(8);
+        GreedyEngine greedyEngine = new GreedyEngine();
+        Path path = directory.resolve("catalog.snapshot");
+        for (int instance = 0; instance < 50; instance++) {
+            CatalogSnapshot snapshot = ExactEngineTest.randomCatalog(random, 1 + random.nextInt(60), 1 + random.nextInt(10), 4, 300);
+
+            CatalogSnapshotFile.write(path, snapshot, instance);
+            CatalogSnapshot restored = CatalogSnapshotFile.read(path).snapshot();
+
+            assertSame(snapshot, restored);
+            assertArrayEquals(greedyEngine.solve(snapshot), greedyEngine.solve(restored), "instance " + instance);
+        }
+    }
+
+    @Test
+    void shouldRejectCorruptFiles() throws IOException {
+        Path path = directory.resolve("catalog.snapshot");
+        CatalogSnapshotFile.write(path, ExactEngineTest.randomCatalog(new Random(1), 10, 3, 2, 50), 1);
+        byte[] bytes = Files.readAllBytes(path);
+
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> CatalogSnapshotFile.read(path));
+
+        Files.write(path, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> CatalogSnapshotFile.read(path));
+    }
+
+    /**
+     * Same content, ranking and stock, down to the arrays the engines work on.
+     */
+    private static void assertSame(CatalogSnapshot expected, CatalogSnapshot actual) {
+        assertArrayEquals(expected.productIds, actual.productIds);
+        assertArrayEquals(expected.productCodes, actual.productCodes);
+        assertArrayEquals(expected.productNames, actual.productNames);
+        assertArrayEquals(expected.productValues, actual.productValues);
+        assertArrayEquals(expected.unitValues, actual.unitValues);
+        assertEquals(expected.valueScale, actual.valueScale);
+        assertArrayEquals(expected.compositionStart, actual.compositionStart);
+        assertArrayEquals(expected.compositionMaterial, actual.compositionMaterial);
+        assertArrayEquals(expected.compositionQuantity, actual.compositionQuantity);
+        assertArrayEquals(expected.materialIds, actual.materialIds);
+        assertEquals(expected.materialOrdinals, actual.materialOrdinals);
+        assertArrayEquals(expected.stock, actual.stock);
+        assertArrayEquals(expected.efficiencyOrder, actual.efficiencyOrder);
+        assertArrayEquals(expected.firstUseRank, actual.firstUseRank);
+    }
+}
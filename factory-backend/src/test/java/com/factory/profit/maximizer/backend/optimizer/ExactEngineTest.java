@@ -0,0 +1,189 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExactEngineTest {
+
+    private final GreedyEngine greedyEngine = new GreedyEngine();
+    private final ExactEngine exactEngine = new ExactEngine(greedyEngine, 5_000, 100_000, 0, 0);
+
+    @Test
+    void shouldMatchBruteForceOnSmallCatalogs() {
+        Random random = new Random(42);
+        for (int instance = 0; instance < 300; instance++) {
+            CatalogSnapshot snapshot = randomCatalog(random, 4, 3, 3, 40);
+
+            long expected = bruteForce(snapshot, 0, snapshot.stock.clone());
+            int[] quantities = exactEngine.solve(snapshot);
+
+            assertFeasible(snapshot, quantities);
+            assertEquals(expected, value(snapshot, quantities), "instance " + instance);
+        }
+    }
+
+    @Test
+    void shouldNeverBeWorseThanGreedyOnLargeCatalog() {
+        CatalogSnapshot snapshot = randomCatalog(new Random(7), 2_000, 300, 6, 5_000);
+
+        int[] exact = new ExactEngine(greedyEngine, 300, 20_000, 1e-4, 0).solve(snapshot);
+
+        assertFeasible(snapshot, exact);
+        assertTrue(value(snapshot, exact) >= value(snapshot, greedyEngine.solve(snapshot)));
+    }
+
+    @Test
+    void warmStartedSolvesShouldMatchColdSolvesAfterStockChanges() {
+        Random random = new Random(23);
+        ExactEngine warm = new ExactEngine(new GreedyEngine(), 5_000, 100_000, 0, 0);
+        CatalogSnapshot snapshot = randomCatalog(random, 12, 5, 3, 60);
+        warm.solve(snapshot);
+
+        for (int change = 0; change < 100; change++) {
+            int material = random.nextInt(snapshot.materialCount());
+            snapshot = snapshot.withStock(Map.of(snapshot.materialIds[material], random.nextInt(61)));
+
+            int[] quantities = warm.solve(snapshot);
+            int[] cold = new ExactEngine(new GreedyEngine(), 5_000, 100_000, 0, 0).solve(snapshot);
+
+            assertFeasible(snapshot, quantities);
+            assertEquals(value(snapshot, cold), value(snapshot, quantities), "change " + change);
+        }
+    }
+
+    @Test
+    void shouldSolveIndependentProductLinesSeparatelyAndMatchSolvingEachOnItsOwn() {
+        Random random = new Random(11);
+        List<Product> products = new ArrayList<>();
+        List<RawMaterial> materials = new ArrayList<>();
+        long expected = 0;
+        for (int line = 0; line < 40; line++) {
+            CatalogSnapshot lineCatalog = randomCatalog(random, 4, 3, 3, 40);
+            expected += bruteForce(lineCatalog, 0, lineCatalog.stock.clone());
+            addLine(line, lineCatalog, products, materials);
+        }
+        CatalogSnapshot snapshot = CatalogSnapshot.of(products, materials);
+
+        int[] quantities = exactEngine.solve(snapshot);
+
+        assertTrue(CatalogComponents.of(snapshot).size() >= 40);
+        assertFeasible(snapshot, quantities);
+        assertEquals(expected, value(snapshot, quantities));
+    }
+
+    @Test
+    void seededSolveShouldFillProductsTheSeedUnderProduces() {
+        RawMaterial wood = new RawMaterial(1L, "WOOD", "Wood", 10);
+        RawMaterial paint = new RawMaterial(2L, "PAINT", "Paint", 3);
+        Product chest = new Product(1L, "CHEST", "Chest", new BigDecimal("70"), new HashSet<>());
+        chest.getComposition().add(new ProductComposition(1L, chest, wood, 6));
+        Product stool = new Product(2L, "STOOL", "Stool", new BigDecimal("50"), new HashSet<>());
+        stool.getComposition().add(new ProductComposition(2L, stool, wood, 5));
+        Product sign = new Product(3L, "SIGN", "Sign", new BigDecimal("1"), new HashSet<>());
+        sign.getComposition().add(new ProductComposition(3L, sign, paint, 1));
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(chest, stool, sign), List.of(wood, paint));
+        // Better than greedy on the wood line (two stools, not one chest), but no signs at all
+        int[] seed = {0, 2, 0};
+        assertTrue(value(snapshot, seed) > value(snapshot, greedyEngine.solve(snapshot)));
+
+        int[] quantities = exactEngine.solve(snapshot, seed, SolveProgress.withTimeBudget(5_000));
+
+        assertFeasible(snapshot, quantities);
+        assertEquals(103, value(snapshot, quantities));
+    }
+
+    /**
+     * Copies a catalog into {@code products} and {@code materials} under ids and codes of its own.
+     */
+    private static void addLine(int line, CatalogSnapshot catalog, List<Product> products, List<RawMaterial> materials) {
+        List<RawMaterial> lineMaterials = new ArrayList<>();
+        for (int m = 0; m < catalog.materialCount(); m++) {
+            RawMaterial material = new RawMaterial(line * 100L + m, "L" + line + "M" + m, "Material " + m, catalog.stock[m]);
+            lineMaterials.add(material);
+            materials.add(material);
+        }
+        for (int p = 0; p < catalog.productCount(); p++) {
+            Product product = new Product(line * 100L + p, "L" + line + "P" + p, "Product " + p,
+                    catalog.productValue(p), new HashSet<>());
+            for (int i = catalog.compositionStart[p]; i < catalog.compositionStart[p + 1]; i++) {
+                product.getComposition().add(new ProductComposition(line * 1_000L + i, product,
+                        lineMaterials.get(catalog.compositionMaterial[i]), catalog.compositionQuantity[i]));
+            }
+            products.add(product);
+        }
+    }
+
+    static CatalogSnapshot randomCatalog(Random random, int productCount, int materialCount, int maxLines, int maxStock) {
+        List<RawMaterial> materials = new ArrayList<>();
+        for (int m = 0; m < materialCount; m++) {
+            materials.add(new RawMaterial((long) m + 1, "M" + m, "Material " + m, random.nextInt(maxStock + 1)));
+        }
+        List<Product> products = new ArrayList<>();
+        long compositionId = 1;
+        for (int p = 0; p < productCount; p++) {
+            Product product = new Product((long) p + 1, "P" + p, "Product " + p,
+                    BigDecimal.valueOf(1 + random.nextInt(500), 0), new HashSet<>());
+            int lines = 1 + random.nextInt(maxLines);
+            for (int l = 0; l < lines; l++) {
+                RawMaterial material = materials.get(random.nextInt(materialCount));
+                boolean alreadyUsed = product.getComposition().stream().anyMatch(c -> c.getRawMaterial() == material);
+                if (!alreadyUsed) {
+                    product.getComposition().add(new ProductComposition(compositionId++, product, material, 1 + random.nextInt(9)));
+                }
+            }
+            products.add(product);
+        }
+        return CatalogSnapshot.of(products, materials);
+    }
+
+    static long bruteForce(CatalogSnapshot snapshot, int product, int[] stock) {
+        if (product == snapshot.productCount()) {
+            return 0;
+        }
+        long best = 0;
+        int maxUnits = GreedyEngine.calculateMaxProducibleUnits(snapshot, product, stock);
+        for (int units = 0; units <= maxUnits; units++) {
+            int[] remaining = stock.clone();
+            consume(snapshot, product, units, remaining);
+            best = Math.max(best, units * snapshot.productValues[product].longValue() + bruteForce(snapshot, product + 1, remaining));
+        }
+        return best;
+    }
+
+    private static void consume(CatalogSnapshot snapshot, int product, int units, int[] stock) {
+        for (int i = snapshot.compositionStart[product]; i < snapshot.compositionStart[product + 1]; i++) {
+            stock[snapshot.compositionMaterial[i]] -= units * snapshot.compositionQuantity[i];
+        }
+    }
+
+    static void assertFeasible(CatalogSnapshot snapshot, int[] quantities) {
+        int[] remaining = snapshot.stock.clone();
+        for (int p = 0; p < quantities.length; p++) {
+            assertTrue(quantities[p] >= 0);
+            consume(snapshot, p, quantities[p], remaining);
+        }
+        for (int stock : remaining) {
+            assertTrue(stock >= 0, "plan uses more stock than available");
+        }
+    }
+
+    static long value(CatalogSnapshot snapshot, int[] quantities) {
+        long total = 0;
+        for (int p = 0; p < quantities.length; p++) {
+            total += quantities[p] * snapshot.productValues[p].longValue();
+        }
+        return total;
+    }
+}
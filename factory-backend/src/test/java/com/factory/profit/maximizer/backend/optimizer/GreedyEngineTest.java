@@ -0,0 +1,35 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GreedyEngineTest {
+
+    @Test
+    void incrementalRunsShouldMatchFullRunsAfterStockChanges() {
+        Random random = new Random(11);
+        GreedyEngine incremental = new GreedyEngine();
+        CatalogSnapshot snapshot = ExactEngineTest.randomCatalog(random, 500, 80, 5, 2_000);
+        incremental.solve(snapshot);
+
+        for (int change = 0; change < 200; change++) {
+            int material = random.nextInt(snapshot.materialCount());
+            snapshot = snapshot.withStock(Map.of(snapshot.materialIds[material], random.nextInt(2_001)));
+
+            assertArrayEquals(new GreedyEngine().solve(snapshot), incremental.solve(snapshot), "change " + change);
+        }
+    }
+
+    @Test
+    void scoresShouldCompareExactlyWhereCrossProductsOverflow() {
+        assertEquals(0, CatalogSnapshot.compareFractions(Long.MAX_VALUE, 3, Long.MAX_VALUE, 3));
+        assertEquals(1, CatalogSnapshot.compareFractions(Long.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE - 1, Integer.MAX_VALUE));
+        assertEquals(-1, CatalogSnapshot.compareFractions(Long.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE - 1L));
+        assertEquals(-1, CatalogSnapshot.compareFractions(-Long.MAX_VALUE, 7, 1, Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,108 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HorizonPlannerTest {
+
+    private final GreedyEngine greedyEngine = new GreedyEngine();
+
+    @Test
+    void shouldKeepStockForAProductWhoseOtherMaterialArrivesLater() {
+        RawMaterial wood = new RawMaterial(1L, "WOOD", "Wood", 10);
+        RawMaterial steel = new RawMaterial(2L, "STEEL", "Steel", 0);
+        Product shelf = new Product(1L, "SHELF", "Shelf", new BigDecimal("10.00"), new HashSet<>());
+        shelf.getComposition().add(new ProductComposition(1L, shelf, wood, 1));
+        Product table = new Product(2L, "TABLE", "Table", new BigDecimal("500.00"), new HashSet<>());
+        table.getComposition().add(new ProductComposition(2L, table, wood, 10));
+        table.getComposition().add(new ProductComposition(3L, table, steel, 1));
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(shelf, table), List.of(wood, steel));
+        List<Map<Long, Integer>> replenishments = List.of(Map.of(), Map.of(2L, 1));
+
+        int[][] myopic = HorizonPlanner.plan(greedyEngine, snapshot, replenishments, 1, 1_000);
+        int[][] rolling = HorizonPlanner.plan(greedyEngine, snapshot, replenishments, 2, 1_000);
+
+        assertArrayEquals(new int[]{10, 0}, myopic[0]);
+        assertArrayEquals(new int[]{0, 0}, myopic[1]);
+        assertArrayEquals(new int[]{0, 0}, rolling[0]);
+        assertArrayEquals(new int[]{0, 1}, rolling[1]);
+    }
+
+    @Test
+    void everyPeriodShouldOnlyUseStockThatHasArrived() {
+        Random random = new Random(11);
+        ExactEngine exactEngine = new ExactEngine(greedyEngine, 1_000, 2_000, 0, 1);
+        try {
+            for (int instance = 0; instance < 30; instance++) {
+                CatalogSnapshot snapshot = ExactEngineTest.randomCatalog(random, 25, 6, 3, 100);
+                int periods = 2 + random.nextInt(8);
+                List<Map<Long, Integer>> replenishments = new ArrayList<>();
+                for (int t = 0; t < periods; t++) {
+                    replenishments.add(Map.of(snapshot.materialId(random.nextInt(snapshot.materialCount())), random.nextInt(100)));
+                }
+
+                int window = 1 + random.nextInt(4);
+                int[][] quantities = HorizonPlanner.plan(exactEngine, snapshot, replenishments, window, 5_000);
+
+                int[] stock = snapshot.stock.clone();
+                for (int t = 0; t < periods; t++) {
+                    for (Map.Entry<Long, Integer> arrival : replenishments.get(t).entrySet()) {
+                        stock[snapshot.materialOrdinals.get(arrival.getKey())] += arrival.getValue();
+                    }
+                    ExactEngineTest.assertFeasible(snapshot.withStock(stock), quantities[t]);
+                    for (int p = 0; p < snapshot.productCount(); p++) {
+                        for (int i = snapshot.compositionStart[p]; i < snapshot.compositionStart[p + 1]; i++) {
+                            stock[snapshot.compositionMaterial[i]] -= quantities[t][p] * snapshot.compositionQuantity[i];
+                        }
+                    }
+                }
+            }
+        } finally {
+            exactEngine.shutdown();
+        }
+    }
+
+    @Test
+    void aWindowAsLongAsTheHorizonShouldMatchPlanningAllStockAtOnce() {
+        Random random = new Random(23);
+        ExactEngine exactEngine = new ExactEngine(greedyEngine, 5_000, 100_000, 0, 1);
+        try {
+            for (int instance = 0; instance < 30; instance++) {
+                CatalogSnapshot snapshot = ExactEngineTest.randomCatalog(random, 5, 3, 3, 30);
+                List<Map<Long, Integer>> replenishments = List.of(Map.of(),
+                        Map.of(snapshot.materialId(0), random.nextInt(30)), Map.of(snapshot.materialId(1), random.nextInt(30)));
+                int[] total = snapshot.stock.clone();
+                total[0] += replenishments.get(1).get(snapshot.materialId(0));
+                total[1] += replenishments.get(2).get(snapshot.materialId(1));
+                CatalogSnapshot allAtOnce = snapshot.withStock(total);
+
+                int[][] quantities = HorizonPlanner.plan(exactEngine, snapshot, replenishments, 3, 10_000);
+
+                assertEquals(ExactEngineTest.bruteForce(allAtOnce, 0, allAtOnce.stock.clone()), total(snapshot, quantities),
+                        "instance " + instance);
+            }
+        } finally {
+            exactEngine.shutdown();
+        }
+    }
+
+    private static long total(CatalogSnapshot snapshot, int[][] quantities) {
+        long total = 0;
+        for (int[] period : quantities) {
+            total += snapshot.valueOf(period);
+        }
+        return total;
+    }
+}
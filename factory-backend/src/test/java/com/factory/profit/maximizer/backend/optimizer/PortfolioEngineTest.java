@@ -0,0 +1,50 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PortfolioEngineTest {
+
+    private final GreedyEngine greedyEngine = new GreedyEngine();
+    private final PortfolioEngine portfolioEngine = new PortfolioEngine(greedyEngine, 5_000, 8, 2);
+
+    @AfterEach
+    void tearDown() {
+        portfolioEngine.shutdown();
+    }
+
+    @Test
+    void shouldNeverBeWorseThanGreedyAndOftenBeatIt() {
+        Random random = new Random(3);
+        int better = 0;
+        for (int instance = 0; instance < 100; instance++) {
+            CatalogSnapshot snapshot = ExactEngineTest.randomCatalog(random, 40, 8, 4, 200);
+
+            int[] portfolio = portfolioEngine.solve(snapshot);
+            long greedyValue = ExactEngineTest.value(snapshot, greedyEngine.solve(snapshot));
+
+            ExactEngineTest.assertFeasible(snapshot, portfolio);
+            assertTrue(ExactEngineTest.value(snapshot, portfolio) >= greedyValue, "instance " + instance);
+            if (ExactEngineTest.value(snapshot, portfolio) > greedyValue) {
+                better++;
+            }
+        }
+        assertTrue(better >= 10, "portfolio beat greedy on " + better + " of 100 catalogs");
+    }
+
+    @Test
+    void shouldPickTheSamePlanWhateverTheThreadTiming() {
+        CatalogSnapshot snapshot = ExactEngineTest.randomCatalog(new Random(19), 300, 30, 5, 1_000);
+        PortfolioEngine sequential = new PortfolioEngine(new GreedyEngine(), 5_000, 8, 1);
+        try {
+            assertArrayEquals(sequential.solve(snapshot), portfolioEngine.solve(snapshot));
+        } finally {
+            sequential.shutdown();
+        }
+    }
+}
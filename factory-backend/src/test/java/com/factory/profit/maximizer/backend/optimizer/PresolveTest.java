@@ -0,0 +1,91 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PresolveTest {
+
+    @Test
+    void shouldRemoveDominatedAndUnproducibleProductsAndRedundantMaterials() {
+        RawMaterial wood = new RawMaterial(1L, "WOOD", "Wood", 100);
+        RawMaterial glue = new RawMaterial(2L, "GLUE", "Glue", 1_000);
+        RawMaterial steel = new RawMaterial(3L, "STEEL", "Steel", 0);
+        Product chair = product(1L, "CHAIR", "150.00", Map.of(wood, 10, glue, 1));
+        // Needs more of everything than a chair and is worth less
+        Product stool = product(2L, "STOOL", "120.00", Map.of(wood, 12, glue, 1));
+        Product bench = product(3L, "BENCH", "300.00", Map.of(wood, 25, steel, 2));
+        Product sample = product(4L, "SAMPLE", "0.00", Map.of(wood, 1));
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(chair, stool, bench, sample), List.of(wood, glue, steel));
+
+        Presolve presolve = Presolve.of(snapshot);
+        Presolve.Reduction reduction = presolve.reduce(snapshot);
+
+        // 10 chairs at most, which need 10 glue out of 1000
+        assertEquals(new PresolveReport(4, 3, 7, 1, 2, 1, 1, 1, 1), reduction.report());
+        assertArrayEquals(new int[]{0}, reduction.products());
+        assertArrayEquals(new int[]{0}, reduction.materials());
+        assertArrayEquals(new int[]{7}, presolve.project(reduction, new int[]{3, 4, 0, 5}));
+        assertArrayEquals(new int[]{10, 0, 0, 0}, presolve.expand(reduction, new int[]{10}));
+    }
+
+    @Test
+    void reducedCatalogsShouldKeepTheBestPlanValue() {
+        Random random = new Random(31);
+        for (int instance = 0; instance < 300; instance++) {
+            CatalogSnapshot snapshot = ExactEngineTest.randomCatalog(random, 6, 3, 2, 30);
+            Presolve presolve = Presolve.of(snapshot);
+            Presolve.Reduction reduction = presolve.reduce(snapshot);
+            CatalogSnapshot reduced = reduction.snapshot();
+
+            assertEquals(ExactEngineTest.bruteForce(snapshot, 0, snapshot.stock.clone()),
+                    ExactEngineTest.bruteForce(reduced, 0, reduced.stock.clone()), "instance " + instance);
+
+            int[] greedy = new GreedyEngine().solve(snapshot);
+            int[] projected = presolve.expand(reduction, presolve.project(reduction, greedy));
+            ExactEngineTest.assertFeasible(snapshot, projected);
+            assertTrue(ExactEngineTest.value(snapshot, projected) >= ExactEngineTest.value(snapshot, greedy), "instance " + instance);
+        }
+    }
+
+    @Test
+    void shouldKeepTheReducedStructureWhileItStaysValidAfterStockChanges() {
+        RawMaterial wood = new RawMaterial(1L, "WOOD", "Wood", 100);
+        RawMaterial glue = new RawMaterial(2L, "GLUE", "Glue", 1_000);
+        Product chair = product(1L, "CHAIR", "150.00", Map.of(wood, 10, glue, 1));
+        Product table = product(2L, "TABLE", "400.00", Map.of(wood, 30, glue, 5));
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(chair, table), List.of(wood, glue));
+        Presolve presolve = Presolve.of(snapshot);
+        Presolve.Reduction first = presolve.reduce(snapshot);
+
+        Presolve.Reduction moreWood = presolve.reduce(snapshot.withStock(Map.of(1L, 120)));
+        assertNotSame(first.snapshot(), moreWood.snapshot());
+        assertTrue(moreWood.snapshot().sharesStructureWith(first.snapshot()));
+        assertArrayEquals(new int[]{0}, moreWood.materials());
+
+        // Glue can run short now, so it is a constraint again
+        Presolve.Reduction lessGlue = presolve.reduce(snapshot.withStock(Map.of(2L, 10)));
+        assertArrayEquals(new int[]{0, 1}, lessGlue.materials());
+    }
+
+    private static Product product(Long id, String code, String value, Map<RawMaterial, Integer> composition) {
+        Product product = new Product(id, code, code, new BigDecimal(value), new HashSet<>());
+        long line = id * 10;
+        for (Map.Entry<RawMaterial, Integer> component : composition.entrySet()) {
+            product.getComposition().add(new ProductComposition(line++, product, component.getKey(), component.getValue()));
+        }
+        return product;
+    }
+}
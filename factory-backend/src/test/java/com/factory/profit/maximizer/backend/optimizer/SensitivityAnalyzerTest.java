@@ -0,0 +1,78 @@
+package com.factory.profit.maximizer.backend.optimizer;
+
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SensitivityAnalyzerTest {
+
+    @Test
+    void shouldPriceTheBindingMaterialAndLeaveTheOtherFree() {
+        RawMaterial wood = new RawMaterial(1L, "WOOD", "Wood", 100);
+        RawMaterial steel = new RawMaterial(2L, "STEEL", "Steel", 70);
+        Product chair = new Product(1L, "CHAIR", "Chair", new BigDecimal("150.00"), new HashSet<>());
+        chair.getComposition().add(new ProductComposition(1L, chair, wood, 10));
+        Product table = new Product(2L, "TABLE", "Table", new BigDecimal("400.00"), new HashSet<>());
+        table.getComposition().add(new ProductComposition(2L, table, wood, 30));
+        table.getComposition().add(new ProductComposition(3L, table, steel, 20));
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(chair, table), List.of(wood, steel));
+
+        Sensitivity sensitivity = new SensitivityAnalyzer(5_000).analyze(snapshot);
+
+        assertEquals(1500, sensitivity.objective(), 1e-6);
+        assertEquals(15, sensitivity.shadowPrices()[0], 1e-9);
+        assertEquals(Double.POSITIVE_INFINITY, sensitivity.allowableIncrease()[0]);
+        assertEquals(100, sensitivity.allowableDecrease()[0], 1e-9);
+        assertEquals(0, sensitivity.shadowPrices()[1], 1e-9);
+        assertEquals(0, sensitivity.usedQuantities()[1], 1e-9);
+        assertEquals(70, sensitivity.allowableDecrease()[1], 1e-9);
+        assertEquals(0, sensitivity.reducedCosts()[0], 1e-9);
+        assertEquals(-50, sensitivity.reducedCosts()[1], 1e-9);
+    }
+
+    @Test
+    void shadowPricesShouldPredictTheOptimumWithinTheirRange() {
+        Random random = new Random(5);
+        for (int instance = 0; instance < 100; instance++) {
+            CatalogSnapshot snapshot = ExactEngineTest.randomCatalog(random, 30, 8, 3, 500);
+            Sensitivity sensitivity = new SensitivityAnalyzer(5_000).analyze(snapshot);
+
+            for (int m = 0; m < snapshot.materialCount(); m++) {
+                int step = (int) Math.min(5, Math.floor(sensitivity.allowableIncrease()[m]));
+                if (step < 1) {
+                    continue;
+                }
+                CatalogSnapshot more = snapshot.withStock(Map.of(snapshot.materialIds[m], snapshot.stock[m] + step));
+                double objective = new SensitivityAnalyzer(5_000).analyze(more).objective();
+
+                assertEquals(sensitivity.objective() + step * sensitivity.shadowPrices()[m], objective,
+                        1e-6 * Math.max(1, objective), "instance " + instance + ", material " + m);
+            }
+        }
+    }
+
+    @Test
+    void warmStartedAnalysesShouldMatchColdOnesAfterStockChanges() {
+        Random random = new Random(17);
+        SensitivityAnalyzer warm = new SensitivityAnalyzer(5_000);
+        CatalogSnapshot snapshot = ExactEngineTest.randomCatalog(random, 40, 10, 3, 300);
+        warm.analyze(snapshot);
+
+        for (int change = 0; change < 100; change++) {
+            int material = random.nextInt(snapshot.materialCount());
+            snapshot = snapshot.withStock(Map.of(snapshot.materialIds[material], random.nextInt(301)));
+
+            double cold = new SensitivityAnalyzer(5_000).analyze(snapshot).objective();
+            assertEquals(cold, warm.analyze(snapshot).objective(), 1e-6 * Math.max(1, cold), "change " + change);
+        }
+    }
+}
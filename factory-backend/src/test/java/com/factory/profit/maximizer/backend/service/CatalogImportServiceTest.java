@@ -0,0 +1,82 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.ImportErrorDto;
+import com.factory.profit.maximizer.backend.dto.ImportReportDto;
+import com.factory.profit.maximizer.backend.importer.ImportFormat;
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.repository.ProductRepository;
+import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "catalog.import.chunk-size=2")
+class CatalogImportServiceTest {
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @Autowired
+    private RawMaterialRepository rawMaterialRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void shouldImportValidRowsAndReportTheRest() throws IOException {
+        String csv = """
+                code,name,stockQuantity
+                IMP-WOOD,Wood,100
+                IMP-GLUE,Glue,-1
+                IMP-WOOD,Wood again,5
+                IMP-STEEL,Steel,30
+                IMP-IRON,Iron,x
+                IMP-NAIL,Nail,500
+                """;
+
+        ImportReportDto report = catalogImportService.importRawMaterials(new StringReader(csv), ImportFormat.CSV);
+
+        assertEquals(6, report.rowsRead());
+        assertEquals(3, report.imported());
+        assertEquals(List.of(
+                new ImportErrorDto(3, "IMP-GLUE", "Stock quantity must be zero or positive"),
+                new ImportErrorDto(4, "IMP-WOOD", "Duplicate raw material code in import: IMP-WOOD"),
+                new ImportErrorDto(6, "IMP-IRON", "Stock quantity is not a whole number: x")), report.errors());
+        assertTrue(rawMaterialRepository.findAll().stream().anyMatch(m -> m.getCode().equals("IMP-NAIL")));
+    }
+
+    @Test
+    void shouldResolveMaterialCodesAndRejectExistingProducts() throws IOException {
+        catalogImportService.importRawMaterials(new StringReader("""
+                {"code":"PI-WOOD","name":"Wood","stockQuantity":100}
+                {"code":"PI-GLUE","name":"Glue","stockQuantity":10}
+                """), ImportFormat.NDJSON);
+        String ndjson = """
+                {"code":"PI-CHAIR","name":"Chair","value":150,"composition":[{"rawMaterialCode":"PI-WOOD","quantity":10},{"rawMaterialCode":"PI-GLUE","quantity":1}]}
+                {"code":"PI-TABLE","name":"Table","value":300,"composition":[{"rawMaterialCode":"PI-MISSING","quantity":1}]}
+                {"code":"PI-STOOL","name":"Stool","value":40,"composition":[{"rawMaterialCode":"PI-WOOD","quantity":0}]}
+                """;
+
+        ImportReportDto first = catalogImportService.importProducts(new StringReader(ndjson), ImportFormat.NDJSON);
+        ImportReportDto second = catalogImportService.importProducts(new StringReader(ndjson.lines().findFirst().orElseThrow()), ImportFormat.NDJSON);
+
+        assertEquals(1, first.imported());
+        assertEquals(List.of(
+                new ImportErrorDto(2, "PI-TABLE", "RawMaterial not found with code: PI-MISSING"),
+                new ImportErrorDto(3, "PI-STOOL", "Quantity must be positive")), first.errors());
+        Product chair = productRepository.findAll().stream()
+                .filter(p -> p.getCode().equals("PI-CHAIR"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2, chair.getComposition().size());
+        assertEquals(0, second.imported());
+        assertEquals("Product code already exists: PI-CHAIR", second.errors().get(0).message());
+    }
+}
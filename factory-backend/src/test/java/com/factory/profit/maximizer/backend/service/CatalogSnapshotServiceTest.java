@@ -0,0 +1,137 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.event.CatalogChangedEvent;
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshot;
+import com.factory.profit.maximizer.backend.optimizer.GreedyEngine;
+import com.factory.profit.maximizer.backend.repository.ProductRepository;
+import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogSnapshotServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private RawMaterialRepository rawMaterialRepository;
+
+    @Mock
+    private CatalogVersionService catalogVersionService;
+
+    private CatalogSnapshotService catalogSnapshotService;
+    private ProductionOptimizerService productionOptimizerService;
+
+    @BeforeEach
+    void setUp() {
+        RawMaterial wood = new RawMaterial(1L, "WOOD", "Wood", 100);
+        Product chair = new Product(1L, "CHAIR", "Chair", new BigDecimal("150.00"), new HashSet<>());
+        chair.getComposition().add(new ProductComposition(1L, chair, wood, 10));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(wood));
+        when(productRepository.findAll()).thenReturn(List.of(chair));
+
+        catalogSnapshotService = new CatalogSnapshotService(new CatalogSnapshotLoader(productRepository, rawMaterialRepository, catalogVersionService, new SimpleMeterRegistry()));
+        productionOptimizerService = new ProductionOptimizerService(catalogSnapshotService, List.of(new GreedyEngine()), new SimpleMeterRegistry(), 4, 1);
+    }
+
+    @Test
+    void shouldServeRepeatedCallsFromTheCachedSnapshot() {
+        CatalogSnapshot first = catalogSnapshotService.getSnapshot();
+        productionOptimizerService.calculateOptimalProductionPlan();
+
+        assertSame(first, catalogSnapshotService.getSnapshot());
+        verify(productRepository, times(1)).findAll();
+        verify(rawMaterialRepository, times(1)).findAll();
+    }
+
+    @Test
+    void shouldPatchStockWithoutReloading() {
+        catalogSnapshotService.getSnapshot();
+
+        catalogSnapshotService.onCatalogChanged(CatalogChangedEvent.stockChanged(1, 1L, 35));
+
+        assertEquals(3, productionOptimizerService.calculateOptimalProductionPlan().productionPlan().get(0).quantityToProduce());
+        verify(productRepository, times(1)).findAll();
+    }
+
+    @Test
+    void shouldReloadWhenAStockChangeIsOutOfOrder() {
+        CatalogSnapshot first = catalogSnapshotService.getSnapshot();
+
+        catalogSnapshotService.onCatalogChanged(CatalogChangedEvent.stockChanged(2, 1L, 35));
+
+        assertNotSame(first, catalogSnapshotService.getSnapshot());
+        verify(productRepository, times(2)).findAll();
+    }
+
+    @Test
+    void shouldReusePlanUntilTheCatalogVersionMoves() {
+        ProductionOptimizerService.VersionedPlan first = productionOptimizerService.getProductionPlan(GreedyEngine.NAME);
+
+        assertSame(first, productionOptimizerService.getProductionPlan(GreedyEngine.NAME));
+        assertEquals(OptionalLong.of(0), productionOptimizerService.currentCatalogVersion(GreedyEngine.NAME));
+
+        catalogSnapshotService.onCatalogChanged(CatalogChangedEvent.stockChanged(1, 1L, 35));
+        ProductionOptimizerService.VersionedPlan second = productionOptimizerService.getProductionPlan(GreedyEngine.NAME);
+
+        assertEquals(1, second.catalogVersion());
+        assertEquals(3, second.plan().productionPlan().get(0).quantityToProduce());
+    }
+
+    @Test
+    void shouldReloadAfterStructuralChange() {
+        CatalogSnapshot first = catalogSnapshotService.getSnapshot();
+
+        catalogSnapshotService.onCatalogChanged(CatalogChangedEvent.structural(1));
+
+        assertNotSame(first, catalogSnapshotService.getSnapshot());
+        verify(productRepository, times(2)).findAll();
+    }
+
+    @Test
+    void shouldServeARestoredSnapshotUntilItIsReconciledWithTheDatabase() {
+        CatalogSnapshot restored = CatalogSnapshot.of(List.of(), List.of());
+        when(catalogVersionService.current()).thenReturn(3L);
+
+        assertTrue(catalogSnapshotService.restore(new VersionedSnapshot(restored, 2), 3));
+        assertSame(restored, catalogSnapshotService.getSnapshot());
+        assertEquals(OptionalLong.of(3), catalogSnapshotService.latestVersion());
+
+        catalogSnapshotService.reconcile();
+
+        assertEquals(3, catalogSnapshotService.getVersionedSnapshot().version());
+        assertEquals(1, catalogSnapshotService.getSnapshot().productCount());
+    }
+
+    @Test
+    void shouldNotRestoreASnapshotNewerThanTheDatabaseOrOverALoadedOne() {
+        CatalogSnapshot restored = CatalogSnapshot.of(List.of(), List.of());
+
+        assertFalse(catalogSnapshotService.restore(new VersionedSnapshot(restored, 5), 4));
+        CatalogSnapshot loaded = catalogSnapshotService.getSnapshot();
+        assertFalse(catalogSnapshotService.restore(new VersionedSnapshot(restored, 0), 0));
+        assertSame(loaded, catalogSnapshotService.getSnapshot());
+    }
+}
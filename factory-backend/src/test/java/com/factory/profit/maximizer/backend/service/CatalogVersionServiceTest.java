@@ -0,0 +1,48 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.model.CatalogVersion;
+import com.factory.profit.maximizer.backend.repository.CatalogVersionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class CatalogVersionServiceTest {
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private CatalogVersionRepository catalogVersionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldSeedTheVersionRowAtStartupSoThatIncrementOnlyUpdatesIt() {
+        assertTrue(catalogVersionRepository.findVersion(CatalogVersion.ID).isPresent());
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        long before = transaction.execute(status -> catalogVersionService.current());
+        long incremented = transaction.execute(status -> catalogVersionService.increment());
+
+        assertEquals(before + 1, incremented);
+        assertEquals(1, catalogVersionRepository.count());
+    }
+
+    @Test
+    void seedingAgainShouldKeepTheCurrentVersion() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long before = transaction.execute(status -> catalogVersionService.increment());
+
+        catalogVersionService.seed();
+
+        long after = transaction.execute(status -> catalogVersionService.current());
+        assertEquals(before, after);
+    }
+}
@@ -0,0 +1,82 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.HorizonPlanDto;
+import com.factory.profit.maximizer.backend.dto.HorizonRequestDto;
+import com.factory.profit.maximizer.backend.dto.ReplenishmentDto;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.optimizer.GreedyEngine;
+import com.factory.profit.maximizer.backend.repository.ProductRepository;
+import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HorizonPlanningServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private RawMaterialRepository rawMaterialRepository;
+
+    @Mock
+    private CatalogVersionService catalogVersionService;
+
+    private HorizonPlanningService horizonPlanningService;
+
+    @BeforeEach
+    void setUp() {
+        RawMaterial wood = new RawMaterial(1L, "WOOD", "Wood", 25);
+        Product chair = new Product(1L, "CHAIR", "Chair", new BigDecimal("150.00"), new HashSet<>());
+        chair.getComposition().add(new ProductComposition(1L, chair, wood, 10));
+        when(productRepository.findAll()).thenReturn(List.of(chair));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(wood));
+        CatalogSnapshotService catalogSnapshotService =
+                new CatalogSnapshotService(new CatalogSnapshotLoader(productRepository, rawMaterialRepository, catalogVersionService, new SimpleMeterRegistry()));
+        ProductionOptimizerService optimizerService = new ProductionOptimizerService(catalogSnapshotService,
+                List.of(new GreedyEngine()), new SimpleMeterRegistry(), 4, 1);
+        horizonPlanningService = new HorizonPlanningService(catalogSnapshotService, optimizerService, 4, 52, 5_000);
+    }
+
+    @Test
+    void shouldCarryLeftoverStockIntoTheNextPeriod() {
+        HorizonPlanDto horizon = horizonPlanningService.plan(GreedyEngine.NAME, new HorizonRequestDto(3, 1, List.of(
+                new ReplenishmentDto(1L, 2, 5), new ReplenishmentDto(1L, 3, 4), new ReplenishmentDto(1L, 3, 6))));
+
+        assertEquals(List.of(1, 2, 3), horizon.periods().stream().map(p -> p.period()).toList());
+        // 25 -> 2 chairs, 5 + 5 -> 1 chair, 0 + 10 -> 1 chair
+        assertEquals(2, horizon.periods().get(0).plan().productionPlan().get(0).quantityToProduce());
+        assertEquals(1, horizon.periods().get(1).plan().productionPlan().get(0).quantityToProduce());
+        assertEquals(1, horizon.periods().get(2).plan().productionPlan().get(0).quantityToProduce());
+        assertEquals(new BigDecimal("600.00"), horizon.totalProfit());
+    }
+
+    @Test
+    void shouldRejectInvalidHorizons() {
+        assertThrows(BadRequestException.class, () -> horizonPlanningService.plan(GreedyEngine.NAME,
+                new HorizonRequestDto(53, null, List.of())));
+        assertThrows(BadRequestException.class, () -> horizonPlanningService.plan(GreedyEngine.NAME,
+                new HorizonRequestDto(2, null, List.of(new ReplenishmentDto(9L, 1, 5)))));
+        assertThrows(BadRequestException.class, () -> horizonPlanningService.plan(GreedyEngine.NAME,
+                new HorizonRequestDto(2, null, List.of(new ReplenishmentDto(1L, 3, 5)))));
+        BadRequestException overflow = assertThrows(BadRequestException.class, () -> horizonPlanningService.plan(GreedyEngine.NAME,
+                new HorizonRequestDto(2, null, List.of(new ReplenishmentDto(1L, 1, Integer.MAX_VALUE)))));
+        assertTrue(overflow.getMessage().contains("exceeds"));
+    }
+}
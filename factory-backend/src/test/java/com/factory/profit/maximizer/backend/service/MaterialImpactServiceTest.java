@@ -0,0 +1,78 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.MaterialConsumerDto;
+import com.factory.profit.maximizer.backend.dto.MaterialImpactDto;
+import com.factory.profit.maximizer.backend.dto.ProductCompositionDto;
+import com.factory.profit.maximizer.backend.dto.ProductDto;
+import com.factory.profit.maximizer.backend.dto.RawMaterialDto;
+import com.factory.profit.maximizer.backend.exception.ConflictException;
+import com.factory.profit.maximizer.backend.exception.ResourceNotFoundException;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.optimizer.GreedyEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class MaterialImpactServiceTest {
+
+    @Autowired
+    private MaterialImpactService materialImpactService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private RawMaterialService rawMaterialService;
+
+    @Autowired
+    private ProductionOptimizerService optimizerService;
+
+    @Test
+    void shouldListTheConsumersAndWhatThePlanTakesFromTheMaterial() {
+        RawMaterial silk = rawMaterialService.save(new RawMaterialDto("IMP-SILK", "Silk", 100));
+        RawMaterial gold = rawMaterialService.save(new RawMaterialDto("IMP-GOLD", "Gold", 3));
+        productService.save(new ProductDto("IMP-SCARF", "Scarf", new BigDecimal("90000.00"), Set.of(
+                new ProductCompositionDto(silk.getId(), 10))));
+        productService.save(new ProductDto("IMP-ROBE", "Robe", new BigDecimal("1.00"), Set.of(
+                new ProductCompositionDto(silk.getId(), 20), new ProductCompositionDto(gold.getId(), 1))));
+        productService.save(new ProductDto("IMP-RING", "Ring", new BigDecimal("5.00"), Set.of(
+                new ProductCompositionDto(gold.getId(), 1))));
+        optimizerService.getProductionPlan(GreedyEngine.NAME);
+
+        MaterialImpactDto impact = materialImpactService.impact(silk.getId(), GreedyEngine.NAME);
+
+        assertEquals(List.of("IMP-ROBE", "IMP-SCARF"), impact.consumers().stream().map(MaterialConsumerDto::productCode).toList());
+        MaterialConsumerDto robe = impact.consumers().get(0);
+        assertEquals(5, robe.unitsFromStock());
+        assertEquals(3, robe.unitsSupported());
+        assertEquals(0, robe.plannedUnits());
+        MaterialConsumerDto scarf = impact.consumers().get(1);
+        assertEquals(10, scarf.unitsSupported());
+        assertEquals(10, scarf.plannedUnits());
+        assertEquals(100, impact.plannedConsumption());
+        assertEquals(0, new BigDecimal("900000.00").compareTo(impact.dependentProfit()));
+        assertTrue(impact.totalProfit().compareTo(impact.dependentProfit()) >= 0);
+    }
+
+    @Test
+    void shouldRefuseToDeleteAMaterialThatProductsUse() {
+        RawMaterial flax = rawMaterialService.save(new RawMaterialDto("IMP-FLAX", "Flax", 10));
+        RawMaterial spare = rawMaterialService.save(new RawMaterialDto("IMP-SPARE", "Spare", 10));
+        productService.save(new ProductDto("IMP-SHIRT", "Shirt", BigDecimal.TEN, Set.of(
+                new ProductCompositionDto(flax.getId(), 2))));
+
+        ConflictException conflict = assertThrows(ConflictException.class, () -> rawMaterialService.deleteById(flax.getId()));
+        assertTrue(conflict.getMessage().contains("IMP-SHIRT"));
+        rawMaterialService.deleteById(spare.getId());
+        assertThrows(ResourceNotFoundException.class, () -> materialImpactService.impact(spare.getId(), GreedyEngine.NAME));
+    }
+}
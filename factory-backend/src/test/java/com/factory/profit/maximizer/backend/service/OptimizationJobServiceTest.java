@@ -0,0 +1,182 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.OptimizationJobDto;
+import com.factory.profit.maximizer.backend.dto.OptimizationJobDto.Status;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import com.factory.profit.maximizer.backend.exception.ResourceNotFoundException;
+import com.factory.profit.maximizer.backend.exception.TooManyRequestsException;
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshot;
+import com.factory.profit.maximizer.backend.optimizer.ExactEngine;
+import com.factory.profit.maximizer.backend.optimizer.GreedyEngine;
+import com.factory.profit.maximizer.backend.optimizer.OptimizerEngine;
+import com.factory.profit.maximizer.backend.optimizer.SolveProgress;
+import com.factory.profit.maximizer.backend.repository.ProductRepository;
+import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class OptimizationJobServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private RawMaterialRepository rawMaterialRepository;
+
+    @Mock
+    private CatalogVersionService catalogVersionService;
+
+    private final WaitingEngine waitingEngine = new WaitingEngine();
+    private OptimizationJobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        RawMaterial wood = new RawMaterial(1L, "WOOD", "Wood", 100);
+        RawMaterial steel = new RawMaterial(2L, "STEEL", "Steel", 70);
+        Product chair = new Product(1L, "CHAIR", "Chair", new BigDecimal("150.00"), new HashSet<>());
+        chair.getComposition().add(new ProductComposition(1L, chair, wood, 10));
+        Product table = new Product(2L, "TABLE", "Table", new BigDecimal("400.00"), new HashSet<>());
+        table.getComposition().add(new ProductComposition(2L, table, wood, 30));
+        table.getComposition().add(new ProductComposition(3L, table, steel, 20));
+        lenient().when(productRepository.findAll()).thenReturn(List.of(chair, table));
+        lenient().when(rawMaterialRepository.findAll()).thenReturn(List.of(wood, steel));
+
+        CatalogSnapshotService catalogSnapshotService =
+                new CatalogSnapshotService(new CatalogSnapshotLoader(productRepository, rawMaterialRepository, catalogVersionService, new SimpleMeterRegistry()));
+        GreedyEngine greedyEngine = new GreedyEngine();
+        ProductionOptimizerService optimizerService = new ProductionOptimizerService(catalogSnapshotService,
+                List.of(greedyEngine, new ExactEngine(greedyEngine, 300, 20_000, 0, 0), waitingEngine), new SimpleMeterRegistry(), 4, 1);
+        jobService = new OptimizationJobService(catalogSnapshotService, optimizerService, 1, 1, 10_000, 60_000, 600_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobService.shutdown();
+    }
+
+    @Test
+    void shouldRunExactJobToTheOptimalPlan() throws InterruptedException {
+        OptimizationJobDto submitted = jobService.submit(ExactEngine.NAME, null);
+        assertEquals(10_000, submitted.timeBudgetMillis());
+
+        OptimizationJobDto job = awaitFinished(submitted.id());
+
+        assertEquals(Status.COMPLETED, job.status());
+        assertEquals(new BigDecimal("1500.00"), job.productionPlan().totalProfit());
+        assertEquals(new BigDecimal("1500.00"), job.upperBound());
+        assertNull(jobService.get(job.id(), false).productionPlan());
+    }
+
+    @Test
+    void shouldReportTheBestPlanWhileRunningAndKeepItWhenCancelled() throws InterruptedException {
+        OptimizationJobDto submitted = jobService.submit(WaitingEngine.NAME, 60_000L);
+        assertTrue(waitingEngine.started.await(5, TimeUnit.SECONDS));
+
+        OptimizationJobDto running = jobService.get(submitted.id(), true);
+        assertEquals(Status.RUNNING, running.status());
+        assertEquals(new BigDecimal("1500.00"), running.productionPlan().totalProfit());
+
+        jobService.cancel(submitted.id());
+        OptimizationJobDto cancelled = awaitFinished(submitted.id());
+        assertEquals(Status.CANCELLED, cancelled.status());
+        assertEquals(new BigDecimal("1500.00"), cancelled.productionPlan().totalProfit());
+    }
+
+    @Test
+    void shouldStopWhenTheTimeBudgetRunsOut() throws InterruptedException {
+        OptimizationJobDto job = awaitFinished(jobService.submit(WaitingEngine.NAME, 50L).id());
+
+        assertEquals(Status.COMPLETED, job.status());
+        assertNotNull(job.productionPlan());
+        assertTrue(job.elapsedMillis() >= 50);
+    }
+
+    @Test
+    void shouldRefuseJobsOnceTheQueueIsFullAndDropCancelledOnes() throws InterruptedException {
+        OptimizationJobDto running = jobService.submit(WaitingEngine.NAME, 60_000L);
+        assertTrue(waitingEngine.started.await(5, TimeUnit.SECONDS));
+        OptimizationJobDto queued = jobService.submit(GreedyEngine.NAME, null);
+        assertEquals(Status.QUEUED, queued.status());
+
+        assertThrows(TooManyRequestsException.class, () -> jobService.submit(GreedyEngine.NAME, null));
+
+        assertEquals(Status.CANCELLED, jobService.cancel(queued.id()).status());
+        OptimizationJobDto next = jobService.submit(GreedyEngine.NAME, null);
+        jobService.cancel(running.id());
+        assertEquals(Status.COMPLETED, awaitFinished(next.id()).status());
+        assertNull(jobService.get(queued.id(), true).productionPlan());
+    }
+
+    @Test
+    void shouldRejectInvalidRequests() {
+        assertThrows(BadRequestException.class, () -> jobService.submit("simulated-annealing", null));
+        assertThrows(BadRequestException.class, () -> jobService.submit(GreedyEngine.NAME, 0L));
+        assertThrows(BadRequestException.class, () -> jobService.submit(GreedyEngine.NAME, 60_001L));
+        assertThrows(ResourceNotFoundException.class, () -> jobService.get("missing", true));
+        assertThrows(ResourceNotFoundException.class, () -> jobService.cancel("missing"));
+    }
+
+    private OptimizationJobDto awaitFinished(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        OptimizationJobDto job = jobService.get(id, true);
+        while (!job.status().isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            job = jobService.get(id, true);
+        }
+        return job;
+    }
+
+    /**
+     * Publishes the greedy plan and then keeps searching until told to stop.
+     */
+    private static final class WaitingEngine implements OptimizerEngine {
+
+        static final String NAME = "waiting";
+
+        private final GreedyEngine greedyEngine = new GreedyEngine();
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        @Override
+        public String name() {
+            return NAME;
+        }
+
+        @Override
+        public int[] solve(CatalogSnapshot snapshot) {
+            return greedyEngine.solve(snapshot);
+        }
+
+        @Override
+        public int[] solve(CatalogSnapshot snapshot, SolveProgress progress) {
+            int[] quantities = OptimizerEngine.super.solve(snapshot, progress);
+            started.countDown();
+            while (!progress.shouldStop()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            return quantities;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.OptimizedProductDto;
+import com.factory.profit.maximizer.backend.dto.PlanExecutionDto;
+import com.factory.profit.maximizer.backend.dto.ProductCompositionDto;
+import com.factory.profit.maximizer.backend.dto.ProductDto;
+import com.factory.profit.maximizer.backend.dto.ProductionPlanDto;
+import com.factory.profit.maximizer.backend.dto.RawMaterialDto;
+import com.factory.profit.maximizer.backend.dto.StockDeductionDto;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import com.factory.profit.maximizer.backend.exception.ConflictException;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class PlanExecutionServiceTest {
+
+    @Autowired
+    private PlanExecutionService planExecutionService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private RawMaterialService rawMaterialService;
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
+    @Test
+    void shouldDeductTheMaterialsOfEveryProductInThePlan() {
+        RawMaterial wood = rawMaterialService.save(new RawMaterialDto("EXE-WOOD", "Wood", 100));
+        RawMaterial glue = rawMaterialService.save(new RawMaterialDto("EXE-GLUE", "Glue", 10));
+        productService.save(new ProductDto("EXE-CHAIR", "Chair", new BigDecimal("150.00"), Set.of(
+                new ProductCompositionDto(wood.getId(), 10), new ProductCompositionDto(glue.getId(), 1))));
+        productService.save(new ProductDto("EXE-TABLE", "Table", new BigDecimal("300.00"), Set.of(
+                new ProductCompositionDto(wood.getId(), 30))));
+        long versionBefore = rawMaterialService.findById(wood.getId()).orElseThrow().getVersion();
+
+        PlanExecutionDto execution = planExecutionService.execute(plan(line("EXE-CHAIR", 3), line("EXE-TABLE", 2)));
+
+        assertEquals(List.of(
+                new StockDeductionDto(wood.getId(), "EXE-WOOD", 90, 10),
+                new StockDeductionDto(glue.getId(), "EXE-GLUE", 3, 7)), execution.deductions());
+        RawMaterial woodAfter = rawMaterialService.findById(wood.getId()).orElseThrow();
+        assertEquals(10, woodAfter.getStockQuantity());
+        assertEquals(versionBefore + 1, woodAfter.getVersion());
+        assertEquals(10, catalogSnapshotService.getSnapshot().stockOf(wood.getId()));
+    }
+
+    @Test
+    void shouldDeductNothingWhenOneMaterialIsShort() {
+        RawMaterial steel = rawMaterialService.save(new RawMaterialDto("EXE-STEEL", "Steel", 50));
+        RawMaterial bolts = rawMaterialService.save(new RawMaterialDto("EXE-BOLT", "Bolts", 3));
+        productService.save(new ProductDto("EXE-RACK", "Rack", new BigDecimal("90.00"), Set.of(
+                new ProductCompositionDto(steel.getId(), 10), new ProductCompositionDto(bolts.getId(), 1))));
+
+        ConflictException conflict = assertThrows(ConflictException.class,
+                () -> planExecutionService.execute(plan(line("EXE-RACK", 4))));
+
+        assertTrue(conflict.getMessage().contains("EXE-BOLT (needs 4, has 3)"), conflict.getMessage());
+        assertEquals(50, rawMaterialService.findById(steel.getId()).orElseThrow().getStockQuantity());
+        assertEquals(3, rawMaterialService.findById(bolts.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void shouldNeverOversellUnderConcurrentExecutions() throws InterruptedException {
+        RawMaterial cloth = rawMaterialService.save(new RawMaterialDto("EXE-CLOTH", "Cloth", 60));
+        RawMaterial thread = rawMaterialService.save(new RawMaterialDto("EXE-THREAD", "Thread", 1_000));
+        productService.save(new ProductDto("EXE-BAG", "Bag", new BigDecimal("20.00"), Set.of(
+                new ProductCompositionDto(cloth.getId(), 2), new ProductCompositionDto(thread.getId(), 5))));
+        productService.save(new ProductDto("EXE-CAP", "Cap", new BigDecimal("8.00"), Set.of(
+                new ProductCompositionDto(thread.getId(), 1), new ProductCompositionDto(cloth.getId(), 1))));
+
+        List<Callable<PlanExecutionDto>> executions = new ArrayList<>();
+        for (int e = 0; e < 100; e++) {
+            executions.add(() -> planExecutionService.execute(plan(line("EXE-BAG", 1), line("EXE-CAP", 1))));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        int succeeded = 0;
+        try {
+            for (Future<PlanExecutionDto> future : executor.invokeAll(executions)) {
+                try {
+                    future.get();
+                    succeeded++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(ConflictException.class, e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Each execution takes 3 cloth: exactly 20 fit, and the stock adds up with no update lost
+        assertEquals(20, succeeded);
+        assertEquals(0, rawMaterialService.findById(cloth.getId()).orElseThrow().getStockQuantity());
+        assertEquals(1_000 - 20 * 6, rawMaterialService.findById(thread.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void shouldNotDeadlockWhenMaterialsAreEditedDuringExecutions() throws InterruptedException {
+        RawMaterial flour = rawMaterialService.save(new RawMaterialDto("EXE-FLOUR", "Flour", 1_000));
+        RawMaterial sugar = rawMaterialService.save(new RawMaterialDto("EXE-SUGAR", "Sugar", 1_000));
+        productService.save(new ProductDto("EXE-CAKE", "Cake", new BigDecimal("25.00"), Set.of(
+                new ProductCompositionDto(flour.getId(), 2), new ProductCompositionDto(sugar.getId(), 1))));
+
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int t = 0; t < 50; t++) {
+            tasks.add(() -> planExecutionService.execute(plan(line("EXE-CAKE", 1))));
+            int stock = 1_000 + t;
+            tasks.add(() -> rawMaterialService.update(sugar.getId(), new RawMaterialDto("EXE-SUGAR", "Sugar", stock)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            for (Future<Object> future : executor.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // A PUT racing an execution may lose on the row version, but never on a lock timeout
+                    assertInstanceOf(OptimisticLockingFailureException.class, e.getCause(), e.getCause().toString());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldRejectAnEditBasedOnAVersionReadBeforeAnExecution() {
+        RawMaterial resin = rawMaterialService.save(new RawMaterialDto("EXE-RESIN", "Resin", 40));
+        productService.save(new ProductDto("EXE-BOWL", "Bowl", new BigDecimal("12.00"), Set.of(
+                new ProductCompositionDto(resin.getId(), 5))));
+        long readVersion = rawMaterialService.findById(resin.getId()).orElseThrow().getVersion();
+
+        planExecutionService.execute(plan(line("EXE-BOWL", 2)));
+
+        assertThrows(ConflictException.class, () -> rawMaterialService.update(resin.getId(),
+                new RawMaterialDto("EXE-RESIN", "Resin", 45, readVersion)));
+        assertEquals(30, rawMaterialService.findById(resin.getId()).orElseThrow().getStockQuantity());
+
+        long currentVersion = rawMaterialService.findById(resin.getId()).orElseThrow().getVersion();
+        rawMaterialService.update(resin.getId(), new RawMaterialDto("EXE-RESIN", "Resin", 45, currentVersion));
+        assertEquals(45, rawMaterialService.findById(resin.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void shouldRejectUnknownProductsAndNegativeQuantities() {
+        assertThrows(BadRequestException.class, () -> planExecutionService.execute(plan(line("EXE-MISSING", 1))));
+        assertThrows(BadRequestException.class, () -> planExecutionService.execute(plan(line("EXE-CHAIR", -1))));
+        assertThrows(BadRequestException.class, () -> planExecutionService.execute(new ProductionPlanDto(null, null)));
+    }
+
+    private static ProductionPlanDto plan(OptimizedProductDto... lines) {
+        return new ProductionPlanDto(List.of(lines), null);
+    }
+
+    private static OptimizedProductDto line(String productCode, int units) {
+        return new OptimizedProductDto(productCode, null, units, null, null);
+    }
+}
@@ -0,0 +1,170 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.event.CatalogChangedEvent;
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshot;
+import com.factory.profit.maximizer.backend.optimizer.GreedyEngine;
+import com.factory.profit.maximizer.backend.optimizer.OptimizerEngine;
+import com.factory.profit.maximizer.backend.repository.ProductRepository;
+import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PlanRefreshServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private RawMaterialRepository rawMaterialRepository;
+
+    @Mock
+    private CatalogVersionService catalogVersionService;
+
+    private final AtomicLong committedVersion = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private CountingEngine engine;
+    private CatalogSnapshotService catalogSnapshotService;
+    private ProductionOptimizerService optimizerService;
+    private PlanRefreshService planRefreshService;
+
+    @BeforeEach
+    void setUp() {
+        RawMaterial wood = new RawMaterial(1L, "WOOD", "Wood", 100);
+        Product chair = new Product(1L, "CHAIR", "Chair", new BigDecimal("150.00"), new HashSet<>());
+        chair.getComposition().add(new ProductComposition(1L, chair, wood, 10));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(wood));
+        when(productRepository.findAll()).thenReturn(List.of(chair));
+        when(catalogVersionService.current()).thenAnswer(invocation -> committedVersion.get());
+
+        meterRegistry = new SimpleMeterRegistry();
+        engine = new CountingEngine();
+        catalogSnapshotService = new CatalogSnapshotService(
+                new CatalogSnapshotLoader(productRepository, rawMaterialRepository, catalogVersionService, meterRegistry));
+        optimizerService = new ProductionOptimizerService(catalogSnapshotService, List.of(new GreedyEngine(), engine),
+                meterRegistry, 4, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (planRefreshService != null) {
+            planRefreshService.shutdown();
+        }
+    }
+
+    @Test
+    void aBurstOfWritesShouldBeReplannedOnce() throws Exception {
+        planRefreshService = new PlanRefreshService(optimizerService, meterRegistry, List.of(CountingEngine.NAME), 200, 60_000);
+        optimizerService.getProductionPlan(CountingEngine.NAME);
+
+        for (int write = 0; write < 100; write++) {
+            commit();
+        }
+
+        PlanRefreshService.MaterializedPlan stale = planRefreshService.materializedPlan(CountingEngine.NAME).orElseThrow();
+        assertTrue(stale.isStale());
+        assertEquals(0, stale.plan().catalogVersion());
+        assertEquals(100, stale.latestVersion());
+
+        PlanRefreshService.MaterializedPlan refreshed = awaitVersion(100);
+        assertFalse(refreshed.isStale());
+        assertEquals(0, refreshed.staleMillis());
+        assertEquals(2, engine.solves.get());
+    }
+
+    @Test
+    void aLongBurstShouldStillBeReplannedWithinTheMaximumDelay() throws Exception {
+        planRefreshService = new PlanRefreshService(optimizerService, meterRegistry, List.of(CountingEngine.NAME), 10_000, 100);
+        optimizerService.getProductionPlan(CountingEngine.NAME);
+
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (optimizerService.cachedPlan(CountingEngine.NAME).catalogVersion() == 0
+                && System.currentTimeMillis() < deadline) {
+            commit();
+            Thread.sleep(10);
+        }
+
+        assertTrue(optimizerService.cachedPlan(CountingEngine.NAME).catalogVersion() > 0);
+    }
+
+    @Test
+    void enginesThatAreNotRefreshedShouldHaveNoMaterializedPlan() {
+        planRefreshService = new PlanRefreshService(optimizerService, meterRegistry, List.of(CountingEngine.NAME), 200, 60_000);
+        optimizerService.getProductionPlan(GreedyEngine.NAME);
+
+        assertTrue(planRefreshService.materializedPlan(GreedyEngine.NAME).isEmpty());
+        assertTrue(planRefreshService.materializedPlan(CountingEngine.NAME).isEmpty());
+    }
+
+    @Test
+    void aFailedRefreshShouldBeCountedAndRetried() throws Exception {
+        planRefreshService = new PlanRefreshService(optimizerService, meterRegistry, List.of(CountingEngine.NAME), 20, 200);
+        optimizerService.getProductionPlan(CountingEngine.NAME);
+        engine.failures.set(1);
+
+        commit();
+
+        awaitVersion(1);
+        assertEquals(1, meterRegistry.get("optimizer.refresh.failures").tag("engine", CountingEngine.NAME)
+                .counter().count());
+    }
+
+    private void commit() {
+        CatalogChangedEvent event = CatalogChangedEvent.structural(committedVersion.incrementAndGet());
+        catalogSnapshotService.onCatalogChanged(event);
+        planRefreshService.onCatalogChanged(event);
+    }
+
+    private PlanRefreshService.MaterializedPlan awaitVersion(long version) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        PlanRefreshService.MaterializedPlan plan = planRefreshService.materializedPlan(CountingEngine.NAME).orElseThrow();
+        while (plan.plan().catalogVersion() < version && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            plan = planRefreshService.materializedPlan(CountingEngine.NAME).orElseThrow();
+        }
+        assertEquals(version, plan.plan().catalogVersion());
+        return plan;
+    }
+
+    private static final class CountingEngine implements OptimizerEngine {
+
+        static final String NAME = "counting";
+
+        private final GreedyEngine greedyEngine = new GreedyEngine();
+        private final AtomicInteger solves = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+
+        @Override
+        public String name() {
+            return NAME;
+        }
+
+        @Override
+        public int[] solve(CatalogSnapshot snapshot) {
+            solves.incrementAndGet();
+            if (failures.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+                throw new IllegalStateException("Solve failed");
+            }
+            return greedyEngine.solve(snapshot);
+        }
+    }
+}
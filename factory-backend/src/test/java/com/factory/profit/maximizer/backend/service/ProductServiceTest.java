@@ -0,0 +1,224 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.config.CatalogCacheConfig;
+import com.factory.profit.maximizer.backend.controller.FieldSelectionAdvice;
+import com.factory.profit.maximizer.backend.dto.CompositionViewDto;
+import com.factory.profit.maximizer.backend.dto.ProductCompositionDto;
+import com.factory.profit.maximizer.backend.dto.ProductDto;
+import com.factory.profit.maximizer.backend.dto.ProductPageDto;
+import com.factory.profit.maximizer.backend.dto.ProductViewDto;
+import com.factory.profit.maximizer.backend.dto.RawMaterialDto;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import com.factory.profit.maximizer.backend.exception.ResourceNotFoundException;
+import com.factory.profit.maximizer.backend.instrumentation.SqlStatementCounter;
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ProductServiceTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private RawMaterialService rawMaterialService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    void setUp() {
+        RawMaterial wood = rawMaterialService.save(new RawMaterialDto("LST-WOOD", "Wood", 100));
+        RawMaterial glue = rawMaterialService.save(new RawMaterialDto("LST-GLUE", "Glue", 10));
+        productService.save(new ProductDto("LST-A", "Chair", new BigDecimal("150.00"), Set.of(
+                new ProductCompositionDto(wood.getId(), 10), new ProductCompositionDto(glue.getId(), 1))));
+        productService.save(new ProductDto("LST-B", "Stool", new BigDecimal("40.00"), Set.of()));
+        productService.save(new ProductDto("LST-C", "Table", new BigDecimal("300.00"), Set.of(
+                new ProductCompositionDto(wood.getId(), 30))));
+    }
+
+    @Test
+    void shouldPageThroughProductsByCode() {
+        ProductPageDto first = productService.findPage("LST-", 2);
+        ProductPageDto second = productService.findPage(first.nextCursor(), 1);
+
+        assertEquals(List.of("LST-A", "LST-B"), first.items().stream().map(ProductViewDto::code).toList());
+        assertEquals("LST-B", first.nextCursor());
+        assertEquals(List.of("LST-GLUE", "LST-WOOD"),
+                first.items().get(0).composition().stream().map(CompositionViewDto::rawMaterialCode).toList());
+        assertEquals(List.of(), first.items().get(1).composition());
+        assertEquals("LST-C", second.items().get(0).code());
+    }
+
+    @Test
+    void shouldEndWithoutCursorOnTheLastPage() {
+        ProductPageDto last = productService.findPage("~", 10);
+
+        assertEquals(List.of(), last.items());
+        assertNull(last.nextCursor());
+    }
+
+    @Test
+    void shouldRejectLimitsOutsideTheAllowedRange() {
+        assertThrows(BadRequestException.class, () -> productService.findPage(null, 0));
+        assertThrows(BadRequestException.class, () -> productService.findPage(null, ProductService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void shouldStreamEveryProductOnceWithItsComposition() {
+        List<ProductViewDto> streamed = new ArrayList<>();
+        productService.streamAll(streamed::add);
+
+        List<ProductViewDto> listed = streamed.stream().filter(p -> p.code().startsWith("LST-")).toList();
+        assertEquals(List.of("LST-A", "LST-B", "LST-C"), listed.stream().map(ProductViewDto::code).toList());
+        assertEquals(2, listed.get(0).composition().size());
+        assertEquals(30, listed.get(2).composition().get(0).quantity());
+    }
+
+    @Test
+    void shouldReadTheSameViewAsTheOneWrittenWithoutTheEntity() throws Exception {
+        RawMaterial wood = rawMaterialService.save(new RawMaterialDto("VIEW-WOOD", "Wood", 100));
+        RawMaterial glue = rawMaterialService.save(new RawMaterialDto("VIEW-GLUE", "Glue", 10));
+        Product product = productService.save(new ProductDto("VIEW-P", "Chair", new BigDecimal("150.00"), Set.of(
+                new ProductCompositionDto(wood.getId(), 10), new ProductCompositionDto(glue.getId(), 1))));
+
+        ProductViewDto view = productService.findViewById(product.getId()).orElseThrow();
+
+        assertEquals(ProductViewDto.of(product), view);
+        assertEquals(List.of("VIEW-GLUE", "VIEW-WOOD"), view.composition().stream().map(CompositionViewDto::rawMaterialCode).toList());
+        assertTrue(productService.findViewById(Long.MAX_VALUE).isEmpty());
+        assertEquals("{\"code\":\"VIEW-P\",\"value\":150.00}", objectMapper.writer(
+                FieldSelectionAdvice.filters(ProductViewDto.class, "code, value")).writeValueAsString(view));
+        assertTrue(objectMapper.writeValueAsString(view).contains("\"composition\":[{\"rawMaterialId\""));
+        assertThrows(BadRequestException.class, () -> FieldSelectionAdvice.filters(ProductViewDto.class, "code,price"));
+    }
+
+    @Test
+    void shouldServeProductsFromTheCacheUntilTheyChange() {
+        RawMaterial wood = rawMaterialService.save(new RawMaterialDto("CACHE-WOOD", "Wood", 100));
+        Product product = productService.save(new ProductDto("CACHE-P", "Chair", new BigDecimal("150.00"), Set.of(
+                new ProductCompositionDto(wood.getId(), 10))));
+        productService.findViewById(product.getId());
+
+        SqlStatementCounter.start();
+        ProductViewDto cached = productService.findViewById(product.getId()).orElseThrow();
+        rawMaterialService.findViewById(wood.getId()).orElseThrow();
+        assertEquals(0, SqlStatementCounter.stop());
+        assertEquals(10, cached.composition().get(0).quantity());
+
+        productService.update(product.getId(), new ProductDto("CACHE-P", "Armchair", new BigDecimal("150.00"), Set.of(
+                new ProductCompositionDto(wood.getId(), 12))));
+        ProductViewDto updated = productService.findViewById(product.getId()).orElseThrow();
+        assertEquals("Armchair", updated.name());
+        assertEquals(12, updated.composition().get(0).quantity());
+        assertTrue(meterRegistry.find("cache.gets").tags("cache", CatalogCacheConfig.PRODUCTS, "result", "hit")
+                .functionCounter().count() > 0);
+    }
+
+    @Test
+    void shouldUpdateCompositionWithAConstantNumberOfStatements() {
+        List<Long> materialIds = new ArrayList<>();
+        for (int m = 0; m < 40; m++) {
+            materialIds.add(rawMaterialService.save(new RawMaterialDto("UPD-M" + m, "Material " + m, 100)).getId());
+        }
+        long small = statementsForUpdate("UPD-SMALL", materialIds.subList(0, 3));
+        long large = statementsForUpdate("UPD-LARGE", materialIds.subList(3, 40));
+
+        assertEquals(small, large);
+    }
+
+    @Test
+    void shouldKeepUntouchedLinesWhenUpdatingComposition() {
+        RawMaterial wood = rawMaterialService.save(new RawMaterialDto("KEEP-WOOD", "Wood", 100));
+        RawMaterial glue = rawMaterialService.save(new RawMaterialDto("KEEP-GLUE", "Glue", 100));
+        RawMaterial nail = rawMaterialService.save(new RawMaterialDto("KEEP-NAIL", "Nail", 100));
+        Product product = productService.save(new ProductDto("KEEP-P", "Box", BigDecimal.TEN, Set.of(
+                new ProductCompositionDto(wood.getId(), 2), new ProductCompositionDto(glue.getId(), 1))));
+        Long woodLineId = lineIds(product).get(wood.getId());
+
+        Product updated = productService.update(product.getId(), new ProductDto("KEEP-P", "Box", BigDecimal.TEN, Set.of(
+                new ProductCompositionDto(wood.getId(), 2), new ProductCompositionDto(nail.getId(), 5))));
+
+        assertEquals(Set.of(wood.getId(), nail.getId()), lineIds(updated).keySet());
+        assertEquals(woodLineId, lineIds(updated).get(wood.getId()));
+    }
+
+    @Test
+    void shouldRejectAMaterialListedTwice() {
+        RawMaterial wood = rawMaterialService.save(new RawMaterialDto("TWICE-WOOD", "Wood", 100));
+
+        assertThrows(BadRequestException.class, () -> productService.save(new ProductDto("TWICE-P", "Box", BigDecimal.TEN, Set.of(
+                new ProductCompositionDto(wood.getId(), 2), new ProductCompositionDto(wood.getId(), 3)))));
+    }
+
+    /**
+     * Creates a product from the given materials, then counts the statements of an update that
+     * changes one quantity, drops one line and adds one.
+     */
+    private long statementsForUpdate(String code, List<Long> materialIds) {
+        Set<ProductCompositionDto> composition = new HashSet<>();
+        for (Long materialId : materialIds.subList(0, materialIds.size() - 1)) {
+            composition.add(new ProductCompositionDto(materialId, 1));
+        }
+        Product product = productService.save(new ProductDto(code, code, BigDecimal.TEN, composition));
+
+        Set<ProductCompositionDto> updated = new HashSet<>();
+        for (int i = 1; i < materialIds.size(); i++) {
+            updated.add(new ProductCompositionDto(materialIds.get(i), i == 1 ? 7 : 1));
+        }
+        SqlStatementCounter.start();
+        productService.update(product.getId(), new ProductDto(code, code, BigDecimal.TEN, updated));
+        return SqlStatementCounter.stop();
+    }
+
+    private static Map<Long, Long> lineIds(Product product) {
+        return product.getComposition().stream()
+                .collect(Collectors.toMap(line -> line.getRawMaterial().getId(), ProductComposition::getId));
+    }
+
+    @Test
+    void shouldTimeWritesByOutcome() {
+        long created = writeCount("product", "create", "committed");
+        long failedUpdates = writeCount("product", "update", "rolled_back");
+
+        productService.save(new ProductDto("MET-A", "Bench", new BigDecimal("80.00"), Set.of()));
+        assertThrows(ResourceNotFoundException.class, () -> productService.update(Long.MAX_VALUE,
+                new ProductDto("MET-B", "Bench", new BigDecimal("80.00"), Set.of())));
+
+        assertEquals(created + 1, writeCount("product", "create", "committed"));
+        assertEquals(failedUpdates + 1, writeCount("product", "update", "rolled_back"));
+    }
+
+    private long writeCount(String entity, String operation, String outcome) {
+        Timer timer = meterRegistry.find("catalog.write")
+                .tags("entity", entity, "operation", operation, "outcome", outcome)
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
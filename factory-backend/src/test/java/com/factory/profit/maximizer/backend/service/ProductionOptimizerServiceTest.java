@@ -1,15 +1,21 @@
 package com.factory.profit.maximizer.backend.service;
 
 import com.factory.profit.maximizer.backend.dto.ProductionPlanDto;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import com.factory.profit.maximizer.backend.exception.TooManyRequestsException;
 import com.factory.profit.maximizer.backend.model.Product;
 import com.factory.profit.maximizer.backend.model.ProductComposition;
 import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshot;
+import com.factory.profit.maximizer.backend.optimizer.ExactEngine;
+import com.factory.profit.maximizer.backend.optimizer.GreedyEngine;
+import com.factory.profit.maximizer.backend.optimizer.OptimizerEngine;
 import com.factory.profit.maximizer.backend.repository.ProductRepository;
 import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -18,8 +24,19 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,16 +48,26 @@ class ProductionOptimizerServiceTest {
     @Mock
     private RawMaterialRepository rawMaterialRepository;
 
-    @InjectMocks
     private ProductionOptimizerService productionOptimizerService;
+    private SimpleMeterRegistry meterRegistry;
 
     private RawMaterial wood;
     private RawMaterial steel;
     private Product chair;
     private Product table;
 
+    @Mock
+    private CatalogVersionService catalogVersionService;
+
     @BeforeEach
     void setUp() {
+        GreedyEngine greedyEngine = new GreedyEngine();
+        meterRegistry = new SimpleMeterRegistry();
+        CatalogSnapshotService catalogSnapshotService =
+                new CatalogSnapshotService(new CatalogSnapshotLoader(productRepository, rawMaterialRepository, catalogVersionService, meterRegistry));
+        productionOptimizerService = new ProductionOptimizerService(catalogSnapshotService,
+                List.of(greedyEngine, new ExactEngine(greedyEngine, 1_000, 10_000, 0, 0)), meterRegistry, 4, 1);
+
         wood = new RawMaterial(1L, "WOOD", "Wood", 100);
         steel = new RawMaterial(2L, "STEEL", "Steel", 50);
 
@@ -134,4 +161,154 @@ class ProductionOptimizerServiceTest {
         // Use compareTo for BigDecimal comparisons
         assertEquals(0, new BigDecimal("450000.00").compareTo(result.totalProfit()), "Total profit should be from drones.");
     }
+
+    @Test
+    void shouldRankEqualScoresExactlyAndKeepTheCatalogOrder() {
+        RawMaterial glue = new RawMaterial(1L, "GLUE", "Glue", 3);
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(glue));
+
+        // Both score 0.1 per unit of glue, although 0.3 / 3 is below 0.1 / 1 in double arithmetic
+        Product shelf = new Product(1L, "SHELF", "Shelf", new BigDecimal("0.3"), new HashSet<>());
+        shelf.getComposition().add(new ProductComposition(1L, shelf, glue, 3));
+        Product hook = new Product(2L, "HOOK", "Hook", new BigDecimal("0.10"), new HashSet<>());
+        hook.getComposition().add(new ProductComposition(2L, hook, glue, 1));
+        when(productRepository.findAll()).thenReturn(new ArrayList<>(List.of(shelf, hook)));
+
+        ProductionPlanDto result = productionOptimizerService.calculateOptimalProductionPlan();
+
+        assertEquals(1, result.productionPlan().size());
+        assertEquals("Shelf", result.productionPlan().get(0).productName());
+        assertEquals(new BigDecimal("0.3"), result.productionPlan().get(0).totalValue());
+        assertEquals(new BigDecimal("0.3"), result.totalProfit());
+    }
+
+    @Test
+    void exactEngineShouldFindPlanThatGreedyMisses() {
+        // Greedy takes one Cabinet (score 7/6) and wastes the remaining 4 boards; two Shelves are worth more
+        RawMaterial board = new RawMaterial(1L, "BOARD", "Board", 10);
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(board));
+
+        Product cabinet = new Product(1L, "CABINET", "Cabinet", new BigDecimal("7.00"), new HashSet<>());
+        cabinet.getComposition().add(new ProductComposition(1L, cabinet, board, 6));
+        Product shelf = new Product(2L, "SHELF", "Shelf", new BigDecimal("5.00"), new HashSet<>());
+        shelf.getComposition().add(new ProductComposition(2L, shelf, board, 5));
+        when(productRepository.findAll()).thenReturn(new ArrayList<>(List.of(cabinet, shelf)));
+
+        ProductionPlanDto greedy = productionOptimizerService.calculateOptimalProductionPlan(GreedyEngine.NAME);
+        ProductionPlanDto exact = productionOptimizerService.calculateOptimalProductionPlan(ExactEngine.NAME);
+
+        assertEquals(0, new BigDecimal("7.00").compareTo(greedy.totalProfit()));
+        assertEquals(0, new BigDecimal("10.00").compareTo(exact.totalProfit()));
+        assertEquals(1, exact.productionPlan().size());
+        assertEquals("SHELF", exact.productionPlan().get(0).productCode());
+        assertEquals(2, exact.productionPlan().get(0).quantityToProduce());
+    }
+
+    @Test
+    void shouldTimeEachPhaseOfAComputedPlanOnly() {
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(wood, steel));
+        when(productRepository.findAll()).thenReturn(List.of(chair, table));
+
+        productionOptimizerService.calculateOptimalProductionPlan(ExactEngine.NAME);
+        productionOptimizerService.calculateOptimalProductionPlan(ExactEngine.NAME);
+
+        assertEquals(1, meterRegistry.get("optimizer.catalog.load").timer().count());
+        assertEquals(1, meterRegistry.get("optimizer.catalog.rank").timer().count());
+        assertEquals(1, meterRegistry.get("optimizer.solve").tag("engine", ExactEngine.NAME).timer().count());
+        assertEquals(1, meterRegistry.get("optimizer.assemble").tag("engine", ExactEngine.NAME).timer().count());
+        assertEquals(0, meterRegistry.get("optimizer.solve").tag("engine", GreedyEngine.NAME).timer().count());
+    }
+
+    @Test
+    void concurrentCallersShouldShareOneComputation() throws Exception {
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(wood, steel));
+        when(productRepository.findAll()).thenReturn(List.of(chair, table));
+        GatedEngine gatedEngine = new GatedEngine();
+        ProductionOptimizerService service = serviceWith(gatedEngine, 4);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ProductionOptimizerService.VersionedPlan>> plans = new ArrayList<>();
+            plans.add(executor.submit(() -> service.getProductionPlan(GatedEngine.NAME)));
+            assertTrue(gatedEngine.started.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < 8; i++) {
+                plans.add(executor.submit(() -> service.getProductionPlan(GatedEngine.NAME)));
+            }
+            gatedEngine.release.countDown();
+
+            for (Future<ProductionOptimizerService.VersionedPlan> plan : plans) {
+                assertSame(plans.get(0).get(5, TimeUnit.SECONDS), plan.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, gatedEngine.solves.get());
+        verify(productRepository, times(1)).findAll();
+    }
+
+    @Test
+    void shouldTurnAwayCallersBeyondTheConcurrencyLimit() throws Exception {
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(wood, steel));
+        when(productRepository.findAll()).thenReturn(List.of(chair, table));
+        GatedEngine gatedEngine = new GatedEngine();
+        ProductionOptimizerService service = serviceWith(gatedEngine, 1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ProductionOptimizerService.VersionedPlan> running = executor.submit(() -> service.getProductionPlan(GatedEngine.NAME));
+            assertTrue(gatedEngine.started.await(5, TimeUnit.SECONDS));
+
+            TooManyRequestsException rejected = assertThrows(TooManyRequestsException.class,
+                    () -> service.getProductionPlan(GreedyEngine.NAME));
+            assertEquals(1L, rejected.getRetryAfterSeconds());
+
+            gatedEngine.release.countDown();
+            running.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, service.getProductionPlan(GreedyEngine.NAME).plan().productionPlan().size());
+    }
+
+    @Test
+    void shouldRejectUnknownEngine() {
+        assertThrows(BadRequestException.class, () -> productionOptimizerService.calculateOptimalProductionPlan("magic"));
+    }
+
+    private ProductionOptimizerService serviceWith(GatedEngine gatedEngine, int maxConcurrent) {
+        CatalogSnapshotService catalogSnapshotService = new CatalogSnapshotService(
+                new CatalogSnapshotLoader(productRepository, rawMaterialRepository, catalogVersionService, meterRegistry));
+        return new ProductionOptimizerService(catalogSnapshotService, List.of(new GreedyEngine(), gatedEngine),
+                meterRegistry, maxConcurrent, 1);
+    }
+
+    /**
+     * Solves greedily, but only once released.
+     */
+    private static final class GatedEngine implements OptimizerEngine {
+
+        static final String NAME = "gated";
+
+        private final GreedyEngine greedyEngine = new GreedyEngine();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger solves = new AtomicInteger();
+
+        @Override
+        public String name() {
+            return NAME;
+        }
+
+        @Override
+        public int[] solve(CatalogSnapshot snapshot) {
+            solves.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return greedyEngine.solve(snapshot);
+        }
+    }
 }
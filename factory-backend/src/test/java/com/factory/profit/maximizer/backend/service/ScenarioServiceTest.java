@@ -0,0 +1,156 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.ScenarioComparisonDto;
+import com.factory.profit.maximizer.backend.dto.ScenarioDto;
+import com.factory.profit.maximizer.backend.dto.ScenarioResultDto;
+import com.factory.profit.maximizer.backend.dto.StockOverrideDto;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import com.factory.profit.maximizer.backend.model.Product;
+import com.factory.profit.maximizer.backend.model.ProductComposition;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import com.factory.profit.maximizer.backend.optimizer.CatalogSnapshot;
+import com.factory.profit.maximizer.backend.optimizer.ExactEngine;
+import com.factory.profit.maximizer.backend.optimizer.GreedyEngine;
+import com.factory.profit.maximizer.backend.repository.ProductRepository;
+import com.factory.profit.maximizer.backend.repository.RawMaterialRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ScenarioServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private RawMaterialRepository rawMaterialRepository;
+
+    @Mock
+    private CatalogVersionService catalogVersionService;
+
+    private ScenarioService scenarioService;
+
+    @AfterEach
+    void tearDown() {
+        if (scenarioService != null) {
+            scenarioService.shutdown();
+        }
+    }
+
+    @Test
+    void shouldRankScenariosByProfitAgainstTheBasePlan() {
+        RawMaterial wood = new RawMaterial(1L, "WOOD", "Wood", 100);
+        Product chair = new Product(1L, "CHAIR", "Chair", new BigDecimal("150.00"), new HashSet<>());
+        chair.getComposition().add(new ProductComposition(1L, chair, wood, 10));
+        useCatalog(List.of(chair), List.of(wood));
+
+        ScenarioComparisonDto comparison = scenarioService.evaluate(GreedyEngine.NAME, List.of(
+                scenario("Supplier short", new StockOverrideDto(1L, null, null, new BigDecimal("0.8"))),
+                scenario("Buy more", new StockOverrideDto(1L, null, 50, null), new StockOverrideDto(1L, null, 5, null)),
+                scenario("Unchanged")), true);
+
+        assertEquals(new BigDecimal("1500.00"), comparison.baseProfit());
+        assertEquals(List.of("Buy more", "Unchanged", "Supplier short"),
+                comparison.scenarios().stream().map(ScenarioResultDto::name).toList());
+        ScenarioResultDto best = comparison.scenarios().get(0);
+        assertEquals(1, best.rank());
+        assertEquals(new BigDecimal("2250.00"), best.totalProfit());
+        assertEquals(new BigDecimal("750.00"), best.profitChange());
+        assertEquals(new BigDecimal("-300.00"), comparison.scenarios().get(2).profitChange());
+        assertEquals(15, best.productionPlan().get(0).quantityToProduce());
+    }
+
+    @Test
+    void shouldMatchSequentialSolvesOfTheSameScenarios() {
+        assertMatchesSequentialSolves(GreedyEngine.NAME, new Random(11), 200, 30);
+        assertMatchesSequentialSolves(ExactEngine.NAME, new Random(12), 12, 5);
+    }
+
+    @Test
+    void shouldRejectInvalidOverrides() {
+        RawMaterial wood = new RawMaterial(1L, "WOOD", "Wood", 100);
+        useCatalog(List.of(), List.of(wood));
+
+        assertThrows(BadRequestException.class, () -> scenarioService.evaluate(GreedyEngine.NAME,
+                List.of(scenario("Unknown", new StockOverrideDto(9L, 10, null, null))), false));
+        assertThrows(BadRequestException.class, () -> scenarioService.evaluate(GreedyEngine.NAME,
+                List.of(scenario("Two changes", new StockOverrideDto(1L, 10, 5, null))), false));
+        assertThrows(BadRequestException.class, () -> scenarioService.evaluate(GreedyEngine.NAME, List.of(), false));
+    }
+
+    private void assertMatchesSequentialSolves(String engine, Random random, int productCount, int materialCount) {
+        List<RawMaterial> materials = new ArrayList<>();
+        for (int m = 0; m < materialCount; m++) {
+            materials.add(new RawMaterial((long) m + 1, "M" + m, "Material " + m, random.nextInt(100)));
+        }
+        List<Product> products = new ArrayList<>();
+        for (int p = 0; p < productCount; p++) {
+            Product product = new Product((long) p + 1, "P" + p, "Product " + p, BigDecimal.valueOf(1 + random.nextInt(300)), new HashSet<>());
+            for (int m : random.ints(0, materialCount).distinct().limit(1 + random.nextInt(3)).toArray()) {
+                product.getComposition().add(new ProductComposition(null, product, materials.get(m), 1 + random.nextInt(9)));
+            }
+            products.add(product);
+        }
+        useCatalog(products, materials);
+        List<ScenarioDto> scenarios = new ArrayList<>();
+        for (int s = 0; s < 100; s++) {
+            scenarios.add(scenario("S" + s, new StockOverrideDto(1L + random.nextInt(materialCount), random.nextInt(200), null, null),
+                    new StockOverrideDto(1L + random.nextInt(materialCount), null, random.nextInt(100) - 50, null)));
+        }
+
+        ScenarioComparisonDto comparison = scenarioService.evaluate(engine, scenarios, false);
+
+        CatalogSnapshot base = CatalogSnapshot.of(products, materials);
+        for (ScenarioResultDto result : comparison.scenarios()) {
+            CatalogSnapshot snapshot = base.withStock(expectedStock(base, scenarios.get(Integer.parseInt(result.name().substring(1)))));
+            GreedyEngine greedy = new GreedyEngine();
+            int[] quantities = engine.equals(GreedyEngine.NAME)
+                    ? greedy.solve(snapshot)
+                    : new ExactEngine(greedy, 5_000, 100_000, 0, 0).solve(snapshot);
+            assertEquals(ProductionOptimizerService.toPlan(snapshot, quantities).totalProfit(), result.totalProfit(), result.name());
+        }
+        scenarioService.shutdown();
+    }
+
+    private void useCatalog(List<Product> products, List<RawMaterial> materials) {
+        when(productRepository.findAll()).thenReturn(products);
+        when(rawMaterialRepository.findAll()).thenReturn(materials);
+        CatalogSnapshotService catalogSnapshotService =
+                new CatalogSnapshotService(new CatalogSnapshotLoader(productRepository, rawMaterialRepository, catalogVersionService, new SimpleMeterRegistry()));
+        GreedyEngine greedyEngine = new GreedyEngine();
+        ProductionOptimizerService optimizerService = new ProductionOptimizerService(catalogSnapshotService,
+                List.of(greedyEngine, new ExactEngine(greedyEngine, 5_000, 100_000, 0, 0)), new SimpleMeterRegistry(), 4, 1);
+        scenarioService = new ScenarioService(catalogSnapshotService, optimizerService, 4, 200);
+    }
+
+    private static ScenarioDto scenario(String name, StockOverrideDto... overrides) {
+        return new ScenarioDto(name, List.of(overrides));
+    }
+
+    private static Map<Long, Integer> expectedStock(CatalogSnapshot base, ScenarioDto scenario) {
+        Map<Long, Integer> stock = new HashMap<>();
+        for (StockOverrideDto override : scenario.getOverrides()) {
+            int current = stock.getOrDefault(override.getRawMaterialId(), base.stockOf(override.getRawMaterialId()));
+            stock.put(override.getRawMaterialId(), override.getQuantity() != null
+                    ? override.getQuantity()
+                    : Math.max(0, current + override.getDelta()));
+        }
+        return stock;
+    }
+}
@@ -0,0 +1,233 @@
+package com.factory.profit.maximizer.backend.service;
+
+import com.factory.profit.maximizer.backend.dto.RawMaterialDto;
+import com.factory.profit.maximizer.backend.dto.StockBalanceDto;
+import com.factory.profit.maximizer.backend.dto.StockMovementDto;
+import com.factory.profit.maximizer.backend.dto.StockMovementPageDto;
+import com.factory.profit.maximizer.backend.dto.StockMovementViewDto;
+import com.factory.profit.maximizer.backend.exception.BadRequestException;
+import com.factory.profit.maximizer.backend.exception.ConflictException;
+import com.factory.profit.maximizer.backend.exception.ResourceNotFoundException;
+import com.factory.profit.maximizer.backend.instrumentation.SqlStatementCounter;
+import com.factory.profit.maximizer.backend.model.RawMaterial;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class StockLedgerServiceTest {
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private RawMaterialService rawMaterialService;
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
+    @Test
+    void shouldCountRecordedMovementsInTheBalanceAndApplyThemOnFlush() {
+        RawMaterial wood = rawMaterialService.save(new RawMaterialDto("LED-WOOD", "Wood", 100));
+
+        stockLedgerService.record(List.of(
+                new StockMovementDto(wood.getId(), 40, "Receipt 1"),
+                new StockMovementDto(wood.getId(), -15, "Line 2")));
+        assertEquals(125, stockLedgerService.balance(wood.getId()).stock());
+
+        stockLedgerService.flush();
+
+        StockBalanceDto balance = stockLedgerService.balance(wood.getId());
+        assertEquals(new StockBalanceDto(wood.getId(), 125, 0, 125), balance);
+        assertEquals(125, rawMaterialService.findById(wood.getId()).orElseThrow().getStockQuantity());
+        assertEquals(125, catalogSnapshotService.getSnapshot().stockOf(wood.getId()));
+    }
+
+    @Test
+    void shouldKeepEveryMovementInTheLedger() {
+        RawMaterial glue = rawMaterialService.save(new RawMaterialDto("LED-GLUE", "Glue", 0));
+        for (int i = 1; i <= 5; i++) {
+            stockLedgerService.record(List.of(new StockMovementDto(glue.getId(), i, "Receipt " + i)));
+        }
+        stockLedgerService.flush();
+
+        StockMovementPageDto first = stockLedgerService.findPage(glue.getId(), 0, 3);
+        StockMovementPageDto second = stockLedgerService.findPage(glue.getId(), first.nextCursor(), 3);
+
+        assertEquals(List.of(1, 2, 3), first.items().stream().map(item -> item.delta()).toList());
+        assertEquals(List.of(4, 5), second.items().stream().map(item -> item.delta()).toList());
+        assertNull(second.nextCursor());
+        assertTrue(second.items().stream().allMatch(item -> item.flushed()));
+    }
+
+    @Test
+    void shouldNotLoseMovementsRecordedConcurrentlyWithFlushes() throws Exception {
+        RawMaterial steel = rawMaterialService.save(new RawMaterialDto("LED-STEEL", "Steel", 1_000));
+        List<Callable<Void>> writers = new ArrayList<>();
+        for (int w = 0; w < 8; w++) {
+            writers.add(() -> {
+                for (int i = 0; i < 25; i++) {
+                    stockLedgerService.record(List.of(
+                            new StockMovementDto(steel.getId(), 3, null),
+                            new StockMovementDto(steel.getId(), -1, null)));
+                    if (i % 10 == 0) {
+                        stockLedgerService.flush();
+                    }
+                }
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (Future<Void> future : executor.invokeAll(writers)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        stockLedgerService.flush();
+        assertEquals(1_000 + 8 * 25 * 2, rawMaterialService.findById(steel.getId()).orElseThrow().getStockQuantity());
+        assertEquals(new StockBalanceDto(steel.getId(), 1_400, 0, 1_400), stockLedgerService.balance(steel.getId()));
+    }
+
+    @Test
+    void shouldNeverLetConcurrentBatchesTakeTheBalanceBelowZero() throws Exception {
+        RawMaterial wire = rawMaterialService.save(new RawMaterialDto("LED-WIRE", "Wire", 0));
+        stockLedgerService.record(List.of(new StockMovementDto(wire.getId(), 30, "Receipt")));
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicBoolean negativeSeen = new AtomicBoolean();
+        List<Callable<Void>> writers = new ArrayList<>();
+        for (int w = 0; w < 8; w++) {
+            writers.add(() -> {
+                for (int i = 0; i < 10; i++) {
+                    try {
+                        stockLedgerService.record(List.of(new StockMovementDto(wire.getId(), -2, null)));
+                        accepted.incrementAndGet();
+                    } catch (BadRequestException e) {
+                        // Not enough wire left
+                    }
+                    if (stockLedgerService.balance(wire.getId()).stock() < 0) {
+                        negativeSeen.set(true);
+                    }
+                    if (i % 4 == 0) {
+                        stockLedgerService.flush();
+                    }
+                }
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (Future<Void> future : executor.invokeAll(writers)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        stockLedgerService.flush();
+
+        assertFalse(negativeSeen.get());
+        assertEquals(15, accepted.get());
+        int stored = rawMaterialService.findById(wire.getId()).orElseThrow().getStockQuantity();
+        assertEquals(0, stored);
+        long ledgerSum = 0;
+        StockMovementPageDto page = stockLedgerService.findPage(wire.getId(), 0, 100);
+        for (StockMovementViewDto item : page.items()) {
+            ledgerSum += item.delta();
+        }
+        assertNull(page.nextCursor());
+        assertEquals(stored, ledgerSum);
+    }
+
+    @Test
+    void shouldKeepARawMaterialThatHasMovements() {
+        RawMaterial clamp = rawMaterialService.save(new RawMaterialDto("LED-CLAMP", "Clamp", 4));
+        stockLedgerService.record(List.of(new StockMovementDto(clamp.getId(), 2, "Receipt")));
+        stockLedgerService.flush();
+
+        assertThrows(ConflictException.class, () -> rawMaterialService.deleteById(clamp.getId()));
+
+        assertTrue(rawMaterialService.findById(clamp.getId()).isPresent());
+        assertEquals(1, stockLedgerService.findPage(clamp.getId(), 0, 10).items().size());
+    }
+
+    @Test
+    void shouldRejectInvalidMovementsWithoutRecordingAny() {
+        RawMaterial bolts = rawMaterialService.save(new RawMaterialDto("LED-BOLT", "Bolts", 10));
+
+        assertThrows(BadRequestException.class, () -> stockLedgerService.record(List.of()));
+        assertThrows(BadRequestException.class, () -> stockLedgerService.record(List.of(
+                new StockMovementDto(bolts.getId(), 5, null), new StockMovementDto(bolts.getId(), 0, null))));
+        assertThrows(BadRequestException.class, () -> stockLedgerService.record(List.of(
+                new StockMovementDto(bolts.getId(), 5, null), new StockMovementDto(-1L, 5, null))));
+        assertThrows(ResourceNotFoundException.class, () -> stockLedgerService.balance(-1L));
+
+        assertEquals(10, stockLedgerService.balance(bolts.getId()).stock());
+        assertTrue(stockLedgerService.findPage(bolts.getId(), 0, 10).items().isEmpty());
+    }
+
+    @Test
+    void shouldRejectMovementsThatTakeTheBalanceOutOfRange() {
+        RawMaterial nails = rawMaterialService.save(new RawMaterialDto("LED-NAIL", "Nails", 10));
+        stockLedgerService.record(List.of(new StockMovementDto(nails.getId(), 5, null)));
+
+        assertThrows(BadRequestException.class, () -> stockLedgerService.record(List.of(
+                new StockMovementDto(nails.getId(), -16, null))));
+        assertThrows(BadRequestException.class, () -> stockLedgerService.record(List.of(
+                new StockMovementDto(nails.getId(), Integer.MAX_VALUE - 20, null),
+                new StockMovementDto(nails.getId(), 10, null))));
+
+        assertEquals(15, stockLedgerService.balance(nails.getId()).stock());
+        stockLedgerService.record(List.of(new StockMovementDto(nails.getId(), -15, null)));
+        assertEquals(0, stockLedgerService.balance(nails.getId()).stock());
+    }
+
+    @Test
+    void shouldClampAStockThatAnotherWriteTookOutOfRangeAndFlushTheRest() {
+        RawMaterial paint = rawMaterialService.save(new RawMaterialDto("LED-PAINT", "Paint", 10));
+        RawMaterial brush = rawMaterialService.save(new RawMaterialDto("LED-BRUSH", "Brush", 10));
+        stockLedgerService.record(List.of(
+                new StockMovementDto(paint.getId(), -8, null),
+                new StockMovementDto(brush.getId(), 5, null)));
+        // A write outside the ledger leaves too little paint for the pending movement
+        rawMaterialService.update(paint.getId(), new RawMaterialDto("LED-PAINT", "Paint", 3));
+
+        stockLedgerService.flush();
+
+        assertEquals(0, rawMaterialService.findById(paint.getId()).orElseThrow().getStockQuantity());
+        assertEquals(15, rawMaterialService.findById(brush.getId()).orElseThrow().getStockQuantity());
+        stockLedgerService.record(List.of(new StockMovementDto(paint.getId(), 2, null)));
+        stockLedgerService.flush();
+        assertEquals(new StockBalanceDto(paint.getId(), 2, 0, 2), stockLedgerService.balance(paint.getId()));
+    }
+
+    @Test
+    void shouldReadTheBalanceWithoutLoadingTheCatalog() {
+        // A structural change drops the cached snapshot
+        RawMaterial tape = rawMaterialService.save(new RawMaterialDto("LED-TAPE", "Tape", 7));
+        stockLedgerService.record(List.of(new StockMovementDto(tape.getId(), 3, null)));
+
+        SqlStatementCounter.start();
+        StockBalanceDto balance = stockLedgerService.balance(tape.getId());
+        long statements = SqlStatementCounter.stop();
+
+        assertEquals(new StockBalanceDto(tape.getId(), 7, 3, 10), balance);
+        assertTrue(statements <= 1, statements + " statements");
+    }
+}